@@ -0,0 +1,84 @@
+import benchmarks.Workloads;
+import com.atlan.Atlan;
+import com.atlan.AtlanClient;
+import com.atlan.model.assets.Asset;
+import com.atlan.model.assets.ICatalog;
+import com.atlan.model.assets.LineageProcess;
+import com.atlan.model.assets.S3Bucket;
+import com.atlan.model.assets.S3Object;
+import com.atlan.model.assets.Table;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds assets the way AtlanAssetCreator and AtlanLineageCreator do, without touching the network.
+ */
+public class AssetWorkload implements Workloads.Assets {
+
+    private static final String CONNECTION_QUALIFIED_NAME = "default/s3/1700000000";
+    private static final long LAST_MODIFIED = Instant.parse("2023-12-13T05:25:17.000Z").toEpochMilli();
+
+    private int batchSize;
+    private AtlanClient client;
+    private S3Bucket bucket;
+    private List<Asset> s3Objects;
+
+    @Override
+    public void setUp(int batchSize) {
+        this.batchSize = batchSize;
+        if (Atlan.getBaseUrl() == null) {
+            // serialization needs a client, but never calls it
+            Atlan.setBaseUrl("http://localhost");
+            Atlan.setApiToken("benchmark");
+        }
+        client = Atlan.getDefaultClient();
+        bucket = S3Bucket._internal()
+                .guid(SyntheticData.guid(-1))
+                .qualifiedName(CONNECTION_QUALIFIED_NAME + "/benchmark-bucket")
+                .name("benchmark-bucket")
+                .connectionQualifiedName(CONNECTION_QUALIFIED_NAME)
+                .build();
+        s3Objects = buildS3Objects();
+    }
+
+    @Override
+    public List<Asset> buildS3Objects() {
+        List<Asset> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            String key = SyntheticData.key(i);
+            batch.add(S3Object.creator(key, bucket, "arn:aws:s3:::benchmark-bucket/prefix/" + key)
+                    .description("S3 object " + key)
+                    .ownerUser(AtlanAssetCreator.OWNER)
+                    .s3ETag(String.format("%032x", i))
+                    .s3ObjectSize(1000L + i)
+                    .s3ObjectLastModifiedTime(LAST_MODIFIED)
+                    .build());
+        }
+        return batch;
+    }
+
+    @Override
+    public List<Asset> buildLineageProcesses() {
+        List<Asset> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            List<ICatalog> inputs = List.of(Table.refByGuid(SyntheticData.guid(i)));
+            List<ICatalog> outputs = List.of(S3Object.refByGuid(SyntheticData.guid(batchSize + i)));
+            batch.add(LineageProcess.creator("Postgres to S3: " + SyntheticData.key(i), CONNECTION_QUALIFIED_NAME,
+                            null, inputs, outputs, null)
+                    .ownerUser(AtlanAssetCreator.OWNER)
+                    .build());
+        }
+        return batch;
+    }
+
+    @Override
+    public int serializeS3Objects() {
+        int chars = 0;
+        for (Asset asset : s3Objects) {
+            chars += asset.toJson(client).length();
+        }
+        return chars;
+    }
+}
@@ -0,0 +1,106 @@
+import benchmarks.Workloads;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class KeyIndexWorkload implements Workloads.KeyIndex {
+
+    private static final int MAX_PROBES = 1 << 20;
+
+    private String[] keyProbes;
+    private String[] guidProbes;
+    private String[] targetProbes;
+    private String[] prefixProbes;
+    private String[] fuzzyProbes;
+    private int mask;
+
+    private CompactKeySet compactKeySet;
+    private Set<String> hashSet;
+    private Path snapshotFile;
+    private CatalogSnapshot snapshot;
+    private NameIndex nameIndex;
+    private LineageIndex lineageIndex;
+
+    @Override
+    public void setUp(int keys) throws Exception {
+        List<CatalogSnapshot.Entry> entries = new ArrayList<>(keys);
+        compactKeySet = new CompactKeySet(keys);
+        hashSet = new HashSet<>(keys * 2);
+        lineageIndex = new LineageIndex();
+        for (int i = 0; i < keys; i++) {
+            String key = SyntheticData.key(i);
+            String guid = SyntheticData.guid(i);
+            compactKeySet.add(key);
+            hashSet.add(key);
+            lineageIndex.addEdge(guid, SyntheticData.guid(keys + i));
+            entries.add(new CatalogSnapshot.Entry(guid, "S3Object", key, "default/s3/1700000000/benchmark-bucket/" + key,
+                    "default/s3/1700000000"));
+        }
+        snapshotFile = Files.createTempFile("benchmark-", ".snapshot");
+        CatalogSnapshot.write(snapshotFile, "default/s3/1700000000", entries, 0L, 0L);
+        snapshot = CatalogSnapshot.open(snapshotFile);
+        nameIndex = NameIndex.build(entries);
+
+        // a shuffled sequence of lookups, every other one for a key that is not indexed
+        int probes = Math.min(MAX_PROBES, Integer.highestOneBit(Math.max(2, keys)));
+        mask = probes - 1;
+        int[] order = SyntheticData.shuffled(keys, 42);
+        keyProbes = new String[probes];
+        guidProbes = new String[probes];
+        targetProbes = new String[probes];
+        prefixProbes = new String[probes];
+        fuzzyProbes = new String[probes];
+        for (int j = 0; j < probes; j++) {
+            int i = j % 2 == 0 ? order[j] : keys + order[j];
+            String key = SyntheticData.key(i);
+            keyProbes[j] = key;
+            guidProbes[j] = SyntheticData.guid(i);
+            targetProbes[j] = SyntheticData.guid(keys + i);
+            prefixProbes[j] = key.substring(0, key.length() - 6);
+            // one substitution away from the key
+            char[] chars = key.toCharArray();
+            chars[chars.length - 5] = chars[chars.length - 5] == '7' ? '3' : '7';
+            fuzzyProbes[j] = new String(chars);
+        }
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        snapshot.close();
+        Files.deleteIfExists(snapshotFile);
+    }
+
+    @Override
+    public boolean compactKeySetContains(int i) {
+        return compactKeySet.contains(keyProbes[i & mask]);
+    }
+
+    @Override
+    public boolean hashSetContains(int i) {
+        return hashSet.contains(keyProbes[i & mask]);
+    }
+
+    @Override
+    public Object snapshotFindByGuid(int i) {
+        return snapshot.findByGuid(guidProbes[i & mask]);
+    }
+
+    @Override
+    public Object nameIndexPrefix(int i) {
+        return nameIndex.prefix(prefixProbes[i & mask], 20);
+    }
+
+    @Override
+    public Object nameIndexFuzzy(int i) {
+        return nameIndex.fuzzy(fuzzyProbes[i & mask], 1, 10);
+    }
+
+    @Override
+    public boolean lineageIndexExists(int i) {
+        return lineageIndex.exists(guidProbes[i & mask], targetProbes[i & mask]);
+    }
+}
@@ -0,0 +1,37 @@
+import benchmarks.Workloads;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+
+public class LineageCsvWorkload implements Workloads.LineageCsv {
+
+    private String csv;
+
+    @Override
+    public void setUp(int rows) {
+        csv = SyntheticData.lineageCsv(rows);
+    }
+
+    @Override
+    public int readCsv() throws Exception {
+        int fields = 0;
+        try (CsvReader reader = new CsvReader(new StringReader(csv), 1 << 16)) {
+            while (reader.next()) {
+                fields += reader.getFields().length;
+            }
+        }
+        return fields;
+    }
+
+    @Override
+    public int splitLines() throws Exception {
+        int fields = 0;
+        try (BufferedReader reader = new BufferedReader(new StringReader(csv))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                fields += line.split(",").length;
+            }
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,43 @@
+import benchmarks.Workloads;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+
+public class ListingWorkload implements Workloads.Listing {
+
+    private byte[] listing;
+
+    @Override
+    public void setUp(int objects) {
+        listing = SyntheticData.listingXml(objects);
+    }
+
+    @Override
+    public int parseStreaming() throws Exception {
+        int count = 0;
+        try (S3ListingReader reader = new S3ListingReader(new ByteArrayInputStream(listing))) {
+            reader.getBucketName();
+            S3ListingReader.Entry entry;
+            while ((entry = reader.next()) != null) {
+                count += entry.getKey().length() > 0 ? 1 : 0;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int parseDom() throws Exception {
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new ByteArrayInputStream(listing));
+        doc.getElementsByTagName("Name").item(0).getTextContent();
+        NodeList contentsList = doc.getElementsByTagName("Contents");
+        int count = 0;
+        for (int i = 0; i < contentsList.getLength(); i++) {
+            Element content = (Element) contentsList.item(i);
+            count += content.getElementsByTagName("Key").item(0).getTextContent().length() > 0 ? 1 : 0;
+        }
+        return count;
+    }
+}
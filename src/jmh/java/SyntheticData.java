@@ -0,0 +1,88 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic inputs for the benchmarks, shaped like the real ones and sized on demand.
+ */
+public final class SyntheticData {
+
+    private static final String[] TABLES = {"CUSTOMERS", "SUPPLIERS", "ORDERS", "ORDER_DETAILS", "PRODUCTS", "EMPLOYEES"};
+
+    private SyntheticData() {
+    }
+
+    /**
+     * @param objects number of {@code <Contents>} entries
+     * @return an S3 ListBucketResult document, UTF-8
+     */
+    public static byte[] listingXml(int objects) {
+        StringBuilder xml = new StringBuilder(objects * 420);
+        xml.append("<ListBucketResult>\n    <Name>benchmark-bucket</Name>\n    <Prefix/>\n    <Marker/>\n")
+                .append("    <MaxKeys>").append(objects).append("</MaxKeys>\n    <IsTruncated>false</IsTruncated>\n");
+        for (int i = 0; i < objects; i++) {
+            xml.append("    <Contents>\n        <Key>").append(key(i)).append("</Key>\n")
+                    .append("        <LastModified>2023-12-13T05:25:17.000Z</LastModified>\n")
+                    .append("        <ETag>\"").append(String.format("%032x", (long) i * 0x9E3779B97F4A7C15L)).append("\"</ETag>\n")
+                    .append("        <Size>").append(1000 + i % 100_000).append("</Size>\n")
+                    .append("        <Owner>\n            <ID>de412c8df2f4eee24379a49686ff6af622ccd62186aa6da99e0329f98250baf6</ID>\n        </Owner>\n")
+                    .append("        <StorageClass>STANDARD</StorageClass>\n    </Contents>\n");
+        }
+        xml.append("</ListBucketResult>\n");
+        return xml.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param rows number of postgres,s3,snowflake chains; one in ten has a quoted name holding a comma
+     * @return the lineage CSV
+     */
+    public static String lineageCsv(int rows) {
+        StringBuilder csv = new StringBuilder(rows * 48);
+        for (int i = 0; i < rows; i++) {
+            String table = TABLES[i % TABLES.length] + "_" + i;
+            if (i % 10 == 0) {
+                csv.append('"').append(table).append(", archived\"");
+            } else {
+                csv.append(table);
+            }
+            csv.append(',').append(table).append(".csv,").append(table).append('\n');
+        }
+        return csv.toString();
+    }
+
+    /**
+     * @param i
+     * @return the i-th S3 key / asset name
+     */
+    public static String key(int i) {
+        return "prefix/" + TABLES[i % TABLES.length] + "/part-" + i + ".csv";
+    }
+
+    /**
+     * @param i
+     * @return the i-th GUID
+     */
+    public static String guid(int i) {
+        Random random = new Random(i);
+        return new java.util.UUID(random.nextLong(), random.nextLong()).toString();
+    }
+
+    /**
+     * @param n
+     * @param seed
+     * @return a permutation of 0..n-1
+     */
+    public static int[] shuffled(int n, long seed) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Random random = new Random(seed);
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        return order;
+    }
+}
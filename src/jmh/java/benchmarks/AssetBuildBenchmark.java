@@ -0,0 +1,47 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building one batch of {@code batchSize} assets, and serializing it as a bulk save would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AssetBuildBenchmark {
+
+    @Param({"50"})
+    public int batchSize;
+
+    private Workloads.Assets workload;
+
+    @Setup
+    public void setUp() throws Exception {
+        workload = Workloads.load(Workloads.Assets.class, "AssetWorkload");
+        workload.setUp(batchSize);
+    }
+
+    @Benchmark
+    public Object buildS3Objects() {
+        return workload.buildS3Objects();
+    }
+
+    @Benchmark
+    public Object buildLineageProcesses() {
+        return workload.buildLineageProcesses();
+    }
+
+    @Benchmark
+    public int serializeS3Objects() {
+        return workload.serializeS3Objects();
+    }
+}
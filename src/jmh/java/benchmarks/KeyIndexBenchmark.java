@@ -0,0 +1,71 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups in the local indexes the tools consult instead of calling Atlan, each holding {@code keys} entries.
+ * Every invocation looks up the next key of a shuffled sequence, half of them absent, so lookups miss the
+ * CPU caches as they would on a real catalog.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class KeyIndexBenchmark {
+
+    @Param({"1000000"})
+    public int keys;
+
+    private Workloads.KeyIndex workload;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        workload = Workloads.load(Workloads.KeyIndex.class, "KeyIndexWorkload");
+        workload.setUp(keys);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        workload.tearDown();
+    }
+
+    @Benchmark
+    public boolean compactKeySetContains() {
+        return workload.compactKeySetContains(next++);
+    }
+
+    @Benchmark
+    public boolean hashSetContains() {
+        return workload.hashSetContains(next++);
+    }
+
+    @Benchmark
+    public Object snapshotFindByGuid() {
+        return workload.snapshotFindByGuid(next++);
+    }
+
+    @Benchmark
+    public Object nameIndexPrefix() {
+        return workload.nameIndexPrefix(next++);
+    }
+
+    @Benchmark
+    public Object nameIndexFuzzy() {
+        return workload.nameIndexFuzzy(next++);
+    }
+
+    @Benchmark
+    public boolean lineageIndexExists() {
+        return workload.lineageIndexExists(next++);
+    }
+}
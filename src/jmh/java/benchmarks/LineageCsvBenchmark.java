@@ -0,0 +1,42 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing a synthetic lineage CSV of {@code rows} three-hop chains.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LineageCsvBenchmark {
+
+    @Param({"100000"})
+    public int rows;
+
+    private Workloads.LineageCsv workload;
+
+    @Setup
+    public void setUp() throws Exception {
+        workload = Workloads.load(Workloads.LineageCsv.class, "LineageCsvWorkload");
+        workload.setUp(rows);
+    }
+
+    @Benchmark
+    public int csvReader() throws Exception {
+        return workload.readCsv();
+    }
+
+    @Benchmark
+    public int splitLines() throws Exception {
+        return workload.splitLines();
+    }
+}
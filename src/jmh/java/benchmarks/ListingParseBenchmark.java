@@ -0,0 +1,42 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing a synthetic S3 bucket listing of {@code objects} entries: streaming (StAX) vs. a DOM of the whole file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ListingParseBenchmark {
+
+    @Param({"10000"})
+    public int objects;
+
+    private Workloads.Listing workload;
+
+    @Setup
+    public void setUp() throws Exception {
+        workload = Workloads.load(Workloads.Listing.class, "ListingWorkload");
+        workload.setUp(objects);
+    }
+
+    @Benchmark
+    public int streaming() throws Exception {
+        return workload.parseStreaming();
+    }
+
+    @Benchmark
+    public int dom() throws Exception {
+        return workload.parseDom();
+    }
+}
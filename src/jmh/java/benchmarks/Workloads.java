@@ -0,0 +1,89 @@
+package benchmarks;
+
+/**
+ * The tools live in the default package, which JMH benchmarks (always in a named package) cannot import.
+ * Each benchmark drives its workload through an interface of this package instead; the implementation, in the
+ * default package next to the tools, is loaded by name once per trial, and the single implementation keeps
+ * every call monomorphic, so it is inlined like a direct call.
+ */
+public final class Workloads {
+
+    private Workloads() {
+    }
+
+    /**
+     * @param type workload interface
+     * @param implementation class name of its implementation in the default package
+     * @return a new instance of the implementation
+     */
+    public static <T> T load(Class<T> type, String implementation) {
+        try {
+            return type.cast(Class.forName(implementation).getDeclaredConstructor().newInstance());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot load workload " + implementation, e);
+        }
+    }
+
+    /**
+     * Parsing an S3 bucket listing.
+     */
+    public interface Listing {
+        void setUp(int objects) throws Exception;
+
+        /** @return number of entries read by the streaming reader used by AtlanAssetCreator */
+        int parseStreaming() throws Exception;
+
+        /** @return number of entries read by building a DOM of the whole listing, as the tool originally did */
+        int parseDom() throws Exception;
+    }
+
+    /**
+     * Parsing the lineage CSV.
+     */
+    public interface LineageCsv {
+        void setUp(int rows) throws Exception;
+
+        /** @return number of fields read by the RFC 4180 reader used by AtlanLineageCreator */
+        int readCsv() throws Exception;
+
+        /** @return number of fields read by splitting lines on commas, as the tool originally did */
+        int splitLines() throws Exception;
+    }
+
+    /**
+     * Building and serializing the assets the tools save.
+     */
+    public interface Assets {
+        void setUp(int batchSize) throws Exception;
+
+        /** @return the batch of S3 objects */
+        Object buildS3Objects();
+
+        /** @return the batch of lineage processes */
+        Object buildLineageProcesses();
+
+        /** @return number of characters of the serialized batch of S3 objects */
+        int serializeS3Objects();
+    }
+
+    /**
+     * Lookups in the local key indexes.
+     */
+    public interface KeyIndex {
+        void setUp(int keys) throws Exception;
+
+        void tearDown() throws Exception;
+
+        boolean compactKeySetContains(int i);
+
+        boolean hashSetContains(int i);
+
+        Object snapshotFindByGuid(int i);
+
+        Object nameIndexPrefix(int i);
+
+        Object nameIndexFuzzy(int i);
+
+        boolean lineageIndexExists(int i);
+    }
+}
@@ -0,0 +1,279 @@
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end load test: starts an {@link AtlanStandIn}, seeds it with the connections and tables the tools expect,
+ * generates a listing and a lineage CSV of the configured size, then runs the asset creator, the lineage creator
+ * and the purger against it one after the other. Each tool runs in its own JVM, exactly as it would in
+ * production, since the tools read their connection settings when their classes load.
+ * <p>
+ * Reports, per tool: elapsed time, assets created or deleted per second, and requests, throttled requests and
+ * latency percentiles per endpoint. The report is logged and written to report.csv in the work directory.
+ */
+public class AtlanLoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(AtlanLoadTest.class);
+
+    // Size of the run: S3 objects in the listing, and lineage rows (and seeded tables per SQL connection)
+    public static final int OBJECTS = AtlanSettings.getInt("ATLAN_LOADTEST_OBJECTS", 50000);
+    public static final int TABLES = AtlanSettings.getInt("ATLAN_LOADTEST_LINEAGE_ROWS", 5000);
+    // Tools to run, in order: creator, lineage, purger (or class names)
+    public static final String TOOLS = AtlanSettings.get("ATLAN_LOADTEST_TOOLS", "creator,lineage,purger");
+    // Inputs, tool state, tool logs and the report
+    public static final String WORK_DIR = AtlanSettings.get("ATLAN_LOADTEST_DIR", "build/loadtest");
+    public static final int THREADS = AtlanSettings.getInt("ATLAN_LOADTEST_THREADS", 32);
+    public static final int TIMEOUT_MINUTES = AtlanSettings.getInt("ATLAN_LOADTEST_TIMEOUT_MINUTES", 60);
+    public static final String TOOL_JVM_ARGS = AtlanSettings.get("ATLAN_LOADTEST_JVM_ARGS", "-Xmx2g");
+
+    // Faults injected by the stand-in
+    public static final int LATENCY_MILLIS = AtlanSettings.getInt("ATLAN_LOADTEST_LATENCY_MILLIS", 20);
+    public static final int MUTATION_LATENCY_MILLIS = AtlanSettings.getInt("ATLAN_LOADTEST_MUTATION_LATENCY_MILLIS", 100);
+    public static final int JITTER_MILLIS = AtlanSettings.getInt("ATLAN_LOADTEST_JITTER_MILLIS", 20);
+    public static final double THROTTLE_PERCENT = Double.parseDouble(AtlanSettings.get("ATLAN_LOADTEST_THROTTLE_PERCENT", "1"));
+    public static final int MAX_REQUESTS_PER_SECOND = AtlanSettings.getInt("ATLAN_LOADTEST_MAX_RPS", 0);
+    public static final int INDEX_LAG_MILLIS = AtlanSettings.getInt("ATLAN_LOADTEST_INDEX_LAG_MILLIS", 1000);
+
+    private static final Map<String, String> TOOL_CLASSES = Map.of(
+            "creator", "AtlanAssetCreator",
+            "lineage", "AtlanLineageCreator",
+            "purger", "AtlanAssetPurger");
+
+    private static final String BUCKET = "loadtest-bucket";
+    private static final String[][] CONNECTIONS = {
+            {"s3", AtlanAssetCreator.CONNECTION_NAME, "default/s3/1700000001", "object-store"},
+            {"postgres", AtlanLineageCreator.postgresConnectionName, "default/postgres/1700000002", "database"},
+            {"snowflake", AtlanLineageCreator.snowflakeConnectionConnectionName, "default/snowflake/1700000003", "warehouse"}};
+
+    public static void main(String[] args) {
+        try {
+            Path dir = Paths.get(WORK_DIR);
+            Path state = dir.resolve("state");
+            deleteRecursively(state);
+            Files.createDirectories(state);
+            Path listing = dir.resolve("listing.xml");
+            Path lineage = dir.resolve("lineage.csv");
+            writeListing(listing, OBJECTS);
+            writeLineage(lineage, Math.min(TABLES, OBJECTS));
+            logger.info("Generated {} S3 objects in {} and {} lineage rows in {}", OBJECTS, listing, Math.min(TABLES, OBJECTS), lineage);
+
+            List<Result> results = new ArrayList<>();
+            try (AtlanStandIn standIn = new AtlanStandIn(0, THREADS, faults())) {
+                seed(standIn.getCatalog(), TABLES);
+                for (String tool : TOOLS.split(",")) {
+                    String mainClass = TOOL_CLASSES.getOrDefault(tool.trim(), tool.trim());
+                    Map<String, String> env = new TreeMap<>();
+                    env.put("ATLAN_STATE_DIR", state.toString());
+                    env.put("ATLAN_LISTING_PATH", listing.toString());
+                    env.put("ATLAN_LINEAGE_PATH", lineage.toString());
+                    env.put("ATLAN_LINEAGE_REJECT_FILE", state.resolve("lineage-rejects.csv").toString());
+                    env.put("ATLAN_PURGE_CONNECTION", "s3:" + AtlanAssetCreator.CONNECTION_NAME);
+                    env.put("ATLAN_PURGE_DRY_RUN", "false");
+                    results.add(run(standIn, mainClass, env, dir.resolve(tool.trim() + ".log")));
+                }
+            }
+            report(results, dir.resolve("report.csv"));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return the faults configured for the stand-in
+     */
+    static AtlanStandIn.Faults faults() {
+        return new AtlanStandIn.Faults(LATENCY_MILLIS, MUTATION_LATENCY_MILLIS, JITTER_MILLIS, THROTTLE_PERCENT,
+                MAX_REQUESTS_PER_SECOND, INDEX_LAG_MILLIS);
+    }
+
+    /**
+     * Create the connections the tools look up, and the tables the lineage CSV names in each SQL connection
+     * @param catalog
+     * @param tables tables per SQL connection
+     */
+    static void seed(StandInCatalog catalog, int tables) {
+        JsonNodeFactory json = JsonNodeFactory.instance;
+        ArrayNode connections = json.arrayNode();
+        for (String[] connection : CONNECTIONS) {
+            ObjectNode entity = connections.addObject().put("typeName", "Connection");
+            entity.putObject("attributes")
+                    .put("name", connection[1])
+                    .put("qualifiedName", connection[2])
+                    .put("connectorName", connection[0])
+                    .put("category", connection[3]);
+        }
+        catalog.save(connections);
+        for (String[] connection : CONNECTIONS) {
+            if ("s3".equals(connection[0])) {
+                continue;
+            }
+            ArrayNode batch = json.arrayNode();
+            for (int i = 0; i < tables; i++) {
+                ObjectNode entity = batch.addObject().put("typeName", "Table");
+                entity.putObject("attributes")
+                        .put("name", table(i))
+                        .put("qualifiedName", connection[2] + "/LOADTEST/PUBLIC/" + table(i))
+                        .put("connectionQualifiedName", connection[2])
+                        .put("connectorName", connection[0]);
+            }
+            catalog.save(batch);
+        }
+        catalog.flush();
+    }
+
+    /**
+     * Run one tool in its own JVM against the stand-in, and measure it
+     * @param standIn
+     * @param mainClass tool to run
+     * @param env settings of the tool, on top of those inherited from this process
+     * @param log file receiving the output of the tool
+     * @return the measurements of the run
+     * @throws Exception if the tool cannot be started or does not finish in time
+     */
+    private static Result run(AtlanStandIn standIn, String mainClass, Map<String, String> env, Path log) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        for (String arg : TOOL_JVM_ARGS.split("\\s+")) {
+            if (!arg.isEmpty()) {
+                command.add(arg);
+            }
+        }
+        // tool settings given to the harness as system properties apply to the tools as well
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("ATLAN_") && !name.startsWith("ATLAN_LOADTEST_")) {
+                command.add("-D" + name + "=" + System.getProperty(name));
+            }
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(mainClass);
+
+        ProcessBuilder builder = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile());
+        builder.environment().putAll(env);
+        builder.environment().put("ATLAN_BASE_URL", standIn.getBaseUrl());
+        builder.environment().put("ATLAN_API_KEY", "loadtest");
+
+        standIn.resetStats();
+        Map<String, Integer> before = standIn.getCatalog().countByType();
+        logger.info("Running {} (output in {})", mainClass, log);
+        long started = System.nanoTime();
+        Process process = builder.start();
+        if (!process.waitFor(TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+            process.destroyForcibly();
+            throw new IllegalStateException(mainClass + " did not finish within " + TIMEOUT_MINUTES + " minutes, see " + log);
+        }
+        double seconds = Math.max(1e-3, (System.nanoTime() - started) / 1e9);
+        Map<String, Integer> after = standIn.getCatalog().countByType();
+
+        Map<String, Integer> changed = new TreeMap<>();
+        Set<String> types = new HashSet<>(before.keySet());
+        types.addAll(after.keySet());
+        for (String type : types) {
+            int delta = after.getOrDefault(type, 0) - before.getOrDefault(type, 0);
+            if (delta != 0) {
+                changed.put(type, delta);
+            }
+        }
+        if (process.exitValue() != 0) {
+            logger.warn("{} exited with {}, see {}", mainClass, process.exitValue(), log);
+        }
+        return new Result(mainClass, seconds, changed, new ArrayList<>(standIn.getStats().values()));
+    }
+
+    private static void report(List<Result> results, Path file) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            out.println("tool,seconds,assets_changed,assets_per_second,endpoint,requests,throttled,errors,p50_ms,p95_ms,p99_ms");
+            for (Result result : results) {
+                long assets = result.changed.values().stream().mapToLong(Math::abs).sum();
+                double perSecond = assets / result.seconds;
+                logger.info("{}: {} s, assets changed {} ({} assets/s)", result.tool, String.format("%.1f", result.seconds),
+                        result.changed, String.format("%.1f", perSecond));
+                result.endpoints.sort(Comparator.comparing(AtlanStandIn.EndpointStats::getName));
+                for (AtlanStandIn.EndpointStats endpoint : result.endpoints) {
+                    logger.info("  {}: {} requests, {} throttled, {} errors, p50 {} ms, p95 {} ms, p99 {} ms", endpoint.getName(),
+                            endpoint.getRequestCount(), endpoint.getThrottledCount(), endpoint.getErrorCount(),
+                            String.format("%.1f", endpoint.getLatencyMillis(50)), String.format("%.1f", endpoint.getLatencyMillis(95)),
+                            String.format("%.1f", endpoint.getLatencyMillis(99)));
+                    out.printf("%s,%.3f,%d,%.1f,%s,%d,%d,%d,%.1f,%.1f,%.1f%n", result.tool, result.seconds, assets, perSecond,
+                            endpoint.getName(), endpoint.getRequestCount(), endpoint.getThrottledCount(), endpoint.getErrorCount(),
+                            endpoint.getLatencyMillis(50), endpoint.getLatencyMillis(95), endpoint.getLatencyMillis(99));
+                }
+            }
+        }
+        logger.info("Report written to {}", file);
+    }
+
+    private static void writeListing(Path file, int objects) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("<ListBucketResult>\n    <Name>" + BUCKET + "</Name>\n    <IsTruncated>false</IsTruncated>\n");
+            for (int i = 0; i < objects; i++) {
+                out.write("    <Contents>\n        <Key>" + key(i) + "</Key>\n"
+                        + "        <LastModified>2023-12-13T05:25:17.000Z</LastModified>\n"
+                        + "        <ETag>\"" + String.format("%032x", (long) i * 0x9E3779B97F4A7C15L) + "\"</ETag>\n"
+                        + "        <Size>" + (1000 + i % 100000) + "</Size>\n"
+                        + "        <StorageClass>STANDARD</StorageClass>\n    </Contents>\n");
+            }
+            out.write("</ListBucketResult>\n");
+        }
+    }
+
+    private static void writeLineage(Path file, int rows) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < rows; i++) {
+                out.write(table(i) + "," + key(i) + "," + table(i) + "\n");
+            }
+        }
+    }
+
+    private static String key(int i) {
+        return "loadtest/part-" + i + ".csv";
+    }
+
+    private static String table(int i) {
+        return "TABLE_" + i;
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private static final class Result {
+        private final String tool;
+        private final double seconds;
+        private final Map<String, Integer> changed;
+        private final List<AtlanStandIn.EndpointStats> endpoints;
+
+        private Result(String tool, double seconds, Map<String, Integer> changed, List<AtlanStandIn.EndpointStats> endpoints) {
+            this.tool = tool;
+            this.seconds = seconds;
+            this.changed = changed;
+            this.endpoints = endpoints;
+        }
+    }
+}
@@ -0,0 +1,343 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the Atlan REST endpoints the tools call: index search, bulk save, bulk delete, get by GUID
+ * and lineage list, over a {@link StandInCatalog}. Faults of a real tenant can be injected: latency, throttling
+ * (HTTP 429, randomly and/or above a request rate) and search index lag. Every request is counted and timed
+ * per endpoint.
+ */
+public class AtlanStandIn implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AtlanStandIn.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final StandInCatalog catalog;
+    private final Faults faults;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+
+    // requests of the current second, for the rate limit
+    private final AtomicLong rateWindow = new AtomicLong();
+    private final AtomicInteger rateCount = new AtomicInteger();
+
+    /**
+     * Start the stand-in
+     * @param port port to listen on, on the loopback interface; 0 for any free port
+     * @param threads requests handled at the same time
+     * @param faults faults to inject
+     * @throws IOException if the port cannot be bound
+     */
+    public AtlanStandIn(int port, int threads, Faults faults) throws IOException {
+        this.catalog = new StandInCatalog(faults.indexLagMillis);
+        this.faults = faults;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        this.executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        logger.info("Atlan stand-in listening on {} with {}", getBaseUrl(), faults);
+    }
+
+    /**
+     * @return base URL to point the tools at (ATLAN_BASE_URL)
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public StandInCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * @return statistics per endpoint, by endpoint name
+     */
+    public Map<String, EndpointStats> getStats() {
+        return stats;
+    }
+
+    /**
+     * Forget the statistics collected so far, e.g. between two measured runs
+     */
+    public void resetStats() {
+        stats.clear();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long started = System.nanoTime();
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        String endpoint = endpoint(method, path);
+        EndpointStats endpointStats = stats.computeIfAbsent(endpoint, EndpointStats::new);
+        int status;
+        try {
+            byte[] body = readAll(exchange.getRequestBody());
+            sleep(endpoint);
+            if (throttled()) {
+                status = 429;
+                respond(exchange, status, error("ATLAN-JAVA-429-000-000", "Rate limit exceeded"));
+            } else {
+                status = 200;
+                ObjectNode response = dispatch(endpoint, path, exchange.getRequestURI().getRawQuery(), body);
+                if (response == null) {
+                    status = 404;
+                    response = error("ATLAS-404-00-005", "Given instance guid " + path.substring(path.lastIndexOf('/') + 1) + " is invalid/not found");
+                } else if (response.has("errorCode")) {
+                    status = 404;
+                }
+                respond(exchange, status, response);
+            }
+        } catch (Exception e) {
+            logger.error("Stand-in failed on {} {}", method, path, e);
+            status = 500;
+            respond(exchange, status, error("ATLAS-500-00-001", String.valueOf(e.getMessage())));
+        }
+        endpointStats.record(status, System.nanoTime() - started);
+    }
+
+    private ObjectNode dispatch(String endpoint, String path, String query, byte[] body) throws IOException {
+        switch (endpoint) {
+            case "search":
+                return catalog.search(MAPPER.readTree(body));
+            case "save":
+                return catalog.save(MAPPER.readTree(body).path("entities"));
+            case "delete":
+                List<String> guids = new ArrayList<>();
+                String deleteType = "SOFT";
+                for (String param : query == null ? new String[0] : query.split("&")) {
+                    int equals = param.indexOf('=');
+                    String name = param.substring(0, Math.max(0, equals));
+                    String value = URLDecoder.decode(param.substring(equals + 1), StandardCharsets.UTF_8);
+                    if ("guid".equals(name)) {
+                        guids.add(value);
+                    } else if ("deleteType".equals(name)) {
+                        deleteType = value;
+                    }
+                }
+                return catalog.delete(guids, deleteType);
+            case "get":
+                ObjectNode entity = catalog.get(path.substring(path.lastIndexOf('/') + 1));
+                if (entity == null) {
+                    return null;
+                }
+                ObjectNode response = MAPPER.createObjectNode();
+                response.set("entity", entity);
+                response.putObject("referredEntities");
+                return response;
+            case "lineage":
+                return catalog.lineage(MAPPER.readTree(body));
+            default:
+                return error("ATLAS-404-00-001", "Endpoint not implemented by the stand-in: " + path);
+        }
+    }
+
+    /**
+     * @return name of the endpoint a request is for, "other" for those the stand-in does not implement
+     */
+    private static String endpoint(String method, String path) {
+        if (path.endsWith("/search/indexsearch")) {
+            return "search";
+        } else if (path.endsWith("/entity/bulk")) {
+            return "DELETE".equals(method) ? "delete" : "save";
+        } else if (path.contains("/entity/guid/") && "GET".equals(method)) {
+            return "get";
+        } else if (path.endsWith("/lineage/list")) {
+            return "lineage";
+        }
+        return "other";
+    }
+
+    private void sleep(String endpoint) throws InterruptedException {
+        long millis = "save".equals(endpoint) || "delete".equals(endpoint) ? faults.mutationLatencyMillis : faults.latencyMillis;
+        if (faults.jitterMillis > 0) {
+            millis += ThreadLocalRandom.current().nextLong(faults.jitterMillis + 1);
+        }
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+
+    private boolean throttled() {
+        if (faults.throttlePercent > 0 && ThreadLocalRandom.current().nextDouble(100) < faults.throttlePercent) {
+            return true;
+        }
+        if (faults.maxRequestsPerSecond > 0) {
+            long second = System.currentTimeMillis() / 1000;
+            long window = rateWindow.get();
+            if (window != second && rateWindow.compareAndSet(window, second)) {
+                rateCount.set(0);
+            }
+            return rateCount.incrementAndGet() > faults.maxRequestsPerSecond;
+        }
+        return false;
+    }
+
+    private static ObjectNode error(String code, String message) {
+        ObjectNode error = MAPPER.createObjectNode();
+        error.put("errorCode", code);
+        error.put("errorMessage", message);
+        return error;
+    }
+
+    private static void respond(HttpExchange exchange, int status, ObjectNode body) throws IOException {
+        byte[] bytes = MAPPER.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (in) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Faults injected into every request.
+     */
+    public static final class Faults {
+        private final long latencyMillis;
+        private final long mutationLatencyMillis;
+        private final long jitterMillis;
+        private final double throttlePercent;
+        private final int maxRequestsPerSecond;
+        private final long indexLagMillis;
+
+        /**
+         * @param latencyMillis added to every search, get and lineage request
+         * @param mutationLatencyMillis added to every save and delete request
+         * @param jitterMillis up to this much more, at random
+         * @param throttlePercent share of requests answered with 429, at random
+         * @param maxRequestsPerSecond requests above this rate in a second are answered with 429; 0 for no limit
+         * @param indexLagMillis delay before a mutation is visible to search
+         */
+        public Faults(long latencyMillis, long mutationLatencyMillis, long jitterMillis, double throttlePercent,
+                      int maxRequestsPerSecond, long indexLagMillis) {
+            this.latencyMillis = latencyMillis;
+            this.mutationLatencyMillis = mutationLatencyMillis;
+            this.jitterMillis = jitterMillis;
+            this.throttlePercent = throttlePercent;
+            this.maxRequestsPerSecond = maxRequestsPerSecond;
+            this.indexLagMillis = indexLagMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "latency " + latencyMillis + " ms (mutations " + mutationLatencyMillis + " ms) + up to " + jitterMillis
+                    + " ms, " + throttlePercent + "% throttled, max " + (maxRequestsPerSecond > 0 ? maxRequestsPerSecond : "unlimited")
+                    + " req/s, index lag " + indexLagMillis + " ms";
+        }
+    }
+
+    /**
+     * Request count, throttled count and latencies of one endpoint, as seen by the server.
+     */
+    public static final class EndpointStats {
+        private final String name;
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong throttled = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private long[] latencies = new long[1024];
+        private int latencyCount;
+
+        private EndpointStats(String name) {
+            this.name = name;
+        }
+
+        private void record(int status, long nanos) {
+            requests.incrementAndGet();
+            if (status == 429) {
+                throttled.incrementAndGet();
+            } else if (status >= 400) {
+                errors.incrementAndGet();
+            }
+            synchronized (this) {
+                if (latencyCount == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, latencies.length * 2);
+                }
+                latencies[latencyCount++] = nanos;
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getRequestCount() {
+            return requests.get();
+        }
+
+        public long getThrottledCount() {
+            return throttled.get();
+        }
+
+        /**
+         * @return requests answered with an error other than 429
+         */
+        public long getErrorCount() {
+            return errors.get();
+        }
+
+        /**
+         * @param percentile between 0 and 100
+         * @return latency at that percentile, in milliseconds
+         */
+        public synchronized double getLatencyMillis(double percentile) {
+            if (latencyCount == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(latencies, latencyCount);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+        }
+    }
+
+    /**
+     * Run the stand-in on its own, to point a tool at it by hand
+     * @param args port (default 8080)
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        try (AtlanStandIn standIn = new AtlanStandIn(port, 32, AtlanLoadTest.faults())) {
+            AtlanLoadTest.seed(standIn.getCatalog(), AtlanLoadTest.TABLES);
+            logger.info("Seeded connections and {} tables; Ctrl+C to stop", AtlanLoadTest.TABLES);
+            Thread.sleep(TimeUnit.DAYS.toMillis(365));
+        }
+    }
+}
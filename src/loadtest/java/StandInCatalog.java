@@ -0,0 +1,584 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * In-memory catalog behind {@link AtlanStandIn}: entities as Atlan returns them, a search view that trails
+ * mutations by a configurable index lag (as Elasticsearch trails the graph store), an evaluator for the subset of
+ * the search DSL the tools send, and downstream lineage over the saved processes.
+ * <p>
+ * All methods are synchronized: the stand-in measures the tools, not its own concurrency.
+ */
+public class StandInCatalog {
+
+    private static final JsonNodeFactory JSON = JsonNodeFactory.instance;
+
+    // super types the tools search by, per type
+    private static final Map<String, List<String>> SUPER_TYPES = Map.of(
+            "S3Bucket", List.of("S3", "ObjectStore", "Catalog", "Asset", "Referenceable"),
+            "S3Object", List.of("S3", "ObjectStore", "Catalog", "Asset", "Referenceable"),
+            "Table", List.of("SQL", "Catalog", "Asset", "Referenceable"),
+            "View", List.of("SQL", "Catalog", "Asset", "Referenceable"),
+            "Process", List.of("Catalog", "Asset", "Referenceable"),
+            "Connection", List.of("Asset", "Referenceable"));
+
+    private final long indexLagMillis;
+
+    // the graph store: what GET and lineage see immediately
+    private final Map<String, ObjectNode> entities = new LinkedHashMap<>();
+    private final Map<String, String> guidsByKey = new HashMap<>();
+    private final Map<String, Set<String>> processesByInput = new HashMap<>();
+
+    // the search index: what search sees, once the lag has passed
+    private final Map<String, ObjectNode> searchable = new LinkedHashMap<>();
+    private final Map<String, Set<String>> searchableByName = new HashMap<>();
+    private final Map<String, Set<String>> searchableByQualifiedName = new HashMap<>();
+    private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+    private long version;
+
+    // sorted results of the last search, reused while a client pages through it and nothing changed
+    private String cachedQuery;
+    private long cachedVersion = -1;
+    private List<ObjectNode> cachedResults;
+
+    /**
+     * @param indexLagMillis how long mutations take to become visible to search
+     */
+    public StandInCatalog(long indexLagMillis) {
+        this.indexLagMillis = indexLagMillis;
+    }
+
+    /**
+     * Create or update entities, matched on type and qualified name
+     * @param requested entities of a bulk request, with attributes and (optionally) relationship attributes
+     * @return the bulk mutation response
+     */
+    public synchronized ObjectNode save(JsonNode requested) {
+        ArrayNode created = JSON.arrayNode();
+        ArrayNode updated = JSON.arrayNode();
+        ObjectNode assignments = JSON.objectNode();
+        long now = System.currentTimeMillis();
+        for (JsonNode entity : requested) {
+            String typeName = entity.path("typeName").asText();
+            ObjectNode attributes = JSON.objectNode();
+            if (entity.has("attributes")) {
+                attributes.setAll((ObjectNode) entity.get("attributes"));
+            }
+            if (entity.has("relationshipAttributes")) {
+                attributes.setAll((ObjectNode) entity.get("relationshipAttributes"));
+            }
+            String qualifiedName = attributes.path("qualifiedName").asText();
+            String key = typeName + "/" + qualifiedName;
+            String guid = guidsByKey.get(key);
+            ObjectNode stored = guid == null ? null : entities.get(guid);
+            if (stored == null) {
+                guid = UUID.randomUUID().toString();
+                stored = JSON.objectNode();
+                stored.put("typeName", typeName);
+                stored.put("guid", guid);
+                stored.put("createTime", now);
+                stored.put("createdBy", "loadtest");
+                stored.set("attributes", attributes);
+                entities.put(guid, stored);
+                guidsByKey.put(key, guid);
+                created.add(header(stored));
+            } else {
+                ((ObjectNode) stored.get("attributes")).setAll(attributes);
+                updated.add(header(stored));
+            }
+            stored.put("status", "ACTIVE");
+            stored.put("updateTime", now);
+            stored.put("updatedBy", "loadtest");
+            if (entity.has("guid")) {
+                assignments.put(entity.get("guid").asText(), guid);
+            }
+            if ("Process".equals(typeName)) {
+                for (String input : references(stored.get("attributes").get("inputs"))) {
+                    processesByInput.computeIfAbsent(input, k -> new LinkedHashSet<>()).add(guid);
+                }
+            }
+            publish(guid, stored.deepCopy(), now);
+        }
+        ObjectNode mutated = JSON.objectNode();
+        if (created.size() > 0) {
+            mutated.set("CREATE", created);
+        }
+        if (updated.size() > 0) {
+            mutated.set("UPDATE", updated);
+        }
+        ObjectNode response = JSON.objectNode();
+        response.set("mutatedEntities", mutated);
+        response.set("guidAssignments", assignments);
+        return response;
+    }
+
+    /**
+     * Delete entities by GUID
+     * @param guids
+     * @param deleteType SOFT marks them DELETED (archived), HARD and PURGE remove them
+     * @return the bulk mutation response, listing only the entities actually deleted
+     */
+    public synchronized ObjectNode delete(Collection<String> guids, String deleteType) {
+        ArrayNode deleted = JSON.arrayNode();
+        long now = System.currentTimeMillis();
+        boolean soft = !"HARD".equalsIgnoreCase(deleteType) && !"PURGE".equalsIgnoreCase(deleteType);
+        for (String guid : guids) {
+            ObjectNode stored = entities.get(guid);
+            if (stored == null || (soft && "DELETED".equals(stored.path("status").asText()))) {
+                continue;
+            }
+            stored.put("status", "DELETED");
+            stored.put("updateTime", now);
+            deleted.add(header(stored));
+            if (soft) {
+                publish(guid, stored.deepCopy(), now);
+            } else {
+                entities.remove(guid);
+                guidsByKey.remove(stored.path("typeName").asText() + "/" + stored.path("attributes").path("qualifiedName").asText());
+                publish(guid, null, now);
+            }
+        }
+        ObjectNode mutated = JSON.objectNode();
+        if (deleted.size() > 0) {
+            mutated.set("DELETE", deleted);
+        }
+        ObjectNode response = JSON.objectNode();
+        response.set("mutatedEntities", mutated);
+        return response;
+    }
+
+    /**
+     * @param guid
+     * @return the entity, or null if there is none
+     */
+    public synchronized ObjectNode get(String guid) {
+        ObjectNode stored = entities.get(guid);
+        return stored == null ? null : stored.deepCopy();
+    }
+
+    /**
+     * Run an index search
+     * @param request the search request, its {@code dsl} holding query, sort, from and size
+     * @return the search response
+     */
+    public synchronized ObjectNode search(JsonNode request) {
+        applyDue(System.currentTimeMillis());
+        JsonNode dsl = request.path("dsl");
+        JsonNode query = dsl.path("query");
+        JsonNode sort = dsl.path("sort");
+        String cacheKey = query.toString() + "|" + sort;
+        if (!cacheKey.equals(cachedQuery) || cachedVersion != version) {
+            List<ObjectNode> results = new ArrayList<>();
+            for (ObjectNode entity : candidates(query)) {
+                if (matches(entity, query)) {
+                    results.add(entity);
+                }
+            }
+            Comparator<ObjectNode> order = order(sort);
+            if (order != null) {
+                results.sort(order);
+            }
+            cachedQuery = cacheKey;
+            cachedVersion = version;
+            cachedResults = results;
+        }
+        int from = dsl.path("from").asInt(0);
+        int size = dsl.path("size").asInt(100);
+        ArrayNode page = JSON.arrayNode();
+        for (int i = from; i < Math.min(cachedResults.size(), from + size); i++) {
+            page.add(cachedResults.get(i));
+        }
+        ObjectNode response = JSON.objectNode();
+        response.put("queryType", "INDEX");
+        response.put("approximateCount", cachedResults.size());
+        response.set("entities", page);
+        return response;
+    }
+
+    /**
+     * List the lineage of an asset, breadth first: processes reading it, their outputs, and so on
+     * @param request lineage list request: guid, direction, depth, from and size
+     * @return the lineage list response
+     */
+    public synchronized ObjectNode lineage(JsonNode request) {
+        String start = request.path("guid").asText();
+        int depth = request.path("depth").asInt(1000000);
+        boolean downstream = !request.path("direction").asText("DOWNSTREAM").toUpperCase().startsWith("UP");
+        Set<String> visited = new LinkedHashSet<>();
+        List<String> frontier = List.of(start);
+        for (int hop = 0; hop < depth && !frontier.isEmpty(); hop++) {
+            List<String> next = new ArrayList<>();
+            for (String guid : frontier) {
+                for (String neighbour : neighbours(guid, downstream)) {
+                    if (!neighbour.equals(start) && visited.add(neighbour)) {
+                        next.add(neighbour);
+                    }
+                }
+            }
+            frontier = next;
+        }
+        int from = request.path("from").asInt(0);
+        int size = request.path("size").asInt(10);
+        ArrayNode page = JSON.arrayNode();
+        Iterator<String> it = visited.iterator();
+        for (int i = 0; it.hasNext() && i < from + size; i++) {
+            String guid = it.next();
+            if (i >= from && entities.containsKey(guid)) {
+                page.add(entities.get(guid).deepCopy());
+            }
+        }
+        ObjectNode response = JSON.objectNode();
+        response.set("entities", page);
+        response.put("entityCount", visited.size());
+        response.put("hasMore", from + size < visited.size());
+        return response;
+    }
+
+    /**
+     * Make every mutation so far visible to search, regardless of the index lag, e.g. after seeding
+     */
+    public synchronized void flush() {
+        applyDue(Long.MAX_VALUE);
+    }
+
+    /**
+     * @return number of entities per type, of those not deleted
+     */
+    public synchronized Map<String, Integer> countByType() {
+        Map<String, Integer> counts = new java.util.TreeMap<>();
+        for (ObjectNode entity : entities.values()) {
+            if ("ACTIVE".equals(entity.path("status").asText())) {
+                counts.merge(entity.path("typeName").asText(), 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    private List<String> neighbours(String guid, boolean downstream) {
+        List<String> found = new ArrayList<>();
+        ObjectNode entity = entities.get(guid);
+        if (entity == null) {
+            return found;
+        }
+        if ("Process".equals(entity.path("typeName").asText())) {
+            found.addAll(references(entity.path("attributes").get(downstream ? "outputs" : "inputs")));
+        } else if (downstream) {
+            found.addAll(processesByInput.getOrDefault(guid, Set.of()));
+        } else {
+            for (ObjectNode candidate : entities.values()) {
+                if ("Process".equals(candidate.path("typeName").asText())
+                        && references(candidate.path("attributes").get("outputs")).contains(guid)) {
+                    found.add(candidate.path("guid").asText());
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return GUIDs of the assets referenced by a relationship attribute, by GUID or by type and qualified name
+     */
+    private List<String> references(JsonNode refs) {
+        List<String> guids = new ArrayList<>();
+        if (refs == null || !refs.isArray()) {
+            return guids;
+        }
+        for (JsonNode ref : refs) {
+            String guid = ref.path("guid").asText(null);
+            if (guid == null || guid.startsWith("-")) {
+                guid = guidsByKey.get(ref.path("typeName").asText() + "/" + ref.path("uniqueAttributes").path("qualifiedName").asText());
+            }
+            if (guid != null) {
+                guids.add(guid);
+            }
+        }
+        return guids;
+    }
+
+    private void publish(String guid, ObjectNode snapshot, long now) {
+        pending.add(new Pending(now + indexLagMillis, guid, snapshot));
+        if (indexLagMillis <= 0) {
+            applyDue(now);
+        }
+    }
+
+    private void applyDue(long now) {
+        while (!pending.isEmpty() && pending.peek().visibleAt <= now) {
+            Pending change = pending.poll();
+            ObjectNode previous = change.snapshot == null ? searchable.remove(change.guid) : searchable.put(change.guid, change.snapshot);
+            if (previous != null) {
+                unindex(searchableByName, previous.path("attributes").path("name").asText(), change.guid);
+                unindex(searchableByQualifiedName, previous.path("attributes").path("qualifiedName").asText(), change.guid);
+            }
+            if (change.snapshot != null) {
+                searchableByName.computeIfAbsent(change.snapshot.path("attributes").path("name").asText(), k -> new HashSet<>()).add(change.guid);
+                searchableByQualifiedName.computeIfAbsent(change.snapshot.path("attributes").path("qualifiedName").asText(), k -> new HashSet<>()).add(change.guid);
+            }
+            version++;
+        }
+    }
+
+    private static void unindex(Map<String, Set<String>> index, String value, String guid) {
+        Set<String> guids = index.get(value);
+        if (guids != null) {
+            guids.remove(guid);
+            if (guids.isEmpty()) {
+                index.remove(value);
+            }
+        }
+    }
+
+    /**
+     * Entities that may match: narrowed through the name or qualified name index when the query requires
+     * an exact value of either, otherwise every searchable entity.
+     */
+    private Collection<ObjectNode> candidates(JsonNode query) {
+        JsonNode bool = query.path("bool");
+        for (String clause : new String[]{"filter", "must"}) {
+            for (JsonNode condition : bool.path(clause)) {
+                for (String kind : new String[]{"term", "terms"}) {
+                    JsonNode spec = condition.get(kind);
+                    if (spec == null || !spec.isObject() || spec.size() == 0) {
+                        continue;
+                    }
+                    String field = baseField(spec.fieldNames().next());
+                    Map<String, Set<String>> index = "name".equals(field) ? searchableByName
+                            : "qualifiedName".equals(field) ? searchableByQualifiedName : null;
+                    if (index != null) {
+                        List<ObjectNode> found = new ArrayList<>();
+                        for (String value : values(spec.elements().next())) {
+                            for (String guid : index.getOrDefault(value, Set.of())) {
+                                found.add(searchable.get(guid));
+                            }
+                        }
+                        return found;
+                    }
+                }
+            }
+            if (bool.path(clause).size() == 1 && bool.path(clause).get(0).has("bool")) {
+                return candidates(bool.path(clause).get(0));
+            }
+        }
+        return searchable.values();
+    }
+
+    private boolean matches(ObjectNode entity, JsonNode query) {
+        if (query == null || query.isMissingNode() || query.size() == 0 || query.has("match_all")) {
+            return true;
+        }
+        if (query.has("bool")) {
+            JsonNode bool = query.get("bool");
+            for (JsonNode must : concat(bool.path("must"), bool.path("filter"))) {
+                if (!matches(entity, must)) {
+                    return false;
+                }
+            }
+            for (JsonNode mustNot : asList(bool.path("must_not"))) {
+                if (matches(entity, mustNot)) {
+                    return false;
+                }
+            }
+            List<JsonNode> should = asList(bool.path("should"));
+            if (!should.isEmpty()) {
+                int required = bool.path("minimum_should_match").asInt(1);
+                int matched = 0;
+                for (JsonNode option : should) {
+                    if (matches(entity, option)) {
+                        matched++;
+                    }
+                }
+                return matched >= required;
+            }
+            return true;
+        }
+        String kind = query.fieldNames().next();
+        JsonNode spec = query.get(kind);
+        String field = spec.fieldNames().hasNext() ? spec.fieldNames().next() : "";
+        JsonNode condition = spec.get(field);
+        List<String> actual = fieldValues(entity, baseField(field));
+        switch (kind) {
+            case "term":
+            case "terms":
+            case "match":
+            case "match_phrase":
+                for (String expected : values(condition)) {
+                    if (actual.contains(expected)) {
+                        return true;
+                    }
+                }
+                return false;
+            case "prefix":
+                String prefix = condition.isObject() ? condition.path("value").asText() : condition.asText();
+                return actual.stream().anyMatch(v -> v.startsWith(prefix));
+            case "range":
+                for (String value : actual) {
+                    if (inRange(value, condition)) {
+                        return true;
+                    }
+                }
+                return false;
+            case "exists":
+                return !fieldValues(entity, baseField(spec.path("field").asText())).isEmpty();
+            default:
+                throw new IllegalArgumentException("Query not supported by the stand-in: " + query);
+        }
+    }
+
+    private static boolean inRange(String value, JsonNode range) {
+        double actual;
+        try {
+            actual = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        return (!range.has("gte") || actual >= range.get("gte").asDouble())
+                && (!range.has("gt") || actual > range.get("gt").asDouble())
+                && (!range.has("lte") || actual <= range.get("lte").asDouble())
+                && (!range.has("lt") || actual < range.get("lt").asDouble());
+    }
+
+    private static Comparator<ObjectNode> order(JsonNode sort) {
+        Comparator<ObjectNode> order = null;
+        for (JsonNode criterion : asList(sort)) {
+            String field = criterion.isTextual() ? criterion.asText() : criterion.fieldNames().next();
+            boolean descending = !criterion.isTextual() && "desc".equalsIgnoreCase(criterion.path(field).path("order").asText());
+            String base = baseField(field);
+            Comparator<ObjectNode> next = Comparator.comparing(e -> {
+                List<String> values = fieldValues(e, base);
+                return values.isEmpty() ? "" : values.get(0);
+            }, StandInCatalog::compareValues);
+            next = descending ? next.reversed() : next;
+            order = order == null ? next : order.thenComparing(next);
+        }
+        return order;
+    }
+
+    private static int compareValues(String a, String b) {
+        try {
+            return Long.compare(Long.parseLong(a), Long.parseLong(b));
+        } catch (NumberFormatException e) {
+            return a.compareTo(b);
+        }
+    }
+
+    private static String baseField(String field) {
+        for (String suffix : new String[]{".keyword", ".text", ".stemmed"}) {
+            if (field.endsWith(suffix)) {
+                return field.substring(0, field.length() - suffix.length());
+            }
+        }
+        return field;
+    }
+
+    private static List<String> fieldValues(ObjectNode entity, String field) {
+        List<String> values = new ArrayList<>(1);
+        switch (field) {
+            case "__guid":
+                values.add(entity.path("guid").asText());
+                break;
+            case "__typeName":
+                values.add(entity.path("typeName").asText());
+                break;
+            case "__superTypeNames":
+                values.addAll(SUPER_TYPES.getOrDefault(entity.path("typeName").asText(), List.of()));
+                break;
+            case "__state":
+                values.add(entity.path("status").asText());
+                break;
+            case "__modificationTimestamp":
+                values.add(entity.path("updateTime").asText());
+                break;
+            case "__timestamp":
+                values.add(entity.path("createTime").asText());
+                break;
+            default:
+                JsonNode value = entity.path("attributes").get(field);
+                if (value != null && !value.isNull()) {
+                    if (value.isArray()) {
+                        value.forEach(v -> values.add(v.isObject() ? v.path("guid").asText() : v.asText()));
+                    } else {
+                        values.add(value.isObject() ? value.path("guid").asText() : value.asText());
+                    }
+                }
+        }
+        return values;
+    }
+
+    /**
+     * @return the expected values of a term(s) condition, in any of its shapes
+     */
+    private static List<String> values(JsonNode condition) {
+        List<String> values = new ArrayList<>();
+        if (condition == null) {
+            return values;
+        }
+        if (condition.isArray()) {
+            condition.forEach(v -> values.add(v.asText()));
+        } else if (condition.isObject()) {
+            JsonNode value = condition.has("value") ? condition.get("value") : condition.get("query");
+            if (value != null) {
+                values.addAll(values(value));
+            }
+        } else {
+            values.add(condition.asText());
+        }
+        return values;
+    }
+
+    private static List<JsonNode> asList(JsonNode node) {
+        List<JsonNode> list = new ArrayList<>();
+        if (node == null || node.isMissingNode() || node.isNull()) {
+            return list;
+        }
+        if (node.isArray()) {
+            node.forEach(list::add);
+        } else {
+            list.add(node);
+        }
+        return list;
+    }
+
+    private static List<JsonNode> concat(JsonNode a, JsonNode b) {
+        List<JsonNode> list = asList(a);
+        list.addAll(asList(b));
+        return list;
+    }
+
+    private static ObjectNode header(ObjectNode entity) {
+        ObjectNode header = JSON.objectNode();
+        header.put("typeName", entity.path("typeName").asText());
+        header.put("guid", entity.path("guid").asText());
+        header.put("status", entity.path("status").asText("ACTIVE"));
+        ObjectNode attributes = header.putObject("attributes");
+        attributes.put("qualifiedName", entity.path("attributes").path("qualifiedName").asText());
+        attributes.put("name", entity.path("attributes").path("name").asText());
+        return header;
+    }
+
+    private static final class Pending {
+        private final long visibleAt;
+        private final String guid;
+        private final ObjectNode snapshot;
+
+        private Pending(long visibleAt, String guid, ObjectNode snapshot) {
+            this.visibleAt = visibleAt;
+            this.guid = guid;
+            this.snapshot = snapshot;
+        }
+    }
+}
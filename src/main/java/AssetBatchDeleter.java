@@ -0,0 +1,172 @@
+import com.atlan.AtlanClient;
+import com.atlan.model.assets.Asset;
+import com.atlan.model.core.AssetMutationResponse;
+import com.atlan.model.enums.AtlanDeleteType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes assets by GUID in multi-asset requests, several requests at a time, instead of one delete() per asset.
+ * A batch rejected because of its content is {@link BatchSplitter split}, so a single bad GUID cannot sink the
+ * rest of the batch.
+ */
+public class AssetBatchDeleter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AssetBatchDeleter.class);
+
+    private static final AtlanMetrics.Histogram BATCH_SIZES = AtlanMetrics.histogram("atlan_batch_size",
+            "Assets per bulk request, including retried and split batches", AtlanMetrics.SIZE_BUCKETS, "operation", "delete");
+    private static final AtlanMetrics.Counter DELETED = AtlanMetrics.counter("atlan_assets_total",
+            "Assets saved or deleted, by outcome", "operation", "delete", "outcome", "deleted");
+    private static final AtlanMetrics.Counter MISSING = AtlanMetrics.counter("atlan_assets_total",
+            "Assets saved or deleted, by outcome", "operation", "delete", "outcome", "missing");
+    private static final AtlanMetrics.Counter FAILED = AtlanMetrics.counter("atlan_assets_total",
+            "Assets saved or deleted, by outcome", "operation", "delete", "outcome", "failed");
+
+    private final BatchSplitter.Request<String> request;
+    private final AtlanDeleteType deleteType;
+    private final int batchSize;
+
+    private final AtomicLong deleted = new AtomicLong();
+    private final AtomicLong missing = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+
+    /**
+     * @param client Atlan client to delete through
+     * @param deleteType SOFT archives the assets, HARD and PURGE remove them for good
+     * @param batchSize maximum number of GUIDs per delete request
+     */
+    public AssetBatchDeleter(AtlanClient client, AtlanDeleteType deleteType, int batchSize) {
+        this(guids -> client.assets.delete(guids, deleteType), deleteType, batchSize);
+    }
+
+    AssetBatchDeleter(BatchSplitter.Request<String> request, AtlanDeleteType deleteType, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1, got: " + batchSize);
+        }
+        this.request = request;
+        this.deleteType = deleteType;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Delete every GUID, in batches sent concurrently
+     * @param name name of the run, used in log lines and thread names
+     * @param guids assets to delete
+     * @param workers delete requests in flight at the same time
+     * @param reportIntervalSeconds how often progress is logged, 0 to disable
+     * @throws Exception the first unexpected failure of a worker; failed deletions are counted, not thrown
+     */
+    public void deleteAll(String name, List<String> guids, int workers, int reportIntervalSeconds) throws Exception {
+        deleteAll(name, guids.iterator(), workers, reportIntervalSeconds);
+    }
+
+    /**
+     * Delete every GUID, in batches sent concurrently, reading the GUIDs only as fast as they are deleted
+     * @param name name of the run, used in log lines and thread names
+     * @param guids assets to delete
+     * @param workers delete requests in flight at the same time
+     * @param reportIntervalSeconds how often progress is logged, 0 to disable
+     * @throws Exception the first unexpected failure of a worker; failed deletions are counted, not thrown
+     */
+    public void deleteAll(String name, Iterator<String> guids, int workers, int reportIntervalSeconds) throws Exception {
+        long started = System.nanoTime();
+        try (Pipeline pipeline = new Pipeline(name, reportIntervalSeconds)) {
+            Pipeline.Stage<List<String>> send = pipeline.stage("delete", workers, Math.max(1, workers * 2), this::delete);
+            List<String> batch = new ArrayList<>(batchSize);
+            while (guids.hasNext()) {
+                batch.add(guids.next());
+                if (batch.size() >= batchSize) {
+                    send.put(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                send.put(batch);
+            }
+            send.finish();
+        }
+        double seconds = Math.max(1e-3, (System.nanoTime() - started) / 1e9);
+        logger.info("{}: {} {} deleted, {} already gone, {} failed, {} requests, in {} s ({} assets/s)", name, deleted.get(),
+                deleteType, missing.get(), failed.get(), requests.get(), String.format("%.1f", seconds),
+                String.format("%.1f", deleted.get() / seconds));
+    }
+
+    /**
+     * Delete one batch of assets
+     * @param batch GUIDs to delete in one request
+     */
+    public void delete(List<String> batch) {
+        BatchSplitter.send(AtlanCalls.CallType.DELETE, batch, guids -> {
+            requests.incrementAndGet();
+            BATCH_SIZES.observe(guids.size());
+            return request.send(guids);
+        }, new BatchSplitter.Outcome<String>() {
+            @Override
+            public void onResponse(List<String> guids, AssetMutationResponse response) {
+                count(guids, response);
+            }
+
+            @Override
+            public void onFailure(List<String> guids, Exception error) {
+                failed.addAndGet(guids.size());
+                FAILED.add(guids.size());
+                logger.error("Unable to delete {} asset(s), first {}: {}", guids.size(), guids.get(0), error.getMessage());
+            }
+        });
+    }
+
+    private void count(List<String> batch, AssetMutationResponse response) {
+        Set<String> requested = new HashSet<>(batch);
+        // every requested asset is gone now, deleted or already missing, and so are cascaded ones
+        Set<String> gone = new HashSet<>(batch);
+        int removed = 0;
+        if (response != null && response.getDeletedAssets() != null) {
+            for (Asset asset : response.getDeletedAssets()) {
+                gone.add(asset.getGuid());
+                // a hard delete can cascade to children that were not requested
+                if (requested.remove(asset.getGuid())) {
+                    removed++;
+                }
+            }
+        }
+        ResolutionCache.shared().invalidateGuids(gone);
+        deleted.addAndGet(removed);
+        DELETED.add(removed);
+        if (!requested.isEmpty()) {
+            missing.addAndGet(requested.size());
+            MISSING.add(requested.size());
+            logger.debug("{} asset(s) were already deleted, e.g. {}", requested.size(), requested.iterator().next());
+        }
+    }
+
+    public long getDeletedCount() {
+        return deleted.get();
+    }
+
+    /**
+     * @return assets requested but not reported deleted by Atlan, typically because they were already gone
+     */
+    public long getMissingCount() {
+        return missing.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * @return number of delete requests sent, including split batches
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+}
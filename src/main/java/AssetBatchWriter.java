@@ -0,0 +1,224 @@
+import com.atlan.AtlanClient;
+import com.atlan.exception.AtlanException;
+import com.atlan.model.assets.Asset;
+import com.atlan.model.core.AssetMutationResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accumulates assets and saves them in multi-asset mutation requests instead of one save() per asset.
+ * Each requested asset is mapped back to its result in the {@link AssetMutationResponse}. A batch rejected because
+ * of its content is {@link BatchSplitter split} to isolate the bad assets; members that Atlan accepted but silently
+ * left out of the response are resent on their own. Every other failure has already been retried by
+ * {@link AtlanCalls}, or cannot succeed by resending, so it is reported straight away.
+ */
+public class AssetBatchWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AssetBatchWriter.class);
+
+    private static final AtlanMetrics.Histogram BATCH_SIZES = AtlanMetrics.histogram("atlan_batch_size",
+            "Assets per bulk request, including retried and split batches", AtlanMetrics.SIZE_BUCKETS, "operation", "save");
+    private static final AtlanMetrics.Counter SAVED = AtlanMetrics.counter("atlan_assets_total",
+            "Assets saved or deleted, by outcome", "operation", "save", "outcome", "saved");
+    private static final AtlanMetrics.Counter FAILED = AtlanMetrics.counter("atlan_assets_total",
+            "Assets saved or deleted, by outcome", "operation", "save", "outcome", "failed");
+
+    /**
+     * Callback for per-asset outcomes.
+     */
+    public interface Listener {
+        /**
+         * @param requested the asset as it was added to the batch
+         * @param result the asset as returned by Atlan (or the requested asset if it was unchanged)
+         */
+        void onSaved(Asset requested, Asset result);
+
+        /**
+         * @param requested the asset as it was added to the batch
+         * @param error the last error seen for it (an {@link AtlanException}, or a
+         *              {@link AtlanCalls.CircuitOpenException} if it was never sent), or null if Atlan silently dropped it
+         */
+        void onFailed(Asset requested, Exception error);
+    }
+
+    private final BatchSplitter.Request<Asset> saver;
+    private final int batchSize;
+    private final int maxRetries;
+    private final Listener listener;
+
+    private final List<Asset> buffer;
+    private final AtomicLong saved = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+
+    /**
+     * @param client Atlan client to save through
+     * @param batchSize maximum number of assets per mutation request
+     * @param maxRetries how many times members missing from a response are resent
+     * @param listener receives the outcome of every asset
+     */
+    public AssetBatchWriter(AtlanClient client, int batchSize, int maxRetries, Listener listener) {
+        this(members -> client.assets.save(members, false), batchSize, maxRetries, listener);
+    }
+
+    AssetBatchWriter(BatchSplitter.Request<Asset> saver, int batchSize, int maxRetries, Listener listener) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1, got: " + batchSize);
+        }
+        this.saver = saver;
+        this.batchSize = batchSize;
+        this.maxRetries = maxRetries;
+        this.listener = listener;
+        this.buffer = new ArrayList<>(batchSize);
+    }
+
+    /**
+     * Add an asset to the current batch, saving the batch once it is full
+     * @param asset
+     */
+    public void add(Asset asset) {
+        List<Asset> full = null;
+        synchronized (buffer) {
+            buffer.add(asset);
+            if (buffer.size() >= batchSize) {
+                full = new ArrayList<>(buffer);
+                buffer.clear();
+            }
+        }
+        if (full != null) {
+            save(full);
+        }
+    }
+
+    /**
+     * Save whatever is left in the current batch
+     */
+    public void flush() {
+        List<Asset> remaining;
+        synchronized (buffer) {
+            remaining = new ArrayList<>(buffer);
+            buffer.clear();
+        }
+        if (!remaining.isEmpty()) {
+            save(remaining);
+        }
+    }
+
+    /**
+     * Save a batch of assets, resending only the members Atlan silently left out of its response
+     * @param batch assets to save in one request
+     */
+    public void save(List<Asset> batch) {
+        List<Failure> failures = submit(batch);
+        for (int retryCount = 1; retryCount <= maxRetries; retryCount++) {
+            // an error was either retried by AtlanCalls already or is about the asset itself: resending will not help
+            List<Asset> dropped = new ArrayList<>();
+            List<Failure> remaining = new ArrayList<>();
+            for (Failure failure : failures) {
+                if (failure.error == null) {
+                    dropped.add(failure.asset);
+                } else {
+                    remaining.add(failure);
+                }
+            }
+            if (dropped.isEmpty()) {
+                break;
+            }
+            logger.warn("Resending {} asset(s) of a batch of {} missing from the response (attempt {})", dropped.size(), batch.size(), retryCount);
+            remaining.addAll(submit(dropped));
+            failures = remaining;
+        }
+        for (Failure failure : failures) {
+            failed.incrementAndGet();
+            FAILED.increment();
+            listener.onFailed(failure.asset, failure.error);
+        }
+    }
+
+    /**
+     * Submit one mutation request, split as long as Atlan rejects its content
+     * @return members that could not be saved
+     */
+    private List<Failure> submit(List<Asset> members) {
+        List<Failure> failures = new ArrayList<>();
+        BatchSplitter.send(AtlanCalls.CallType.SAVE, members, batch -> {
+            requests.incrementAndGet();
+            BATCH_SIZES.observe(batch.size());
+            return saver.send(batch);
+        }, new BatchSplitter.Outcome<Asset>() {
+            @Override
+            public void onResponse(List<Asset> batch, AssetMutationResponse response) {
+                Map<String, Asset> results = new HashMap<>();
+                if (response != null) {
+                    indexResults(results, response.getCreatedAssets());
+                    indexResults(results, response.getUpdatedAssets());
+                }
+                Map<String, String> guidAssignments = response == null ? null : response.getGuidAssignments();
+                for (Asset member : batch) {
+                    Asset result = results.get(resultKey(member));
+                    if (result == null && guidAssignments != null && guidAssignments.containsKey(member.getGuid())) {
+                        // accepted but unchanged, so Atlan returns no entity for it
+                        result = member;
+                    }
+                    if (result != null) {
+                        saved.incrementAndGet();
+                        SAVED.increment();
+                        listener.onSaved(member, result);
+                    } else {
+                        failures.add(new Failure(member, null));
+                    }
+                }
+            }
+
+            @Override
+            public void onFailure(List<Asset> batch, Exception error) {
+                logger.debug("Unable to save {} asset(s): {}", batch.size(), error.getMessage());
+                batch.forEach(m -> failures.add(new Failure(m, error)));
+            }
+        });
+        return failures;
+    }
+
+    private static void indexResults(Map<String, Asset> results, List<Asset> assets) {
+        if (assets != null) {
+            for (Asset asset : assets) {
+                results.put(resultKey(asset), asset);
+            }
+        }
+    }
+
+    private static String resultKey(Asset asset) {
+        return asset.getTypeName() + "/" + asset.getQualifiedName();
+    }
+
+    public long getSavedCount() {
+        return saved.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * @return number of mutation requests sent, including retried attempts, resent members and split batches
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    private static final class Failure {
+        private final Asset asset;
+        private final Exception error;
+
+        private Failure(Asset asset, Exception error) {
+            this.asset = asset;
+            this.error = error;
+        }
+    }
+}
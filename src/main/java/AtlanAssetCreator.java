@@ -1,31 +1,44 @@
 import co.elastic.clients.elasticsearch._types.SortOrder;
 import com.atlan.Atlan;
-import com.atlan.AtlanClient;
 import com.atlan.exception.AtlanException;
 import com.atlan.exception.ErrorCode;
-import com.atlan.exception.InvalidRequestException;
 import com.atlan.exception.NotFoundException;
 import com.atlan.model.assets.*;
 import com.atlan.model.core.AssetMutationResponse;
 import com.atlan.model.enums.AtlanConnectorType;
+import com.atlan.model.enums.AtlanDeleteType;
 import com.atlan.model.search.CompoundQuery;
 import com.atlan.model.search.IndexSearchRequest;
 import com.atlan.model.search.IndexSearchResponse;
-import com.atlan.net.HttpClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import java.io.ByteArrayInputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class AtlanAssetCreator {
 
@@ -41,7 +54,49 @@ public class AtlanAssetCreator {
 
     public static final String xmlFileName = "s3-buckets.xml";
 
+    // Number of S3 objects saved per bulk mutation request, and resends of the members of a batch missing from the response
+    public static final int BATCH_SIZE = AtlanSettings.getInt("ATLAN_BATCH_SIZE", 50);
+    public static final int BATCH_RETRIES = AtlanSettings.getInt("ATLAN_BATCH_RETRIES", 3);
+
+    // Load all existing S3 objects of the bucket up front instead of searching for each key
+    public static final boolean PREFETCH_EXISTING = AtlanSettings.getBoolean("ATLAN_PREFETCH_EXISTING", true);
+    public static final int PREFETCH_PAGE_SIZE = AtlanSettings.getInt("ATLAN_PREFETCH_PAGE_SIZE", 500);
+
+    // Only push keys that are new or whose ETag / LastModified / Size changed since the previous run
+    public static final boolean INCREMENTAL = AtlanSettings.getBoolean("ATLAN_INCREMENTAL", false);
+    public static final String STATE_DIR = AtlanSettings.get("ATLAN_STATE_DIR", "state");
+
+    // Listing files (or directories of them, comma separated) to ingest; program arguments take precedence
+    public static final String LISTING_PATH = AtlanSettings.get("ATLAN_LISTING_PATH", xmlFileName);
+    // Number of listings (buckets) ingested concurrently
+    public static final int BUCKET_WORKERS = AtlanSettings.getInt("ATLAN_BUCKET_WORKERS", Runtime.getRuntime().availableProcessors());
+
+    // Threads per stage of the parse -> resolve -> batch -> send pipeline, and the bound of each stage's queue
+    public static final int RESOLVE_WORKERS = AtlanSettings.getInt("ATLAN_RESOLVE_WORKERS", 2);
+    public static final int SEND_WORKERS = AtlanSettings.getInt("ATLAN_SEND_WORKERS", 4);
+    public static final int QUEUE_CAPACITY = AtlanSettings.getInt("ATLAN_QUEUE_CAPACITY", 1000);
+    public static final int PIPELINE_REPORT_SECONDS = AtlanSettings.getInt("ATLAN_PIPELINE_REPORT_SECONDS", 10);
+
+    // After ingesting a bucket's listings, archive its S3 objects whose keys are no longer listed
+    public static final boolean RECONCILE = AtlanSettings.getBoolean("ATLAN_RECONCILE", false);
+    // Only report the stale objects, without archiving them
+    public static final boolean RECONCILE_DRY_RUN = AtlanSettings.getBoolean("ATLAN_RECONCILE_DRY_RUN", true);
+    // Abort when more than this percentage of the bucket's catalogued objects would be archived
+    public static final double RECONCILE_MAX_STALE_PERCENT = Double.parseDouble(AtlanSettings.get("ATLAN_RECONCILE_MAX_STALE_PERCENT", "10"));
+    public static final int RECONCILE_BATCH_SIZE = AtlanSettings.getInt("ATLAN_RECONCILE_BATCH_SIZE", 100);
+    public static final int RECONCILE_WORKERS = AtlanSettings.getInt("ATLAN_RECONCILE_WORKERS", 4);
+
+    // Diff the listing against the catalog by external sort and merge join instead of in-memory key sets,
+    // holding at most SORT_MEMORY_MB of records per bucket whatever its size
+    public static final boolean SORT_MERGE_DIFF = AtlanSettings.getBoolean("ATLAN_SORT_MERGE_DIFF", false);
+    public static final int SORT_MEMORY_MB = AtlanSettings.getInt("ATLAN_SORT_MEMORY_MB", 64);
+    public static final String SORT_TEMP_DIR = AtlanSettings.get("ATLAN_SORT_TEMP_DIR", Paths.get(STATE_DIR, "sort").toString());
+
+    // Concurrent lookups of the same bucket share one search
+    private static final SingleFlight<String, List<S3Bucket>> bucketLookups = new SingleFlight<>();
+
     public static void main(String[] args) {
+        AtlanMetrics.start("asset-creator");
         logger.info("Starting Atlan Asset Creation...");
 
         try {
@@ -49,66 +104,510 @@ public class AtlanAssetCreator {
             Connection connection = getOrCreateS3Connection(CONNECTION_NAME, CONNECTOR_TYPE);
             String connectionQualifiedName = connection.getQualifiedName();
             logger.info("Connection       ::" + connection.getGuid());
+            logger.info("Connection QName ::" + connectionQualifiedName);
 
-            // Read XML content from resource folder
-            String xmlContent = readXmlFromResource(xmlFileName);
+            List<String> listings = resolveListings(args.length > 0 ? List.of(args) : List.of(LISTING_PATH.split(",")));
+            if (listings.isEmpty()) {
+                logger.warn("No listing files found in: " + (args.length > 0 ? String.join(",", args) : LISTING_PATH));
+                return;
+            }
 
-            // Parse the XML
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document doc = builder.parse(new ByteArrayInputStream(xmlContent.getBytes(StandardCharsets.UTF_8)));
+            // A bucket may be split over several listings: each bucket is ingested (and reconciled) as a whole,
+            // from all of its listings, and buckets are ingested on a bounded pool
+            Map<String, List<String>> buckets = S3ListingReader.groupByBucket(listings, AtlanAssetCreator::openListing);
+            int workers = Math.max(1, Math.min(BUCKET_WORKERS, buckets.size()));
+            logger.info("Ingesting " + listings.size() + " listing(s) of " + buckets.size() + " bucket(s) with " + workers + " worker(s)");
+            ExecutorService pool = Executors.newFixedThreadPool(workers);
+            Map<String, Future<?>> results = new LinkedHashMap<>();
+            try {
+                for (Map.Entry<String, List<String>> bucket : buckets.entrySet()) {
+                    results.put(bucket.getKey(), pool.submit(() -> {
+                        ingestBucket(bucket.getKey(), bucket.getValue(), connectionQualifiedName);
+                        return null;
+                    }));
+                }
+                int failed = 0;
+                for (Map.Entry<String, Future<?>> result : results.entrySet()) {
+                    try {
+                        result.getValue().get();
+                    } catch (ExecutionException e) {
+                        failed++;
+                        logger.error("Failed to ingest bucket: " + result.getKey() + " from " + buckets.get(result.getKey()), e.getCause());
+                    }
+                }
+                logger.info("Ingested " + (buckets.size() - failed) + " of " + buckets.size() + " bucket(s)");
+            } finally {
+                pool.shutdownNow();
+            }
 
-            // Normalize the XML structure
-            doc.getDocumentElement().normalize();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
 
-            // Get bucket name
-            String bucketName = doc.getElementsByTagName("Name").item(0).getTextContent();
+    /**
+     * Ingest one bucket: resolve it and create the s3 objects listed by all of its listings
+     * @param bucketName
+     * @param listingNames file paths or resource names of the bucket's listings
+     * @param connectionQualifiedName
+     * @throws Exception
+     */
+    private static void ingestBucket(String bucketName, List<String> listingNames, String connectionQualifiedName) throws Exception {
+        // Create s3 bucket based on the bucket name
+        S3Bucket bucket = getOrCreateS3Bucket(bucketName, connectionQualifiedName);
 
-            // Create s3 bucket based on the bucket name
-            S3Bucket bucket = getOrCreateS3Bucket(bucketName, connectionQualifiedName);
+        logger.info("Listings :: " + listingNames);
+        logger.info("Bucket :: " + bucket.getGuid());
+        logger.info("Bucket Qualified Name :: " + bucket.getQualifiedName());
+        logger.info("Bucket Qualified Name :: " + bucket.getName());
 
-            logger.info("Connection       ::" + connection.getGuid());
-            logger.info("Connection QName ::" + connectionQualifiedName);
-            logger.info("Bucket :: " + bucket.getGuid());
-            logger.info("Bucket Qualified Name :: " + bucket.getQualifiedName());
-            logger.info("Bucket Qualified Name :: " + bucket.getName());
+        // Create s3 object based on the bucket list
+        createContents(listingNames, bucket);
+    }
 
-            // Create s3 object based on the bucket list
-            createContents(doc, bucket);
+    /**
+     * Create the assest - individual s3 objects, as they are streamed from the listing.
+     * <p>
+     * Runs as a pipeline: this thread parses the listing, {@link #RESOLVE_WORKERS} threads decide
+     * create-vs-skip and build the assets, one thread groups them into batches of {@link #BATCH_SIZE}, and
+     * {@link #SEND_WORKERS} threads save the batches. Stages are connected by queues of {@link #QUEUE_CAPACITY},
+     * so parsing is throttled to the rate Atlan accepts writes. In {@link #INCREMENTAL} mode, keys whose
+     * fingerprint is unchanged since the previous run are skipped as long as the catalog still has them, changed
+     * keys are upserted, and the fingerprints of keys no longer listed are dropped. With
+     * {@link #RECONCILE}, the keys of every listing of the bucket are remembered and the bucket is then
+     * {@link #reconcile reconciled} against them, once; a listing that fails to parse fails the bucket before
+     * anything is archived. With {@link #SORT_MERGE_DIFF}, parsing feeds a {@link #diffListing sort-merge diff}
+     * instead of the resolve stage.
+     * @param listingNames every listing of the bucket
+     * @param bucket
+     * @throws Exception
+     */
+    private static void createContents(List<String> listingNames, S3Bucket bucket) throws Exception {
+        String bucketName = bucket.getName();
+        S3FingerprintStore fingerprints = INCREMENTAL ? S3FingerprintStore.open(Paths.get(STATE_DIR), bucket.getQualifiedName()) : null;
+        // fingerprints of objects sent but not yet confirmed, keyed by qualifiedName
+        Map<String, Long> pendingFingerprints = new ConcurrentHashMap<>();
+        AtomicBoolean bucketMissing = new AtomicBoolean();
+        CompactKeySet listedKeys = RECONCILE && !SORT_MERGE_DIFF ? new CompactKeySet() : null;
+
+        AssetBatchWriter writer = new AssetBatchWriter(Atlan.getDefaultClient(), BATCH_SIZE, BATCH_RETRIES, new AssetBatchWriter.Listener() {
+            @Override
+            public void onSaved(Asset requested, Asset result) {
+                Long fingerprint = pendingFingerprints.remove(requested.getQualifiedName());
+                if (fingerprints != null && fingerprint != null) {
+                    fingerprints.put(requested.getName(), fingerprint);
+                }
+                logger.info("Saved S3 object: " + result.getQualifiedName());
+            }
 
-        } catch (Exception e) {
-            e.printStackTrace();
+            @Override
+            public void onFailed(Asset requested, Exception error) {
+                // no fingerprint is recorded, so the key is pushed again on the next run
+                pendingFingerprints.remove(requested.getQualifiedName());
+                logger.error("Failed to save S3 object: " + requested.getQualifiedName(), error);
+                if (error instanceof NotFoundException && bucketMissing.compareAndSet(false, true)) {
+                    // the bucket may have been deleted since it was cached: resolve it again on the next run
+                    ResolutionCache.shared().invalidateGuids(List.of(bucket.getGuid()));
+                }
+            }
+        });
+
+        // Either decide create-vs-skip locally from a prefetched index, or search for every key
+        CompactKeySet existingKeys = PREFETCH_EXISTING && !SORT_MERGE_DIFF ? loadExistingKeys(bucket.getQualifiedName()) : null;
+        AtomicLong unchanged = new AtomicLong();
+        AtomicLong recreated = new AtomicLong();
+
+        try (Pipeline pipeline = new Pipeline("s3-" + bucketName, PIPELINE_REPORT_SECONDS)) {
+            Pipeline.Stage<List<Asset>> send = pipeline.stage("send", SEND_WORKERS, Math.max(1, QUEUE_CAPACITY / BATCH_SIZE), writer::save);
+
+            Pipeline.Stage<Asset> batch = pipeline.stage("batch", 1, QUEUE_CAPACITY, new Pipeline.Handler<Asset>() {
+                private List<Asset> current = new ArrayList<>(BATCH_SIZE);
+
+                @Override
+                public void handle(Asset asset) throws Exception {
+                    current.add(asset);
+                    if (current.size() >= BATCH_SIZE) {
+                        send.put(current);
+                        current = new ArrayList<>(BATCH_SIZE);
+                    }
+                }
+
+                @Override
+                public void complete() throws Exception {
+                    if (!current.isEmpty()) {
+                        send.put(current);
+                    }
+                }
+            });
+
+            Pipeline.Stage<Listed> resolve = pipeline.stage("resolve", RESOLVE_WORKERS, QUEUE_CAPACITY, listed -> {
+                S3ListingReader.Entry content = listed.entry;
+                String key = content.getKey();
+
+                final String OBJECT_ARN = "arn:aws:s3:::" + bucketName +"-njay-v1" + "/prefix/" + key;
+
+                long fingerprint = S3FingerprintStore.ABSENT;
+                boolean unchangedSinceLastRun = false;
+                if (fingerprints != null) {
+                    fingerprints.markListed(key);
+                    fingerprint = S3FingerprintStore.fingerprint(content);
+                    long previous = fingerprints.get(key);
+                    unchangedSinceLastRun = previous == fingerprint;
+                    if (previous != S3FingerprintStore.ABSENT && !unchangedSinceLastRun) {
+                        // changed since the last run: upsert it whether or not it is catalogued
+                        if (existingKeys != null) {
+                            synchronized (existingKeys) {
+                                existingKeys.add(key);
+                            }
+                        }
+                        queue(batch, buildS3Object(content, bucket, OBJECT_ARN), fingerprint, pendingFingerprints);
+                        return;
+                    }
+                }
+
+                // an unchanged fingerprint only means the object needs no update: it is still skipped only if
+                // the catalog has it, as it may have been archived or purged since the last run
+                boolean exists;
+                if (listed.catalogued != null) {
+                    exists = listed.catalogued;
+                } else if (existingKeys != null) {
+                    // add() is false for keys already in the catalog, or repeated in the listing
+                    synchronized (existingKeys) {
+                        exists = !existingKeys.add(key);
+                    }
+                } else {
+                    try {
+                        // Try to find existing S3 object
+                        getS3Object(key, bucket.getQualifiedName());
+                        exists = true;
+                    } catch (NotFoundException e) {
+                        exists = false;
+                    }
+                }
+
+                if (exists) {
+                    if (unchangedSinceLastRun) {
+                        unchanged.incrementAndGet();
+                        return;
+                    }
+                    logger.debug("Using existing S3 object: " + key);
+                    if (fingerprints != null) {
+                        fingerprints.put(key, fingerprint);
+                    }
+                } else {
+                    if (unchangedSinceLastRun) {
+                        recreated.incrementAndGet();
+                        logger.debug("S3 object unchanged since last run but missing from the catalog, creating it again: " + key);
+                    }
+                    // If not found, queue up a new S3 object
+                    queue(batch, buildS3Object(content, bucket, OBJECT_ARN), fingerprint, pendingFingerprints);
+                }
+            });
+
+            if (SORT_MERGE_DIFF) {
+                diffListing(listingNames, bucket, resolve, fingerprints != null);
+            } else {
+                // Parse stage: this thread, blocked whenever the resolve queue is full
+                for (String listingName : listingNames) {
+                    try (InputStream inputStream = openListing(listingName);
+                         S3ListingReader listing = new S3ListingReader(inputStream)) {
+                        S3ListingReader.Entry content;
+                        while ((content = listing.next()) != null) {
+                            if (listedKeys != null) {
+                                listedKeys.add(content.getKey());
+                            }
+                            resolve.put(new Listed(content, null));
+                        }
+                    }
+                }
+            }
+            resolve.finish();
+            batch.finish();
+            send.finish();
+            logger.info(pipeline.report());
         }
-    }
 
+        logger.info("S3 objects saved: " + writer.getSavedCount() + ", failed: " + writer.getFailedCount()
+                + ", requests: " + writer.getRequestCount());
+        if (fingerprints != null) {
+            int pruned = fingerprints.pruneUnlisted();
+            fingerprints.save();
+            logger.info("S3 objects unchanged since last run: " + unchanged.get() + ", unchanged but created again: "
+                    + recreated.get() + ", fingerprints of unlisted keys dropped: " + pruned + ", fingerprints stored: "
+                    + fingerprints.size() + " in " + fingerprints.getFile());
+        }
+        if (listedKeys != null) {
+            reconcile(bucket, listedKeys);
+        }
+    }
 
     /**
-     * Create the assest - individual s3 objects
-     * @param doc
+     * Diff the listings of a bucket against its S3 objects in the catalog in bounded memory: every listing of the
+     * bucket and the catalog are sorted by key through an {@link ExternalSorter} (spilling to {@link #SORT_TEMP_DIR})
+     * and merge-joined, so a key is only stale if none of the listings has it.
+     * Keys only in the listing go to the resolve stage as new; keys in both only do so in incremental mode, where
+     * their fingerprint decides; keys only in the catalog are reported stale and, with {@link #RECONCILE}, archived.
+     * <p>
+     * The catalog is sorted locally rather than by the search, so both sides are guaranteed the same ordering.
+     * @param listingNames every listing of the bucket
      * @param bucket
-     * @throws AtlanException
+     * @param resolve the resolve stage of the ingest pipeline
+     * @param incremental whether keys already catalogued still need their fingerprint checked
+     * @throws Exception
      */
-    private static void createContents(Document doc, S3Bucket bucket) throws AtlanException {
-        NodeList contentsList = doc.getElementsByTagName("Contents");
-        for (int i = 0; i < contentsList.getLength(); i++) {
-            Element content = (Element) contentsList.item(i);
-            String key = content.getElementsByTagName("Key").item(0).getTextContent();
-            String bucketName = bucket.getName();
+    private static void diffListing(List<String> listingNames, S3Bucket bucket, Pipeline.Stage<Listed> resolve, boolean incremental)
+            throws Exception {
+        long memoryBytes = SORT_MEMORY_MB * 1024L * 1024L / 2;
+        Path tempDir = Paths.get(SORT_TEMP_DIR);
+        try (ExternalSorter listed = new ExternalSorter(tempDir, 5, memoryBytes);
+             ExternalSorter catalogued = new ExternalSorter(tempDir, 2, memoryBytes)) {
+            for (String listingName : listingNames) {
+                try (InputStream inputStream = openListing(listingName);
+                     S3ListingReader listing = new S3ListingReader(inputStream)) {
+                    S3ListingReader.Entry content;
+                    while ((content = listing.next()) != null) {
+                        listed.add(content.getKey(), content.getLastModified(), content.getETag(),
+                                content.getSize() < 0 ? null : Long.toString(content.getSize()), content.getStorageClass());
+                    }
+                }
+            }
+
+            AtlanSearch.forEachPage(bucketObjects(bucket.getQualifiedName()), AtlanAssetFinder.SEARCH_SLICES,
+                    AtlanAssetFinder.SEARCH_WORKERS, AtlanAssetFinder.SEARCH_MAX_PAGES, page -> {
+                for (Asset asset : page) {
+                    if (asset.getName() != null) {
+                        try {
+                            catalogued.add(asset.getName(), asset.getGuid());
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                }
+            });
+            logger.info("Sorted " + listed.size() + " listed key(s) of " + listingNames.size() + " listing(s) in " + listed.getRunCount() + " run(s) and "
+                    + catalogued.size() + " catalogued S3 object(s) in " + catalogued.getRunCount() + " run(s) for bucket: " + bucket.getName());
+
+            AtomicLong created = new AtomicLong();
+            AtomicLong existing = new AtomicLong();
+            AtomicLong duplicates = new AtomicLong();
+            try (StaleReport report = new StaleReport(bucket);
+                 ExternalSorter.Cursor listedCursor = listed.sorted();
+                 ExternalSorter.Cursor cataloguedCursor = catalogued.sorted()) {
+                SortMergeDiff.diff(listedCursor, cataloguedCursor, new SortMergeDiff.Listener() {
+                    @Override
+                    public void onCreate(String[] source) throws Exception {
+                        created.incrementAndGet();
+                        resolve.put(new Listed(toEntry(source), false));
+                    }
 
-            final String OBJECT_ARN = "arn:aws:s3:::" + bucketName +"-njay-v1" + "/prefix/" + key;
+                    @Override
+                    public void onUnchanged(String[] source, String[] catalog) throws Exception {
+                        existing.incrementAndGet();
+                        if (incremental) {
+                            resolve.put(new Listed(toEntry(source), true));
+                        }
+                    }
 
-            try {
-                // Try to find existing S3 object
-                S3Object existingObject = getS3Object(key, bucket.getQualifiedName());
-                logger.info("Using existing S3 object: " + existingObject.getQualifiedName());
-            } catch (NotFoundException e) {
-                // If not found, create new S3 object
-                S3Object newObject = createS3Object(key, bucket, OBJECT_ARN);
-                logger.info("Created new S3 object: " + newObject.getQualifiedName());
+                    @Override
+                    public void onStale(String[] catalog) throws Exception {
+                        report.add(catalog[0], catalog[1]);
+                    }
+
+                    @Override
+                    public void onDuplicate(String[] source, String[] catalog) {
+                        // still listed, so not archived: left for a person to resolve
+                        duplicates.incrementAndGet();
+                        logger.warn("Duplicate S3 object " + catalog[1] + " for listed key: " + catalog[0]);
+                    }
+                });
+                report.close();
+                logger.info("Diffed bucket " + bucket.getName() + ": " + created.get() + " new, " + existing.get()
+                        + " already catalogued, " + duplicates.get() + " duplicate(s) in the catalog, " + report.getCount() + " stale");
+                if (RECONCILE) {
+                    archiveStale(bucket, report, catalogued.size());
+                }
             }
         }
     }
 
+    private static S3ListingReader.Entry toEntry(String[] record) {
+        return new S3ListingReader.Entry(record[0], record[1], record[2], record[3] == null ? -1 : Long.parseLong(record[3]), record[4]);
+    }
+
+    /**
+     * Archive (soft delete) the S3 objects of the bucket whose keys are not in the listing any more.
+     * @param bucket
+     * @param listedKeys every key of all the bucket's listings just ingested
+     * @throws Exception
+     */
+    private static void reconcile(S3Bucket bucket, CompactKeySet listedKeys) throws Exception {
+        AtomicLong catalogued = new AtomicLong();
+        try (StaleReport report = new StaleReport(bucket)) {
+            AtlanSearch.forEachPage(bucketObjects(bucket.getQualifiedName()), page -> {
+                for (Asset asset : page) {
+                    catalogued.incrementAndGet();
+                    if (asset.getName() != null && !listedKeys.contains(asset.getName())) {
+                        try {
+                            report.add(asset.getName(), asset.getGuid());
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                }
+            });
+            report.close();
+            archiveStale(bucket, report, catalogued.get());
+        }
+    }
+
+    /**
+     * Archive the stale S3 objects of a report. Nothing is archived in {@link #RECONCILE_DRY_RUN} mode, or when
+     * the stale objects exceed {@link #RECONCILE_MAX_STALE_PERCENT} of the bucket, which usually means a truncated
+     * or wrong listing rather than a mass deletion in S3.
+     * @param bucket
+     * @param report the stale objects, complete and closed
+     * @param catalogued number of S3 objects of the bucket in the catalog
+     * @throws Exception
+     */
+    private static void archiveStale(S3Bucket bucket, StaleReport report, long catalogued) throws Exception {
+        double stalePercent = catalogued == 0 ? 0 : report.getCount() * 100.0 / catalogued;
+        logger.info("Reconciled bucket " + bucket.getName() + ": " + catalogued + " catalogued, " + report.getCount()
+                + " stale (" + String.format("%.1f", stalePercent) + "%), written to " + report.getFile());
+
+        if (report.getCount() == 0) {
+            return;
+        }
+        if (stalePercent > RECONCILE_MAX_STALE_PERCENT) {
+            logger.error("Not archiving stale S3 objects of bucket " + bucket.getName() + ": " + String.format("%.1f", stalePercent)
+                    + "% of the bucket exceeds ATLAN_RECONCILE_MAX_STALE_PERCENT=" + RECONCILE_MAX_STALE_PERCENT);
+            return;
+        }
+        if (RECONCILE_DRY_RUN) {
+            logger.info("Dry run: " + report.getCount() + " stale S3 object(s) of bucket " + bucket.getName()
+                    + " would be archived; set ATLAN_RECONCILE_DRY_RUN=false to archive them");
+            return;
+        }
+        AssetBatchDeleter deleter = new AssetBatchDeleter(Atlan.getDefaultClient(), AtlanDeleteType.SOFT, RECONCILE_BATCH_SIZE);
+        // the GUIDs are streamed back from the report, so a large reconciliation does not need them all in memory
+        try (CsvReader stale = new CsvReader(Files.newBufferedReader(report.getFile(), StandardCharsets.UTF_8), 1 << 16)) {
+            stale.next(); // header
+            deleter.deleteAll("reconcile-" + bucket.getName(), new Iterator<String>() {
+                private Boolean hasNext;
+
+                @Override
+                public boolean hasNext() {
+                    if (hasNext == null) {
+                        try {
+                            hasNext = stale.next();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                    return hasNext;
+                }
+
+                @Override
+                public String next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    hasNext = null;
+                    return stale.getFields()[1];
+                }
+            }, RECONCILE_WORKERS, PIPELINE_REPORT_SECONDS);
+        }
+    }
+
+    private static void queue(Pipeline.Stage<Asset> batch, S3Object object, long fingerprint, Map<String, Long> pendingFingerprints) throws InterruptedException {
+        if (fingerprint != S3FingerprintStore.ABSENT) {
+            pendingFingerprints.put(object.getQualifiedName(), fingerprint);
+        }
+        batch.put(object);
+    }
+
+    /**
+     * A listing entry on its way to the resolve stage, with whether it is known to be catalogued already
+     * (null when the resolve stage has to find out).
+     */
+    private static final class Listed {
+        private final S3ListingReader.Entry entry;
+        private final Boolean catalogued;
+
+        private Listed(S3ListingReader.Entry entry, Boolean catalogued) {
+            this.entry = entry;
+            this.catalogued = catalogued;
+        }
+    }
+
+    /**
+     * CSV file (key,guid) of the S3 objects of a bucket that are no longer in its listing.
+     */
+    private static final class StaleReport implements AutoCloseable {
+        private final Path file;
+        private final BufferedWriter writer;
+        private long count;
+
+        private StaleReport(S3Bucket bucket) throws IOException {
+            this.file = Paths.get(STATE_DIR, "reconcile-" + bucket.getQualifiedName().replaceAll("[^A-Za-z0-9._-]", "_") + ".csv");
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+            writer.write("key,guid");
+            writer.newLine();
+        }
+
+        private void add(String key, String guid) throws IOException {
+            writer.write(RejectFile.quote(key) + "," + guid);
+            writer.newLine();
+            count++;
+        }
+
+        private long getCount() {
+            return count;
+        }
+
+        private Path getFile() {
+            return file;
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    /**
+     * Page through every S3 object already in the bucket, once, and index their names (keys).
+     * Only the identity of each object is projected, so each page stays small.
+     * @param bucketQualifiedName
+     * @return index of the keys already catalogued in the bucket
+     * @throws AtlanException
+     */
+    private static CompactKeySet loadExistingKeys(String bucketQualifiedName) throws AtlanException {
+        CompactKeySet keys = new CompactKeySet();
+        int pages = AtlanSearch.forEachPage(bucketObjects(bucketQualifiedName), page -> {
+            for (Asset asset : page) {
+                if (asset.getName() != null) {
+                    keys.add(asset.getName());
+                }
+            }
+        });
+        logger.info("Prefetched " + keys.size() + " existing S3 object(s) in " + pages + " page(s) for bucket: " + bucketQualifiedName);
+        return keys;
+    }
+
+    /**
+     * Search for the identity of every S3 object of a bucket, sliced by GUID as deep as the bucket's size needs
+     * @param bucketQualifiedName
+     * @return the search
+     */
+    private static AtlanSearch.Slicer bucketObjects(String bucketQualifiedName) {
+        return AtlanSearch.byGuid(() -> AtlanSearch.select(Projection.IDENTITY)
+                .where(CompoundQuery.assetType(S3Object.TYPE_NAME))
+                .where(S3Object.S3BUCKET_QUALIFIED_NAME.eq(bucketQualifiedName))
+                .pageSize(PREFETCH_PAGE_SIZE)
+                .sort(Asset.GUID.order(SortOrder.Asc)));
+    }
+
     /**
      * Search for existing s3 object
      * @param key
@@ -118,16 +617,14 @@ public class AtlanAssetCreator {
      * @throws NotFoundException
      */
     private static S3Object getS3Object(String key, String bucketQualifiedName) throws AtlanException, NotFoundException {
-        AtlanClient client = Atlan.getDefaultClient();
-        IndexSearchRequest index = client.assets
-                .select()
+        IndexSearchRequest index = AtlanSearch.select(Projection.IDENTITY)
                 .where(CompoundQuery.assetType(S3Object.TYPE_NAME))
                 .where(S3Object.NAME.eq(key))
                 .where(S3Object.S3BUCKET_QUALIFIED_NAME.eq(bucketQualifiedName))
                 .pageSize(1)
                 .toRequest();
 
-        IndexSearchResponse response = index.search();
+        IndexSearchResponse response = AtlanCalls.execute(AtlanCalls.CallType.SEARCH, index::search);
 
         if (response == null || response.getAssets() == null) {
             throw new NotFoundException(ErrorCode.NOT_FOUND_PASSTHROUGH, "No S3 object found with key: " + key + " in bucket: " + bucketQualifiedName);
@@ -146,20 +643,31 @@ public class AtlanAssetCreator {
     }
 
     /**
-     * Create s3 object
-     * @param key
+     * Build s3 object from a listing entry, to be saved through a batch
+     * @param content
      * @param bucket
      * @param objectArn
      * @return
-     * @throws AtlanException
      */
-    private static S3Object createS3Object(String key, S3Bucket bucket, String objectArn) throws AtlanException {
-        S3Object object = S3Object.creator(key, bucket, objectArn)
+    private static S3Object buildS3Object(S3ListingReader.Entry content, S3Bucket bucket, String objectArn) {
+        String key = content.getKey();
+        S3Object.S3ObjectBuilder<?, ?> builder = S3Object.creator(key, bucket, objectArn)
                 .description("S3 object " + key)
-                .ownerUser(OWNER)
-                .build();
-        AssetMutationResponse objectResponse = object.save();
-        return objectResponse.getResult(object);
+                .ownerUser(OWNER);
+        if (content.getETag() != null) {
+            builder.s3ETag(content.getETag());
+        }
+        if (content.getSize() >= 0) {
+            builder.s3ObjectSize(content.getSize());
+        }
+        if (content.getLastModified() != null) {
+            try {
+                builder.s3ObjectLastModifiedTime(Instant.parse(content.getLastModified()).toEpochMilli());
+            } catch (DateTimeParseException e) {
+                logger.debug("Ignoring unparseable LastModified for " + key + ": " + content.getLastModified());
+            }
+        }
+        return builder.build();
     }
 
     /**
@@ -177,7 +685,16 @@ public class AtlanAssetCreator {
             return existingBuckets.get(0);
         } catch (NotFoundException e) {
             logger.info("Creating new bucket: " + bucketName);
-            return createS3Bucket(bucketName, connectionQualifiedName);
+            S3Bucket bucket;
+            try {
+                bucket = createS3Bucket(bucketName, connectionQualifiedName);
+            } catch (NotFoundException missing) {
+                // the cached connection may have been deleted: resolve it again on the next run
+                AtlanLookups.invalidateConnection(CONNECTION_NAME, CONNECTOR_TYPE);
+                throw missing;
+            }
+            ResolutionCache.shared().put(S3Bucket.TYPE_NAME, connectionQualifiedName, bucketName, bucket);
+            return bucket;
         }
     }
 
@@ -191,34 +708,42 @@ public class AtlanAssetCreator {
      * @throws InterruptedException
      */
     private static List<S3Bucket> findS3BucketByName(String bucketName, String connectionQualifiedName) throws AtlanException,  InterruptedException {
-        AtlanClient client = Atlan.getDefaultClient();
+        ResolutionCache.Entry cached = ResolutionCache.shared().get(S3Bucket.TYPE_NAME, connectionQualifiedName, bucketName);
+        if (cached != null) {
+            return List.of(S3Bucket._internal()
+                    .guid(cached.getGuid())
+                    .qualifiedName(cached.getQualifiedName())
+                    .name(bucketName)
+                    .connectionQualifiedName(connectionQualifiedName)
+                    .build());
+        }
 
-        IndexSearchRequest index = client.assets
-                .select()
-                .where(CompoundQuery.superType(IS3.TYPE_NAME))
-                .where(Asset.QUALIFIED_NAME.startsWith(connectionQualifiedName))
-                .where(Asset.NAME.eq(bucketName))
-                .pageSize(1)
-                .sort(Asset.CREATE_TIME.order(SortOrder.Asc))
-                .includeOnResults(Asset.NAME)
-                .includeOnResults(Asset.CONNECTION_QUALIFIED_NAME)
-                .toRequest();
+        return bucketLookups.execute(connectionQualifiedName + "/" + bucketName, () -> {
+            IndexSearchRequest index = AtlanSearch.select(Projection.IDENTITY)
+                    .where(CompoundQuery.superType(IS3.TYPE_NAME))
+                    .where(Asset.QUALIFIED_NAME.startsWith(connectionQualifiedName))
+                    .where(Asset.NAME.eq(bucketName))
+                    .pageSize(1)
+                    .sort(Asset.CREATE_TIME.order(SortOrder.Asc))
+                    .toRequest();
 
-        IndexSearchResponse response = retrySearchUntil(index, 0L);
+            IndexSearchResponse response = AtlanCalls.execute(AtlanCalls.CallType.SEARCH, index::search);
 
-        if (response.getAssets() == null) {
-            throw new NotFoundException(ErrorCode.NOT_FOUND_PASSTHROUGH,"No buckets found with name: " + bucketName + " and connectionQualifiedName: " + connectionQualifiedName);
-        }
-        List<S3Bucket> buckets = response.getAssets().stream()
-                .filter(entity -> entity instanceof S3Bucket)
-                .map(entity -> (S3Bucket) entity)
-                .collect(Collectors.toList());
+            if (response.getAssets() == null) {
+                throw new NotFoundException(ErrorCode.NOT_FOUND_PASSTHROUGH,"No buckets found with name: " + bucketName + " and connectionQualifiedName: " + connectionQualifiedName);
+            }
+            List<S3Bucket> buckets = response.getAssets().stream()
+                    .filter(entity -> entity instanceof S3Bucket)
+                    .map(entity -> (S3Bucket) entity)
+                    .collect(Collectors.toList());
 
-        if (buckets.isEmpty()) {
-            throw new NotFoundException(ErrorCode.NOT_FOUND_PASSTHROUGH,"No buckets found with name: " + bucketName + " and connectionQualifiedName: " + connectionQualifiedName);
-        }
+            if (buckets.isEmpty()) {
+                throw new NotFoundException(ErrorCode.NOT_FOUND_PASSTHROUGH,"No buckets found with name: " + bucketName + " and connectionQualifiedName: " + connectionQualifiedName);
+            }
 
-        return buckets;
+            ResolutionCache.shared().put(S3Bucket.TYPE_NAME, connectionQualifiedName, bucketName, buckets.get(0));
+            return buckets;
+        });
     }
 
     /**
@@ -235,13 +760,17 @@ public class AtlanAssetCreator {
                 .description("S3 bucket for " + bucketName+"-njay-v1")
                 .ownerUser(OWNER)
                 .build();
-        AssetMutationResponse response = bucket.save();
+        AssetMutationResponse response = AtlanCalls.execute(AtlanCalls.CallType.SAVE, bucket::save);
 
         if (response == null || response.getCreatedAssets().isEmpty()) {
             throw new RuntimeException("Failed to create bucket");
         }
 
-        return response.getResult(bucket);
+        S3Bucket created = response.getResult(bucket);
+        if (created == null || created.getGuid() == null || created.getGuid().startsWith("-")) {
+            throw new RuntimeException("Failed to create bucket: no GUID assigned to " + bucketName);
+        }
+        return created;
     }
 
 
@@ -255,14 +784,15 @@ public class AtlanAssetCreator {
      */
     private static Connection getOrCreateS3Connection( String connectionName, AtlanConnectorType connectorType) throws AtlanException, InterruptedException {
 
-        try {
-            List<Connection> existingConnections = Connection.findByName(connectionName, connectorType);
+        Connection existingConnection = AtlanLookups.findConnectionByName(connectionName, connectorType);
+        if (existingConnection != null) {
             logger.info("Using existing connection: " + connectionName);
-            return existingConnections.get(0);
-        } catch (NotFoundException e) {
-            logger.info("Creating new connection: " + connectionName);
-            return createS3Connection(connectionName, connectorType);
+            return existingConnection;
         }
+        logger.info("Creating new connection: " + connectionName);
+        Connection connection = createS3Connection(connectionName, connectorType);
+        AtlanLookups.cacheConnection(connectionName, connectorType, connection);
+        return connection;
 
     }
 
@@ -272,31 +802,15 @@ public class AtlanAssetCreator {
      * @param connectorType
      * @return
      * @throws AtlanException
-     * @throws InterruptedException
      */
     private static Connection createS3Connection(String connectionName,
-                                                 AtlanConnectorType connectorType) throws AtlanException, InterruptedException {
+                                                 AtlanConnectorType connectorType) throws AtlanException {
         Connection connection = Connection.creator(connectionName, connectorType)
                 .build();
-        AssetMutationResponse response = connection.save();
-
-        int retryCount = 0;
-        while (response == null && retryCount < Atlan.getMaxNetworkRetries()) {
-            retryCount++;
-            try {
-                response = connection.save().block();
-            } catch (InvalidRequestException e) {
-                if (retryCount < Atlan.getMaxNetworkRetries()) {
-                    if (e.getCode() != null
-                            && e.getCode().equals("ATLAN-JAVA-400-000")
-                            && e.getMessage().equals("Server responded with ATLAS-400-00-029: Auth request failed")) {
-                        Thread.sleep(HttpClient.waitTime(retryCount).toMillis());
-                    }
-                } else {
-                    System.err.println("Overran retry limit (" + Atlan.getMaxNetworkRetries() + "), rethrowing exception.");
-                    throw e;
-                }
-            }
+        // "Auth request failed" while the connection's policies are set up is retried by AtlanCalls
+        AssetMutationResponse response = AtlanCalls.execute(AtlanCalls.CallType.SAVE, connection::save);
+        if (response == null || response.getCreatedAssets().isEmpty()) {
+            throw new RuntimeException("Failed to create connection");
         }
 
         Asset created_asset = response.getCreatedAssets().get(0);
@@ -305,39 +819,49 @@ public class AtlanAssetCreator {
     }
 
     /**
-     * Util method to retry the search until expected counted is reached
-     * @param request
-     * @param expectedCount
-     * @return
-     * @throws AtlanException
-     * @throws InterruptedException
+     * Expand the given listing locations: directories become the .xml files they contain, anything that is
+     * not on disk is treated as a resource name.
+     * @param locations
+     * @return listing names, in a stable order
+     * @throws IOException if a directory cannot be read
      */
-    private static IndexSearchResponse retrySearchUntil(IndexSearchRequest request, long expectedCount) throws AtlanException, InterruptedException {
-        int retryCount = 0;
-        IndexSearchResponse response = null;
-        while (retryCount < Atlan.getMaxNetworkRetries()) {
-            response = request.search();
-            if (response.getApproximateCount() >= expectedCount) {
-                return response;
+    private static List<String> resolveListings(List<String> locations) throws IOException {
+        List<String> listings = new ArrayList<>();
+        for (String location : locations) {
+            String trimmed = location.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            Path path = Paths.get(trimmed);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> files = Files.list(path)) {
+                    files.filter(f -> Files.isRegularFile(f) && f.getFileName().toString().endsWith(".xml"))
+                            .sorted()
+                            .forEach(f -> listings.add(f.toString()));
+                }
+            } else {
+                listings.add(trimmed);
             }
-            Thread.sleep(HttpClient.waitTime(++retryCount).toMillis());
         }
-        throw new RuntimeException("Failed to get expected search results after " + retryCount + " retries");
+        return listings;
     }
 
     /**
-     * Reads XML content from a resource file.
-     * @param fileName Name of the XML file in the resources folder
-     * @return String containing the XML content
-     * @throws IOException if there's an error reading the file
+     * Opens a listing as a stream, so large listings never have to be held in memory.
+     * @param listingName path of a file on disk, or name of a file in the resources folder
+     * @return InputStream over the listing content
+     * @throws IOException if the listing cannot be found
      */
-    private static String readXmlFromResource(String fileName) throws IOException {
-        try (InputStream inputStream = AtlanAssetCreator.class.getClassLoader().getResourceAsStream(fileName)) {
-            if (inputStream == null) {
-                throw new IOException("Resource not found: " + fileName);
-            }
-            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+    private static InputStream openListing(String listingName) throws IOException {
+        Path path = Paths.get(listingName);
+        if (Files.isRegularFile(path)) {
+            return new BufferedInputStream(Files.newInputStream(path));
+        }
+        InputStream inputStream = AtlanAssetCreator.class.getClassLoader().getResourceAsStream(listingName);
+        if (inputStream == null) {
+            throw new IOException("Listing not found: " + listingName);
         }
+        return new BufferedInputStream(inputStream);
     }
 
 }
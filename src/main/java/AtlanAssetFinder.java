@@ -1,48 +1,77 @@
+import co.elastic.clients.elasticsearch._types.SortOrder;
 import com.atlan.Atlan;
 import com.atlan.exception.AtlanException;
 import com.atlan.model.assets.Asset;
 import com.atlan.model.assets.Connection;
-import com.atlan.model.search.IndexSearchRequest;
-import com.atlan.model.search.IndexSearchResponse;
+import com.atlan.model.enums.AtlanConnectorType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class AtlanAssetFinder {
 
     private static final Logger logger = LoggerFactory.getLogger(AtlanAssetFinder.class);
 
+    // Searches over a whole connection are split into GUID-prefix slices, paged through concurrently
+    public static final int SEARCH_SLICES = AtlanSettings.getInt("ATLAN_SEARCH_SLICES", 16);
+    public static final int SEARCH_WORKERS = AtlanSettings.getInt("ATLAN_SEARCH_WORKERS", 4);
+    public static final int SEARCH_PAGE_SIZE = AtlanSettings.getInt("ATLAN_SEARCH_PAGE_SIZE", 500);
+    // Pages fetched but not yet consumed before fetching blocks
+    public static final int SEARCH_MAX_PAGES = AtlanSettings.getInt("ATLAN_SEARCH_MAX_PAGES", 8);
+    // Results returned by prefix, substring and fuzzy name queries, and edits allowed by fuzzy queries
+    public static final int NAME_QUERY_LIMIT = AtlanSettings.getInt("ATLAN_NAME_QUERY_LIMIT", 20);
+    public static final int NAME_MAX_DISTANCE = AtlanSettings.getInt("ATLAN_NAME_MAX_DISTANCE", 2);
+
     static {
         Atlan.setBaseUrl(System.getenv("ATLAN_BASE_URL"));
         Atlan.setApiToken(System.getenv("ATLAN_API_KEY"));
     }
 
     public static void main(String[] args) {
+        AtlanMetrics.start("asset-finder");
         try {
             // Example connection name and asset name
             String connectionName = "aws-s3-connection-njay-v1";
             String assetName = "SUPPLIERS.csv";
 
             // Find connection by name
-            Connection connection = findConnectionByName(connectionName);
+            Connection connection = AtlanLookups.findConnectionByName(connectionName, AtlanConnectorType.S3);
 
             if (connection != null) {
                 logger.debug("Found connection: {}", connection.getQualifiedName());
 
-                // Find asset within the connection by name
-                Asset asset = findAssetInConnectionByName(connection.getQualifiedName(), assetName);
-
-                if (asset != null) {
-                    logger.debug("Found asset: {}", asset.getQualifiedName());
+                // Find asset within the connection by name, offline when a snapshot has been taken
+                CatalogSnapshot.Entry snapshotEntry = findAssetInSnapshot(connection.getQualifiedName(), assetName);
+                if (snapshotEntry != null) {
+                    logger.debug("Found asset in snapshot: {}", snapshotEntry.getQualifiedName());
                 } else {
-                    logger.debug("Asset not found.");
+                    Asset asset = AtlanLookups.findAssetInConnectionByName(connection.getQualifiedName(), assetName);
+
+                    if (asset != null) {
+                        logger.debug("Found asset: {}", asset.getQualifiedName());
+                    } else {
+                        logger.debug("Asset not found.");
+                    }
                 }
 
-                // Find all assets within the connection
-                List<Asset> assets = findAssetsInConnection(connection.getQualifiedName());
-                logger.debug("Found {} assets in the connection.", assets.size());
-                assets.forEach(a -> logger.debug("Asset: {}", a.getQualifiedName()));
+                // Index the names of all assets within the connection, then query it locally
+                NameIndex index = loadNameIndex(connection.getQualifiedName());
+                logger.debug("Indexed {} assets ({} distinct names) in the connection.", index.size(), index.getNameCount());
+
+                String prefix = assetName.substring(0, Math.min(assetName.length(), 5));
+                index.prefix(prefix, NAME_QUERY_LIMIT).forEach(e -> logger.debug("Prefix {}: {}", prefix, e.getQualifiedName()));
+                String fragment = assetName.contains(".") ? assetName.substring(assetName.lastIndexOf('.')) : assetName;
+                index.substring(fragment, NAME_QUERY_LIMIT).forEach(e -> logger.debug("Contains {}: {}", fragment, e.getQualifiedName()));
+                String misspelt = assetName.length() > 1 ? assetName.substring(0, 1) + assetName.substring(2) : assetName;
+                index.fuzzy(misspelt, NAME_MAX_DISTANCE, NAME_QUERY_LIMIT).forEach(m ->
+                        logger.debug("Similar to {}: {} (distance {})", misspelt, m.getAsset().getQualifiedName(), m.getDistance()));
             } else {
                 logger.debug("Connection not found.");
             }
@@ -53,74 +82,85 @@ public class AtlanAssetFinder {
     }
 
     /**
-     * Finds a connection by its name.
+     * Finds an asset within a specific connection by its name, in the local catalog snapshot.
      *
-     * @param connectionName The name of the connection to find.
-     * @return The Connection object if found, null otherwise.
-     * @throws AtlanException If there's an error communicating with Atlan.
+     * @param connectionQualifiedName The qualified name of the connection to search within.
+     * @param assetName The name of the asset to find.
+     * @return The snapshot entry if found, null otherwise or if no snapshot has been taken.
+     * @throws IOException If the snapshot cannot be read.
      */
-    private static Connection findConnectionByName(String connectionName) throws AtlanException {
-        IndexSearchRequest request = Atlan.getDefaultClient()
-                .assets
-                .select()
-                .where(Asset.TYPE_NAME.eq(Connection.TYPE_NAME))
-                .where(Asset.NAME.eq(connectionName))
-                .pageSize(1)
-                .toRequest();
-
-        IndexSearchResponse response = request.search();
-
-        if (response.getAssets().isEmpty()) {
+    private static CatalogSnapshot.Entry findAssetInSnapshot(String connectionQualifiedName, String assetName) throws IOException {
+        Path file = Paths.get(AtlanCatalogSnapshot.SNAPSHOT_FILE);
+        if (!Files.exists(file)) {
             return null;
         }
-
-        return (Connection) response.getAssets().get(0);
+        try (CatalogSnapshot snapshot = CatalogSnapshot.open(file)) {
+            for (CatalogSnapshot.Entry entry : snapshot.findByName(assetName)) {
+                if (connectionQualifiedName.equals(entry.getConnectionQualifiedName())) {
+                    return entry;
+                }
+            }
+        }
+        return null;
     }
 
     /**
-     * Finds an asset within a specific connection by its name.
+     * Builds an in-memory index of the names of all assets within a specific connection, from the local
+     * catalog snapshot when one has been taken, otherwise from a paged export of the connection.
      *
-     * @param connectionQualifiedName The qualified name of the connection to search within.
-     * @param assetName The name of the asset to find.
-     * @return The Asset object if found, null otherwise.
-     * @throws AtlanException If there's an error communicating with Atlan.
+     * @param connectionQualifiedName The qualified name of the connection to index.
+     * @return The index, answering prefix, substring and fuzzy name queries without calling Atlan.
+     * @throws Exception If the snapshot cannot be read or there's an error communicating with Atlan.
      */
-    private static Asset findAssetInConnectionByName(String connectionQualifiedName, String assetName) throws AtlanException {
-        IndexSearchRequest request = Atlan.getDefaultClient()
-                .assets
-                .select()
-                .where(Asset.CONNECTION_QUALIFIED_NAME.eq(connectionQualifiedName))
-                .where(Asset.NAME.eq(assetName))
-                .pageSize(1)
-                .toRequest();
-
-        IndexSearchResponse response = request.search();
-
-        if (response.getAssets().isEmpty()) {
-            return null;
+    public static NameIndex loadNameIndex(String connectionQualifiedName) throws Exception {
+        long started = System.currentTimeMillis();
+        List<CatalogSnapshot.Entry> entries = new ArrayList<>();
+        Path file = Paths.get(AtlanCatalogSnapshot.SNAPSHOT_FILE);
+        if (Files.exists(file)) {
+            try (CatalogSnapshot snapshot = CatalogSnapshot.open(file)) {
+                snapshot.forEach(entry -> {
+                    if (connectionQualifiedName.equals(entry.getConnectionQualifiedName())) {
+                        entries.add(entry);
+                    }
+                });
+            }
         }
-
-        return response.getAssets().get(0);
+        if (entries.isEmpty()) {
+            findAssetsInConnection(connectionQualifiedName, page -> {
+                for (Asset asset : page) {
+                    entries.add(new CatalogSnapshot.Entry(asset.getGuid(), asset.getTypeName(), asset.getName(),
+                            asset.getQualifiedName(), asset.getConnectionQualifiedName()));
+                }
+            });
+        }
+        NameIndex index = NameIndex.build(entries);
+        logger.debug("Built name index of {} in {} ms", connectionQualifiedName, System.currentTimeMillis() - started);
+        return index;
     }
 
     /**
-     * Finds all assets within a specific connection.
+     * Finds all assets within a specific connection, streaming them a page at a time.
      *
      * @param connectionQualifiedName The qualified name of the connection to search within.
-     * @return A list of Asset objects found in the connection.
+     * @param consumer Receives every page of assets found in the connection.
+     * @return The number of assets found in the connection.
      * @throws AtlanException If there's an error communicating with Atlan.
+     * @throws InterruptedException If interrupted while waiting for the search.
      */
-    private static List<Asset> findAssetsInConnection(String connectionQualifiedName) throws AtlanException {
-        IndexSearchRequest request = Atlan.getDefaultClient()
-                .assets
-                .select()
+    private static long findAssetsInConnection(String connectionQualifiedName, AtlanSearch.PageConsumer consumer)
+            throws AtlanException, InterruptedException {
+        AtlanSearch.Slicer search = AtlanSearch.byGuid(() -> AtlanSearch.select(Projection.IDENTITY)
                 .where(Asset.CONNECTION_QUALIFIED_NAME.eq(connectionQualifiedName))
-                .pageSize(100) // Adjust the page size as needed
-                .toRequest();
-
-        IndexSearchResponse response = request.search();
-
-        return response.getAssets();
+                .pageSize(SEARCH_PAGE_SIZE)
+                .sort(Asset.GUID.order(SortOrder.Asc)));
+
+        AtomicLong found = new AtomicLong();
+        int pages = AtlanSearch.forEachPage(search, SEARCH_SLICES, SEARCH_WORKERS, SEARCH_MAX_PAGES, page -> {
+            found.addAndGet(page.size());
+            consumer.accept(page);
+        });
+        logger.debug("Searched {} in {} page(s)", connectionQualifiedName, pages);
+        return found.get();
     }
 
 }
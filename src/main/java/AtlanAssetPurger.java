@@ -1,19 +1,40 @@
+import co.elastic.clients.elasticsearch._types.SortOrder;
 import com.atlan.Atlan;
 import com.atlan.model.assets.Asset;
-import com.atlan.model.core.AssetMutationResponse;
+import com.atlan.model.assets.Connection;
 import com.atlan.model.enums.AtlanConnectorType;
+import com.atlan.model.enums.AtlanDeleteType;
+import com.atlan.model.search.FluentSearch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 
 public class AtlanAssetPurger {
 
     private static final Logger logger = LoggerFactory.getLogger(AtlanAssetPurger.class);
 
-    public static final AtlanConnectorType CONNECTOR_TYPE = AtlanConnectorType.S3;
-    public static final String CONNECTION_NAME = "aws-s3-connection-njay";
+    // Assets to purge: those of a connection (connectorType:connectionName), optionally narrowed by type and
+    // qualified-name prefix; or an explicit comma separated list of GUIDs, which skips the search
+    public static final String PURGE_CONNECTION = AtlanSettings.get("ATLAN_PURGE_CONNECTION", "s3:aws-s3-connection-njay");
+    public static final String PURGE_TYPE = AtlanSettings.get("ATLAN_PURGE_TYPE", "");
+    public static final String PURGE_QN_PREFIX = AtlanSettings.get("ATLAN_PURGE_QN_PREFIX", "");
+    public static final String PURGE_GUIDS = AtlanSettings.get("ATLAN_PURGE_GUIDS", "");
+    // SOFT (archive), HARD or PURGE
+    public static final AtlanDeleteType PURGE_DELETE_TYPE = AtlanDeleteType.valueOf(AtlanSettings.get("ATLAN_PURGE_DELETE_TYPE", "SOFT"));
+    // Only count (and sample) what would be deleted
+    public static final boolean PURGE_DRY_RUN = AtlanSettings.getBoolean("ATLAN_PURGE_DRY_RUN", true);
+    public static final int PURGE_BATCH_SIZE = AtlanSettings.getInt("ATLAN_PURGE_BATCH_SIZE", 100);
+    public static final int PURGE_WORKERS = AtlanSettings.getInt("ATLAN_PURGE_WORKERS", 4);
+    public static final int PURGE_REPORT_SECONDS = AtlanSettings.getInt("ATLAN_PURGE_REPORT_SECONDS", 10);
+
+    private static final int DRY_RUN_SAMPLE = 20;
 
     static {
         Atlan.setBaseUrl(System.getenv("ATLAN_BASE_URL"));
@@ -25,22 +46,93 @@ public class AtlanAssetPurger {
      * @param args
      */
     public static void main(String[] args) {
+        AtlanMetrics.start("asset-purger");
         logger.info("Starting Atlan Asset Deletion ...");
 
         try{
-            AssetMutationResponse response =
-                    Asset.delete("64555684-78f7-43b1-af46-d9a270873d98"); //
-
-            List<Asset> deleteAsset = response.getDeletedAssets();
-            logger.warn("asset empty "+ deleteAsset.isEmpty());
-            if(null != response.getDeletedAssets() && ! response.getDeletedAssets().isEmpty()) {
-                Asset deleted = response.getDeletedAssets().get(0);
-                logger.info("Deleted --> " + deleted);
+            List<String> guids;
+            if (!PURGE_GUIDS.isBlank()) {
+                guids = Arrays.stream(PURGE_GUIDS.split(",")).map(String::trim).filter(g -> !g.isEmpty()).collect(Collectors.toList());
+            } else {
+                String connectionQualifiedName = null;
+                if (!PURGE_CONNECTION.isBlank()) {
+                    int separator = PURGE_CONNECTION.indexOf(':');
+                    if (separator <= 0) {
+                        logger.error("Expected connectorType:connectionName in ATLAN_PURGE_CONNECTION, got: {}", PURGE_CONNECTION);
+                        return;
+                    }
+                    Connection connection = AtlanLookups.findConnectionByName(PURGE_CONNECTION.substring(separator + 1),
+                            AtlanConnectorType.fromValue(PURGE_CONNECTION.substring(0, separator)));
+                    if (connection == null) {
+                        logger.error("Connection not found: {}", PURGE_CONNECTION);
+                        return;
+                    }
+                    connectionQualifiedName = connection.getQualifiedName();
+                } else if (PURGE_QN_PREFIX.isBlank()) {
+                    // never delete across the whole tenant by accident
+                    logger.error("Set ATLAN_PURGE_CONNECTION, ATLAN_PURGE_QN_PREFIX or ATLAN_PURGE_GUIDS to choose what to purge");
+                    return;
+                }
+                guids = findAssetsToPurge(connectionQualifiedName, PURGE_TYPE, PURGE_QN_PREFIX);
+            }
+
+            if (PURGE_DRY_RUN) {
+                logger.info("Dry run: {} asset(s) would be {} deleted; set ATLAN_PURGE_DRY_RUN=false to delete them",
+                        guids.size(), PURGE_DELETE_TYPE);
+                return;
             }
+            AssetBatchDeleter deleter = new AssetBatchDeleter(Atlan.getDefaultClient(), PURGE_DELETE_TYPE, PURGE_BATCH_SIZE);
+            deleter.deleteAll("purge", guids, PURGE_WORKERS, PURGE_REPORT_SECONDS);
 
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Finds the GUIDs of every asset matching the purge filters, paging through GUID slices concurrently.
+     * Discovery completes before anything is deleted, so deletions never shift the pages still to be read.
+     *
+     * @param connectionQualifiedName only assets of this connection, or null for any connection
+     * @param typeName only assets of this type, or empty for any type
+     * @param qualifiedNamePrefix only assets whose qualified name starts with this, or empty for any
+     * @return GUIDs of the matching assets
+     * @throws Exception If there's an error communicating with Atlan.
+     */
+    private static List<String> findAssetsToPurge(String connectionQualifiedName, String typeName, String qualifiedNamePrefix)
+            throws Exception {
+        AtlanSearch.Slicer search = AtlanSearch.byGuid(() -> {
+            // archived assets are already soft-deleted, but still there to be hard-deleted
+            FluentSearch.FluentSearchBuilder<?, ?> builder = AtlanSearch.select(Projection.IDENTITY, PURGE_DELETE_TYPE != AtlanDeleteType.SOFT)
+                    .pageSize(AtlanAssetFinder.SEARCH_PAGE_SIZE)
+                    .sort(Asset.GUID.order(SortOrder.Asc));
+            if (connectionQualifiedName != null) {
+                builder.where(Asset.CONNECTION_QUALIFIED_NAME.eq(connectionQualifiedName));
+            }
+            if (!typeName.isBlank()) {
+                builder.where(Asset.TYPE_NAME.eq(typeName));
+            }
+            if (!qualifiedNamePrefix.isBlank()) {
+                builder.where(Asset.QUALIFIED_NAME.startsWith(qualifiedNamePrefix));
+            }
+            return builder;
+        });
+
+        List<String> guids = new ArrayList<>();
+        Map<String, Integer> byType = new TreeMap<>();
+        List<String> sample = new ArrayList<>();
+        AtlanSearch.forEachPage(search, AtlanAssetFinder.SEARCH_SLICES, AtlanAssetFinder.SEARCH_WORKERS, AtlanAssetFinder.SEARCH_MAX_PAGES, page -> {
+            for (Asset asset : page) {
+                guids.add(asset.getGuid());
+                byType.merge(asset.getTypeName(), 1, Integer::sum);
+                if (sample.size() < DRY_RUN_SAMPLE) {
+                    sample.add(asset.getTypeName() + " " + asset.getQualifiedName());
+                }
+            }
+        });
+        logger.info("Found {} asset(s) to purge, by type: {}", guids.size(), byType);
+        logger.info("First {}: {}", sample.size(), sample);
+        return guids;
+    }
+
 }
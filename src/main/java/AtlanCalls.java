@@ -0,0 +1,485 @@
+import com.atlan.Atlan;
+import com.atlan.exception.ApiConnectionException;
+import com.atlan.exception.ApiException;
+import com.atlan.exception.AtlanException;
+import com.atlan.exception.InvalidRequestException;
+import com.atlan.exception.RateLimitException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Central execution layer for every Atlan API call made by the tools.
+ * <ul>
+ *     <li>a token-bucket rate limit per {@link RateClass} (searches vs. mutations), whose rate adapts:
+ *     it is halved (at most once a second) when the server throttles, and climbs back linearly over time towards
+ *     the configured ceiling while calls succeed</li>
+ *     <li>retries of throttled and transient failures with jittered exponential backoff, honouring the server's
+ *     Retry-After hint; the SDK's own retries are disabled, so every attempt goes through these rules</li>
+ *     <li>a circuit breaker per {@link RateClass} that fails fast while the recent rate of transient server or
+ *     connection failures is too high; throttles are left to the rate limit and never open it</li>
+ *     <li>metrics per {@link CallType}: duration of every attempt, retries, throttles and calls that failed</li>
+ * </ul>
+ */
+public class AtlanCalls {
+
+    private static final Logger logger = LoggerFactory.getLogger(AtlanCalls.class);
+
+    // Ceiling of calls per second for each rate class; the actual rate adapts below it
+    public static final int SEARCH_RATE = AtlanSettings.getInt("ATLAN_SEARCH_RATE", 20);
+    public static final int MUTATE_RATE = AtlanSettings.getInt("ATLAN_MUTATE_RATE", 10);
+    public static final int MAX_RETRIES = AtlanSettings.getInt("ATLAN_CALL_MAX_RETRIES", 5);
+    public static final int BACKOFF_BASE_MILLIS = AtlanSettings.getInt("ATLAN_BACKOFF_BASE_MILLIS", 250);
+    public static final int BACKOFF_MAX_MILLIS = AtlanSettings.getInt("ATLAN_BACKOFF_MAX_MILLIS", 30_000);
+    // Seconds of throttle-free calls for the rate to climb back from the floor to its ceiling
+    public static final int RATE_RECOVERY_SECONDS = AtlanSettings.getInt("ATLAN_RATE_RECOVERY_SECONDS", 60);
+    // Circuit opens when at least this percentage of the last calls in the window failed
+    public static final int CIRCUIT_WINDOW = AtlanSettings.getInt("ATLAN_CIRCUIT_WINDOW", 50);
+    public static final int CIRCUIT_FAILURE_PERCENT = AtlanSettings.getInt("ATLAN_CIRCUIT_FAILURE_PERCENT", 50);
+    public static final int CIRCUIT_OPEN_SECONDS = AtlanSettings.getInt("ATLAN_CIRCUIT_OPEN_SECONDS", 30);
+
+    /**
+     * Rate limits and circuits are kept per class of endpoint.
+     */
+    public enum RateClass {
+        READ,
+        MUTATE
+    }
+
+    /**
+     * The kinds of call the tools make.
+     */
+    public enum CallType {
+        SEARCH(RateClass.READ),
+        GET(RateClass.READ),
+        LINEAGE(RateClass.READ),
+        SAVE(RateClass.MUTATE),
+        DELETE(RateClass.MUTATE);
+
+        private final RateClass rateClass;
+
+        CallType(RateClass rateClass) {
+            this.rateClass = rateClass;
+        }
+
+        public RateClass getRateClass() {
+            return rateClass;
+        }
+    }
+
+    /**
+     * A single Atlan API call.
+     * @param <T> result type
+     */
+    public interface Call<T> {
+        T call() throws AtlanException;
+    }
+
+    /**
+     * Thrown instead of calling Atlan while a circuit is open. Callers that handle {@link AtlanException} per
+     * batch or per item must handle this too: it fails everything in flight, and says nothing about its content.
+     */
+    public static class CircuitOpenException extends RuntimeException {
+        public CircuitOpenException(String message) {
+            super(message);
+        }
+    }
+
+    private static final Map<RateClass, TokenBucket> buckets = new EnumMap<>(RateClass.class);
+    private static final Map<RateClass, CircuitBreaker> circuits = new EnumMap<>(RateClass.class);
+    private static final Map<CallType, CallMetrics> metrics = new EnumMap<>(CallType.class);
+
+    // Atlan's throttle responses may say when to come back, e.g. "Retry-After: 5"
+    private static final Pattern RETRY_AFTER = Pattern.compile("(?i)retry[- _]?after\\D{0,16}?(\\d+(?:\\.\\d+)?)");
+
+    static {
+        // retries are owned here: SDK retries would multiply attempts and bypass the rate limit and the circuit
+        Atlan.setMaxNetworkRetries(0);
+        buckets.put(RateClass.READ, new TokenBucket(SEARCH_RATE, RATE_RECOVERY_SECONDS, System::nanoTime));
+        buckets.put(RateClass.MUTATE, new TokenBucket(MUTATE_RATE, RATE_RECOVERY_SECONDS, System::nanoTime));
+        for (RateClass rateClass : RateClass.values()) {
+            circuits.put(rateClass, new CircuitBreaker(rateClass, CIRCUIT_WINDOW, CIRCUIT_FAILURE_PERCENT, CIRCUIT_OPEN_SECONDS * 1000L,
+                    System::nanoTime));
+            AtlanMetrics.gauge("atlan_call_rate_limit", "Calls per second currently permitted by the adaptive rate limit",
+                    () -> getCurrentRate(rateClass), "class", rateClass.name().toLowerCase());
+        }
+        for (CallType type : CallType.values()) {
+            metrics.put(type, new CallMetrics(type));
+        }
+    }
+
+    private AtlanCalls() {
+    }
+
+    /**
+     * Execute a call under the rate limit, retry and circuit rules of its type
+     * @param type kind of call
+     * @param call the call itself
+     * @return the result of the call
+     * @throws AtlanException the last error, once retries are exhausted or if it is not retryable
+     * @throws CircuitOpenException if the circuit for this type of call is open
+     */
+    public static <T> T execute(CallType type, Call<T> call) throws AtlanException {
+        RateClass rateClass = type.getRateClass();
+        TokenBucket bucket = buckets.get(rateClass);
+        CircuitBreaker circuit = circuits.get(rateClass);
+        CallMetrics callMetrics = metrics.get(type);
+
+        long backoff = BACKOFF_BASE_MILLIS;
+        int attempt = 0;
+        while (true) {
+            boolean probe;
+            try {
+                probe = circuit.before();
+            } catch (CircuitOpenException e) {
+                callMetrics.rejected.increment();
+                throw e;
+            }
+            long started;
+            try {
+                bucket.acquire();
+                started = System.nanoTime();
+            } catch (RuntimeException e) {
+                circuit.abandon(probe);
+                throw e;
+            }
+            try {
+                T result = call.call();
+                callMetrics.duration.observeSince(started);
+                bucket.onSuccess();
+                circuit.record(true, probe);
+                return result;
+            } catch (AtlanException e) {
+                callMetrics.duration.observeSince(started);
+                boolean throttled = isThrottle(e);
+                boolean retryable = throttled || isTransient(e);
+                circuit.recordError(e, probe);
+                long retryAfter = throttled ? retryAfterMillis(e) : 0;
+                if (throttled) {
+                    callMetrics.throttles.increment();
+                    bucket.onThrottle(retryAfter);
+                }
+                if (!retryable || attempt >= MAX_RETRIES) {
+                    callMetrics.failures.increment();
+                    throw e;
+                }
+                callMetrics.retries.increment();
+                attempt++;
+                // exponential backoff with "decorrelated" jitter, so throttled workers do not retry in lockstep
+                backoff = Math.min(BACKOFF_MAX_MILLIS, ThreadLocalRandom.current().nextLong(BACKOFF_BASE_MILLIS, backoff * 3 + 1));
+                long wait = Math.max(backoff, retryAfter);
+                logger.debug("{} call {} (attempt {}), retrying in {} ms: {}", type,
+                        throttled ? "throttled" : "failed", attempt, wait, e.getMessage());
+                sleep(wait);
+            } catch (RuntimeException e) {
+                // not a response from Atlan, but a probe must still settle the circuit
+                callMetrics.duration.observeSince(started);
+                circuit.abandon(probe);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * @return current permitted calls per second for a rate class
+     */
+    public static double getCurrentRate(RateClass rateClass) {
+        return buckets.get(rateClass).getRate();
+    }
+
+    /**
+     * @param e
+     * @return true if the error is a throttle or transient server failure, rather than a problem with the request
+     */
+    public static boolean isRetryable(AtlanException e) {
+        return isThrottle(e) || isTransient(e);
+    }
+
+    private static boolean isThrottle(AtlanException e) {
+        if (e instanceof RateLimitException) {
+            return true;
+        }
+        Integer status = e.getHttpStatusCode();
+        return status != null && status == 429;
+    }
+
+    /**
+     * The SDK does not expose response headers, so a Retry-After value is only seen when Atlan repeats it in the
+     * error it returns
+     * @return how long the server asked callers to wait, in milliseconds, or 0 if it did not say
+     */
+    static long retryAfterMillis(AtlanException e) {
+        if (e.getMessage() == null) {
+            return 0;
+        }
+        Matcher matcher = RETRY_AFTER.matcher(e.getMessage());
+        if (!matcher.find()) {
+            return 0;
+        }
+        // honoured, but within reason: a bogus value must not stall the tools for hours
+        return Math.min((long) (Double.parseDouble(matcher.group(1)) * 1000), 10L * BACKOFF_MAX_MILLIS);
+    }
+
+    private static boolean isTransient(AtlanException e) {
+        if (e instanceof ApiConnectionException) {
+            return true;
+        }
+        // "Auth request failed" is returned while the policies of a new connection are still being set up
+        if (e instanceof InvalidRequestException && e.getMessage() != null && e.getMessage().contains("ATLAS-400-00-029")) {
+            return true;
+        }
+        Integer status = e.getHttpStatusCode();
+        return e instanceof ApiException || (status != null && status >= 500);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to call Atlan", e);
+        }
+    }
+
+    /**
+     * Metrics of one type of call.
+     */
+    private static final class CallMetrics {
+        private final AtlanMetrics.Histogram duration;
+        private final AtlanMetrics.Counter retries;
+        private final AtlanMetrics.Counter throttles;
+        private final AtlanMetrics.Counter failures;
+        private final AtlanMetrics.Counter rejected;
+
+        private CallMetrics(CallType type) {
+            String name = type.name().toLowerCase();
+            duration = AtlanMetrics.timer("atlan_call_seconds", "Duration of each attempt of an Atlan API call", "type", name);
+            retries = AtlanMetrics.counter("atlan_call_retries_total", "Attempts retried after a throttle or transient failure", "type", name);
+            throttles = AtlanMetrics.counter("atlan_call_throttles_total", "Attempts throttled by Atlan (HTTP 429)", "type", name);
+            failures = AtlanMetrics.counter("atlan_call_failures_total", "Calls that failed for good, after any retries", "type", name);
+            rejected = AtlanMetrics.counter("atlan_call_circuit_rejections_total", "Calls refused without trying while the circuit was open", "type", name);
+        }
+    }
+
+    /**
+     * Token bucket with an additive-increase / multiplicative-decrease rate, both paced by time rather than by
+     * the number of calls: the rate climbs by maxRate / {@link #RATE_RECOVERY_SECONDS} per second of successful
+     * calls, and is halved at most once per {@link #DECREASE_INTERVAL_NANOS}, however many calls in flight
+     * were throttled by the same burst.
+     */
+    static final class TokenBucket {
+        static final long DECREASE_INTERVAL_NANOS = 1_000_000_000L;
+
+        private final LongSupplier clock;
+        private final double maxRate;
+        private final double minRate;
+        private final double increasePerSecond;
+        private double rate;
+        private double tokens;
+        private long lastRefill;
+        private long lastIncrease;
+        private long lastDecrease;
+        private long pausedUntil;
+
+        /**
+         * @param maxRate ceiling of calls per second
+         * @param recoverySeconds seconds for the rate to climb from its floor back to the ceiling
+         * @param clock source of {@link System#nanoTime()}-like readings
+         */
+        TokenBucket(double maxRate, int recoverySeconds, LongSupplier clock) {
+            this.clock = clock;
+            this.maxRate = Math.max(0.1, maxRate);
+            this.minRate = Math.min(this.maxRate, 0.5);
+            this.increasePerSecond = (this.maxRate - this.minRate) / Math.max(1, recoverySeconds);
+            this.rate = this.maxRate;
+            this.tokens = this.maxRate;
+            this.lastRefill = clock.getAsLong();
+            this.lastIncrease = lastRefill;
+            this.lastDecrease = lastRefill - DECREASE_INTERVAL_NANOS;
+            this.pausedUntil = lastRefill;
+        }
+
+        private void acquire() {
+            long waitNanos = reserve();
+            if (waitNanos > 0) {
+                sleep(waitNanos / 1_000_000L + 1);
+            }
+        }
+
+        /**
+         * Take a token
+         * @return nanoseconds to wait before calling
+         */
+        synchronized long reserve() {
+            refill();
+            tokens -= 1;
+            // a negative balance is a reservation: wait until it has been paid back
+            long waitNanos = tokens >= 0 ? 0 : (long) (-tokens / rate * 1e9);
+            // and nobody calls before a Retry-After has passed
+            return Math.max(waitNanos, pausedUntil - clock.getAsLong());
+        }
+
+        synchronized void onSuccess() {
+            long now = clock.getAsLong();
+            // a long quiet spell is no evidence the server would take more, so credit at most a second per call
+            double seconds = Math.min(1.0, Math.max(0, now - lastIncrease) / 1e9);
+            rate = Math.min(maxRate, rate + increasePerSecond * seconds);
+            lastIncrease = now;
+        }
+
+        /**
+         * @param retryAfterMillis how long the server asked every caller to wait, or 0
+         */
+        synchronized void onThrottle(long retryAfterMillis) {
+            refill();
+            long now = clock.getAsLong();
+            if (now - lastDecrease >= DECREASE_INTERVAL_NANOS) {
+                rate = Math.max(minRate, rate / 2);
+                lastDecrease = now;
+            }
+            // climbing starts again from the last throttle
+            lastIncrease = now;
+            tokens = Math.min(tokens, 0);
+            if (retryAfterMillis > 0) {
+                pausedUntil = Math.max(pausedUntil, now + retryAfterMillis * 1_000_000L);
+            }
+        }
+
+        synchronized double getRate() {
+            return rate;
+        }
+
+        private void refill() {
+            long now = clock.getAsLong();
+            tokens = Math.min(rate, tokens + (now - lastRefill) / 1e9 * rate);
+            lastRefill = now;
+        }
+    }
+
+    /**
+     * Sliding-window circuit breaker: closed, open for a cool-down, then half-open for a single probe. Only the
+     * probe's outcome closes or re-opens the circuit; calls that were already in flight when it opened finish
+     * without counting. Only transient server or connection failures count against the window: throttles are
+     * the rate limit's business, and client errors say nothing about the health of the server.
+     */
+    static final class CircuitBreaker {
+        private static final long CLOSED = Long.MIN_VALUE;
+
+        private final RateClass rateClass;
+        private final boolean[] outcomes;
+        private final int failurePercent;
+        private final long openNanos;
+        private final LongSupplier clock;
+        private int next;
+        private int recorded;
+        private int failures;
+        private long openedAt = CLOSED;
+        private boolean probing;
+
+        /**
+         * @param rateClass calls the circuit guards, for messages
+         * @param window number of recent calls whose outcomes are kept
+         * @param failurePercent share of failures in the window that opens the circuit
+         * @param openMillis cool-down before a probe is let through
+         * @param clock source of {@link System#nanoTime()}-like readings
+         */
+        CircuitBreaker(RateClass rateClass, int window, int failurePercent, long openMillis, LongSupplier clock) {
+            this.rateClass = rateClass;
+            this.outcomes = new boolean[Math.max(1, window)];
+            this.failurePercent = failurePercent;
+            this.openNanos = openMillis * 1_000_000L;
+            this.clock = clock;
+        }
+
+        /**
+         * @return true if the call about to be made is the probe of a half-open circuit
+         * @throws CircuitOpenException if the circuit is open, or half-open with its probe in flight
+         */
+        synchronized boolean before() {
+            if (openedAt == CLOSED) {
+                return false;
+            }
+            if (clock.getAsLong() - openedAt < openNanos || probing) {
+                throw new CircuitOpenException("Circuit for " + rateClass + " calls to Atlan is open after "
+                        + failures + " failures in the last " + recorded + " calls");
+            }
+            // half-open: let exactly one call through to probe the server
+            probing = true;
+            return true;
+        }
+
+        /**
+         * Record a call that Atlan answered with an error
+         * @param e the error
+         * @param probe whether the call was the probe
+         */
+        synchronized void recordError(AtlanException e, boolean probe) {
+            if (isThrottle(e)) {
+                // the server answered: a throttled probe shows it is back, and other throttles do not count
+                if (probe) {
+                    record(true, true);
+                }
+                return;
+            }
+            record(!isTransient(e), probe);
+        }
+
+        /**
+         * @param success whether the call succeeded, as far as the health of the server goes
+         * @param probe whether the call was the probe
+         */
+        synchronized void record(boolean success, boolean probe) {
+            if (probe) {
+                probing = false;
+                if (success) {
+                    logger.info("Circuit for {} calls closed", rateClass);
+                    openedAt = CLOSED;
+                    reset();
+                } else {
+                    openedAt = clock.getAsLong();
+                }
+                return;
+            }
+            if (openedAt != CLOSED) {
+                // started before the circuit opened: only the probe decides from here
+                return;
+            }
+            if (recorded == outcomes.length && !outcomes[next]) {
+                failures--;
+            }
+            outcomes[next] = success;
+            if (!success) {
+                failures++;
+            }
+            next = (next + 1) % outcomes.length;
+            recorded = Math.min(recorded + 1, outcomes.length);
+            if (recorded >= Math.min(outcomes.length, 10) && failures * 100 >= failurePercent * recorded) {
+                logger.warn("Circuit for {} calls opened: {} failures in the last {} calls", rateClass, failures, recorded);
+                openedAt = clock.getAsLong();
+            }
+        }
+
+        /**
+         * A call ended without an answer from Atlan: if it was the probe, the circuit stays open for another
+         * cool-down rather than waiting forever for the probe's outcome
+         */
+        synchronized void abandon(boolean probe) {
+            if (probe) {
+                probing = false;
+                openedAt = clock.getAsLong();
+            }
+        }
+
+        private void reset() {
+            next = 0;
+            recorded = 0;
+            failures = 0;
+        }
+    }
+}
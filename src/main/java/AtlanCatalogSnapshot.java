@@ -0,0 +1,151 @@
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import com.atlan.Atlan;
+import com.atlan.model.assets.Asset;
+import com.atlan.model.assets.Connection;
+import com.atlan.model.enums.AtlanConnectorType;
+import com.atlan.model.enums.AtlanStatus;
+import com.atlan.model.search.FluentSearch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exports the identity of every asset of a connection into a {@link CatalogSnapshot}, for offline lookups.
+ * If the snapshot already exists, only the assets updated since it was taken are fetched and merged in;
+ * assets archived in the meantime are dropped from it. Purged assets never show up in a search again, so the
+ * snapshot is exported in full every {@link #SNAPSHOT_FULL_EVERY_HOURS}, and whenever the existing snapshot
+ * is of another connection.
+ */
+public class AtlanCatalogSnapshot {
+
+    static {
+        Atlan.setBaseUrl(System.getenv("ATLAN_BASE_URL"));
+        Atlan.setApiToken(System.getenv("ATLAN_API_KEY"));
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(AtlanCatalogSnapshot.class);
+
+    // Connection to export, as connectorType:connectionName, and where its snapshot is kept
+    public static final String SNAPSHOT_CONNECTION = AtlanSettings.get("ATLAN_SNAPSHOT_CONNECTION", "s3:aws-s3-connection-njay-v1");
+    public static final String SNAPSHOT_FILE = AtlanSettings.get("ATLAN_SNAPSHOT_FILE",
+            Paths.get(AtlanSettings.get("ATLAN_STATE_DIR", "state"), "catalog.snapshot").toString());
+    // Ignore an existing snapshot and export everything again
+    public static final boolean SNAPSHOT_FULL = AtlanSettings.getBoolean("ATLAN_SNAPSHOT_FULL", false);
+    // Export everything again when the last full export is older than this, dropping purged assets; 0 for never
+    public static final int SNAPSHOT_FULL_EVERY_HOURS = AtlanSettings.getInt("ATLAN_SNAPSHOT_FULL_EVERY_HOURS", 24 * 7);
+
+    /**
+     * Main method to take or refresh the snapshot.
+     *
+     * @param args Command line arguments (not used)
+     */
+    public static void main(String[] args) {
+        AtlanMetrics.start("catalog-snapshot");
+        try {
+            int separator = SNAPSHOT_CONNECTION.indexOf(':');
+            if (separator <= 0) {
+                logger.error("Expected connectorType:connectionName in ATLAN_SNAPSHOT_CONNECTION, got: {}", SNAPSHOT_CONNECTION);
+                return;
+            }
+            String connectionName = SNAPSHOT_CONNECTION.substring(separator + 1);
+            Connection connection = AtlanLookups.findConnectionByName(connectionName,
+                    AtlanConnectorType.fromValue(SNAPSHOT_CONNECTION.substring(0, separator)));
+            if (connection == null) {
+                logger.error("Connection not found: {}", SNAPSHOT_CONNECTION);
+                return;
+            }
+            export(connection.getQualifiedName(), Paths.get(SNAPSHOT_FILE), !SNAPSHOT_FULL);
+        } catch (Exception e) {
+            logger.error("An error occurred:", e);
+        }
+    }
+
+    /**
+     * Take a snapshot of a connection, or refresh an existing one
+     * @param connectionQualifiedName
+     * @param file
+     * @param incremental whether an existing snapshot is refreshed rather than taken again from scratch
+     * @throws Exception
+     */
+    public static void export(String connectionQualifiedName, Path file, boolean incremental) throws Exception {
+        long started = System.currentTimeMillis();
+        Map<String, CatalogSnapshot.Entry> entries = new LinkedHashMap<>();
+        long since = 0;
+        long fullExportTime = started;
+        if (incremental && Files.exists(file)) {
+            try (CatalogSnapshot previous = CatalogSnapshot.open(file)) {
+                String fullReason = needsFullExport(previous, connectionQualifiedName, started);
+                if (fullReason == null) {
+                    previous.forEach(entry -> entries.put(entry.getGuid(), entry));
+                    since = previous.getLastUpdateTime();
+                    fullExportTime = previous.getFullExportTime();
+                    logger.info("Refreshing snapshot of {} asset(s) with changes since {}", entries.size(), since);
+                } else {
+                    logger.info("Exporting {} in full: {}", connectionQualifiedName, fullReason);
+                }
+            } catch (IOException e) {
+                logger.warn("Exporting {} in full: unreadable snapshot {}: {}", connectionQualifiedName, file, e.getMessage());
+            }
+        }
+
+        long changedSince = since;
+        AtlanSearch.Slicer search = AtlanSearch.byGuid(() -> {
+            // archived assets are only needed to drop them from an existing snapshot
+            FluentSearch.FluentSearchBuilder<?, ?> builder = AtlanSearch.select(Projection.IDENTITY, changedSince > 0)
+                    .where(Asset.CONNECTION_QUALIFIED_NAME.eq(connectionQualifiedName))
+                    .pageSize(AtlanAssetFinder.SEARCH_PAGE_SIZE)
+                    .sort(Asset.GUID.order(SortOrder.Asc));
+            if (changedSince > 0) {
+                // changes made in the same millisecond as the previous snapshot are fetched again, not missed
+                builder.where(Asset.UPDATE_TIME.gte(changedSince));
+            }
+            return builder;
+        });
+
+        AtomicLong lastUpdate = new AtomicLong(since);
+        AtomicLong changed = new AtomicLong();
+        AtomicLong removed = new AtomicLong();
+        AtlanSearch.forEachPage(search, AtlanAssetFinder.SEARCH_SLICES, AtlanAssetFinder.SEARCH_WORKERS, AtlanAssetFinder.SEARCH_MAX_PAGES, page -> {
+            for (Asset asset : page) {
+                if (asset.getUpdateTime() != null && asset.getUpdateTime() > lastUpdate.get()) {
+                    lastUpdate.set(asset.getUpdateTime());
+                }
+                // archived (DELETED) or purged since the previous snapshot
+                if (asset.getStatus() != null && asset.getStatus() != AtlanStatus.ACTIVE) {
+                    if (entries.remove(asset.getGuid()) != null) {
+                        removed.incrementAndGet();
+                    }
+                    continue;
+                }
+                entries.put(asset.getGuid(), new CatalogSnapshot.Entry(asset.getGuid(), asset.getTypeName(), asset.getName(),
+                        asset.getQualifiedName(), asset.getConnectionQualifiedName()));
+                changed.incrementAndGet();
+            }
+        });
+
+        CatalogSnapshot.write(file, connectionQualifiedName, entries.values(), lastUpdate.get(), fullExportTime);
+        logger.info("Snapshot of {} written to {}: {} asset(s), {} fetched, {} removed, in {} ms", connectionQualifiedName, file,
+                entries.size(), changed.get(), removed.get(), System.currentTimeMillis() - started);
+    }
+
+    /**
+     * @return why an existing snapshot cannot just be refreshed, or null if it can
+     */
+    private static String needsFullExport(CatalogSnapshot previous, String connectionQualifiedName, long now) {
+        if (!connectionQualifiedName.equals(previous.getConnectionQualifiedName())) {
+            return "the existing snapshot is of connection " + previous.getConnectionQualifiedName();
+        }
+        if (SNAPSHOT_FULL_EVERY_HOURS > 0 && now - previous.getFullExportTime() > SNAPSHOT_FULL_EVERY_HOURS * 3_600_000L) {
+            return "the last full export, dropping purged assets, was at " + Instant.ofEpochMilli(previous.getFullExportTime());
+        }
+        return null;
+    }
+}
@@ -1,23 +1,32 @@
 import com.atlan.Atlan;
 import com.atlan.exception.AtlanException;
+import com.atlan.exception.InvalidRequestException;
 import com.atlan.model.assets.*;
-import com.atlan.model.core.AssetMutationResponse;
-import com.atlan.model.enums.AtlanLineageDirection;
-import com.atlan.model.lineage.FluentLineage;
-import com.atlan.model.search.IndexSearchRequest;
-import com.atlan.model.search.IndexSearchResponse;
+import com.atlan.model.enums.AtlanConnectorType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
 
 public class AtlanLineageCreator {
 
@@ -29,9 +38,35 @@ public class AtlanLineageCreator {
     public static final String s3ConnectionName = "aws-s3-connection-njay-v1";
     public static final String postgresConnectionName = "postgres-naj";
     public static final String snowflakeConnectionConnectionName = "snowflake-naj";
+    public static final AtlanConnectorType s3ConnectorType = AtlanConnectorType.S3;
+    public static final AtlanConnectorType postgresConnectorType = AtlanConnectorType.POSTGRES;
+    public static final AtlanConnectorType snowflakeConnectorType = AtlanConnectorType.SNOWFLAKE;
     public static final String OWNER = "nagajay_";
+    // Connections of the lineage chain, one per CSV column, as comma separated connectorType:connectionName pairs
+    public static final String LINEAGE_CONNECTIONS = AtlanSettings.get("ATLAN_LINEAGE_CONNECTIONS",
+            postgresConnectorType.getValue() + ":" + postgresConnectionName + ","
+                    + s3ConnectorType.getValue() + ":" + s3ConnectionName + ","
+                    + snowflakeConnectorType.getValue() + ":" + snowflakeConnectionConnectionName);
     // Specify the path to your CSV file
     public static final String csvFile = "lineage.csv";
+    // CSV file on disk, or in the resources folder
+    public static final String LINEAGE_PATH = AtlanSettings.get("ATLAN_LINEAGE_PATH", csvFile);
+    // Rows whose names are resolved together; bounds memory for large files
+    public static final int LINEAGE_CHUNK_ROWS = AtlanSettings.getInt("ATLAN_LINEAGE_CHUNK_ROWS", 5000);
+    public static final int LINEAGE_MAX_RECORD_CHARS = AtlanSettings.getInt("ATLAN_LINEAGE_MAX_RECORD_CHARS", 65536);
+    // Malformed rows are written here instead of stopping the run
+    public static final String LINEAGE_REJECT_FILE = AtlanSettings.get("ATLAN_LINEAGE_REJECT_FILE", "state/lineage-rejects.csv");
+    // Page size used to load the existing lineage processes of the involved connections
+    public static final int LINEAGE_PAGE_SIZE = AtlanSettings.getInt("ATLAN_LINEAGE_PAGE_SIZE", 500);
+    // Lineage processes per bulk save request, and resends of the members of a batch missing from the response
+    public static final int LINEAGE_BATCH_SIZE = AtlanSettings.getInt("ATLAN_LINEAGE_BATCH_SIZE", 20);
+    public static final int LINEAGE_BATCH_RETRIES = AtlanSettings.getInt("ATLAN_LINEAGE_BATCH_RETRIES", 3);
+    // Background verification of the lineage: share of edges checked, threads, and polling while Atlan indexes
+    public static final double VERIFY_SAMPLE_RATE = Double.parseDouble(AtlanSettings.get("ATLAN_VERIFY_SAMPLE_RATE", "1.0"));
+    public static final int VERIFY_WORKERS = AtlanSettings.getInt("ATLAN_VERIFY_WORKERS", 4);
+    public static final int VERIFY_ATTEMPTS = AtlanSettings.getInt("ATLAN_VERIFY_ATTEMPTS", 5);
+    public static final int VERIFY_INTERVAL_MILLIS = AtlanSettings.getInt("ATLAN_VERIFY_INTERVAL_MILLIS", 2000);
+    public static final int VERIFY_MAX_PENDING = AtlanSettings.getInt("ATLAN_VERIFY_MAX_PENDING", 10000);
     private static final Logger logger = LoggerFactory.getLogger(AtlanLineageCreator.class);
 
     /**
@@ -40,60 +75,98 @@ public class AtlanLineageCreator {
      * @param args Command line arguments (not used)
      */
     public static void main(String[] args) {
+        AtlanMetrics.start("lineage-creator");
         try {
 
-            Connection postgresConnection = findConnectionByName(postgresConnectionName);
-            Connection s3Connection = findConnectionByName(s3ConnectionName);
-            Connection snowflakeConnection = findConnectionByName(snowflakeConnectionConnectionName);
-
-            // Read lineage information from CSV file
-            List<String[]> lineageRows = readLineageFromCSV(csvFile);
-
-            for (String[] assets : lineageRows) {
-                logger.error("~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~");
-                if (assets.length != 3) {
-                    logger.error("Invalid lineage string format. Expected 3 assets, got {}", assets.length);
+            // Column i of the CSV file names an asset in the i-th connection of the chain
+            List<Connection> chain = new ArrayList<>();
+            List<String> hopNames = new ArrayList<>();
+            String previousType = null;
+            for (String[] member : parseChain(LINEAGE_CONNECTIONS)) {
+                Connection connection = AtlanLookups.findConnectionByName(member[1], AtlanConnectorType.fromValue(member[0]));
+                if (connection == null) {
+                    logger.error("Connection not found: {} ({})", member[1], member[0]);
                     return;
                 }
+                chain.add(connection);
+                if (previousType != null) {
+                    hopNames.add(displayName(previousType) + " to " + displayName(member[0]));
+                }
+                previousType = member[0];
+            }
+            if (chain.size() < 2) {
+                logger.error("A lineage chain needs at least two connections, got: {}", LINEAGE_CONNECTIONS);
+                return;
+            }
 
-                // Find the Postgres table
-                Table postgresTable = (Table) findAssetInConnectionByName(postgresConnection.getQualifiedName(), assets[0]);
-                // Find the S3 object
-                S3Object s3Object = (S3Object) findAssetInConnectionByName(s3Connection.getQualifiedName(), assets[1]);
-                // Find the Snowflake table
-                Table snowflakeTable = (Table) findAssetInConnectionByName(snowflakeConnection.getQualifiedName(), assets[2]);
-
-                logAsset(postgresTable);
-                logAsset(s3Object);
-                logAsset(snowflakeTable);
-
-                if (postgresTable != null && s3Object != null && snowflakeTable != null) {
-                    // Create lineage process: Postgres → S3
-                    Map<String, Object> postgresTo3SParams = new HashMap<>();
-                    postgresTo3SParams.put("sourceConnection", postgresConnection);
-                    postgresTo3SParams.put("sourceAsset", postgresTable);
-                    postgresTo3SParams.put("targetAsset", s3Object);
-                    postgresTo3SParams.put("processName", "Postgres to S3");
-                    createLineageIfNotExists(postgresTo3SParams);
-                    //createLineageProcess(postgresTo3SParams);
-
-                    // Create lineage process: S3 → Snowflake
-                    Map<String, Object> s3ToSnowflakeParams = new HashMap<>();
-                    s3ToSnowflakeParams.put("sourceConnection", s3Connection);
-                    s3ToSnowflakeParams.put("sourceAsset", s3Object);
-                    s3ToSnowflakeParams.put("targetAsset", snowflakeTable);
-                    s3ToSnowflakeParams.put("processName", "S3 to Snowflake");
-                    createLineageIfNotExists(s3ToSnowflakeParams);
-                    //createLineageProcess(s3ToSnowflakeParams);
-
-                    // Verify lineage
-                    verifyLineage(postgresTable.getGuid(), s3Object.getGuid(), AtlanLineageDirection.DOWNSTREAM);
-                    verifyLineage(s3Object.getGuid(), snowflakeTable.getGuid(), AtlanLineageDirection.DOWNSTREAM);
-                } else {
-                    logger.info("One or more assets not found.");
+            // Load the existing lineage edges once, so edge-existence checks are local
+            LineageIndex lineageIndex = LineageIndex.load(chain.stream().map(Connection::getQualifiedName).collect(Collectors.toList()), LINEAGE_PAGE_SIZE);
+
+            // Edges are verified in the background, as soon as their process has been saved
+            LineageVerifier verifier = new LineageVerifier(VERIFY_WORKERS, VERIFY_SAMPLE_RATE, VERIFY_ATTEMPTS,
+                    VERIFY_INTERVAL_MILLIS, VERIFY_MAX_PENDING);
+
+            // Processes are saved in batches, so remember which CSV row(s) each one came from
+            Map<String, List<Long>> processRows = new ConcurrentHashMap<>();
+            AssetBatchWriter writer = new AssetBatchWriter(Atlan.getDefaultClient(), LINEAGE_BATCH_SIZE, LINEAGE_BATCH_RETRIES, new AssetBatchWriter.Listener() {
+                @Override
+                public void onSaved(Asset requested, Asset result) {
+                    logger.info("Lineage process {} saved as {} for row(s) {}", requested.getName(), result.getGuid(),
+                            processRows.remove(requested.getQualifiedName()));
+                    LineageProcess process = (LineageProcess) requested;
+                    // only now part of the index: an edge whose save fails is not taken as existing
+                    lineageIndex.add(process);
+                    for (ICatalog input : process.getInputs()) {
+                        for (ICatalog output : process.getOutputs()) {
+                            verifier.submit(input.getGuid(), output.getGuid());
+                        }
+                    }
                 }
 
+                @Override
+                public void onFailed(Asset requested, Exception error) {
+                    logger.error("Unable to create lineage process {} for row(s) {}", requested.getName(),
+                            processRows.remove(requested.getQualifiedName()), error);
+                    lineageIndex.release((LineageProcess) requested);
+                }
+            });
+            // Stream the CSV file, resolving and processing it a chunk of rows at a time
+            try (CsvReader reader = new CsvReader(openLineage(LINEAGE_PATH), LINEAGE_MAX_RECORD_CHARS);
+                 RejectFile rejects = new RejectFile(Paths.get(LINEAGE_REJECT_FILE))) {
+                List<String[]> chunk = new ArrayList<>(LINEAGE_CHUNK_ROWS);
+                List<Long> chunkLines = new ArrayList<>(LINEAGE_CHUNK_ROWS);
+                while (reader.next()) {
+                    if (reader.getError() != null) {
+                        rejects.reject(reader.getLineNumber(), reader.getError(), reader.getRawRecord());
+                        continue;
+                    }
+                    String[] assets = reader.getFields();
+                    if (assets.length < 2 || assets.length > chain.size()) {
+                        rejects.reject(reader.getLineNumber(), "Invalid lineage string format. Expected 2 to " + chain.size()
+                                + " assets, got " + assets.length, reader.getRawRecord());
+                        continue;
+                    }
+                    if (Arrays.stream(assets).anyMatch(String::isEmpty)) {
+                        rejects.reject(reader.getLineNumber(), "Empty asset name", reader.getRawRecord());
+                        continue;
+                    }
+                    chunk.add(assets);
+                    chunkLines.add(reader.getLineNumber());
+                    if (chunk.size() >= LINEAGE_CHUNK_ROWS) {
+                        createLineageForRows(chunk, chunkLines, chain, hopNames, lineageIndex, writer, processRows, verifier);
+                        chunk.clear();
+                        chunkLines.clear();
+                    }
+                }
+                createLineageForRows(chunk, chunkLines, chain, hopNames, lineageIndex, writer, processRows, verifier);
+                logger.info("Read {} record(s) from {}, rejected {}", reader.getRecordCount(), LINEAGE_PATH, rejects.getCount());
             }
+            writer.flush();
+            logger.info("Lineage processes saved: {}, failed: {}, save requests: {}",
+                    writer.getSavedCount(), writer.getFailedCount(), writer.getRequestCount());
+
+            // Verify lineage
+            verifier.awaitAndReport();
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -101,117 +174,135 @@ public class AtlanLineageCreator {
     }
 
     /**
-     * Finds a connection by its name.
-     *
-     * @param connectionName The name of the connection to find.
-     * @return The Connection object if found, null otherwise.
-     * @throws AtlanException If there's an error communicating with Atlan.
+     * Create the lineage of a chunk of CSV rows. The new edges of each hop (column i to column i + 1) are
+     * consolidated before any process is built: the inputs of a target become one process, and targets fed
+     * by exactly the same inputs share that process as additional outputs.
+     * @param rows chains of 2 or more asset names, one per connection of the chain
+     * @param lines line of the CSV file each row starts on
+     * @param chain connection of each column
+     * @param hopNames process name of each hop
+     * @param lineageIndex existing lineage edges
+     * @param writer batches the new processes
+     * @param processRows source row(s) of each queued process, by process qualified name
+     * @param verifier verifies the edges that already exist; new ones are verified once saved
+     * @throws AtlanException
      */
-    private static Connection findConnectionByName(String connectionName) throws AtlanException {
-        IndexSearchRequest request = Atlan.getDefaultClient()
-                .assets
-                .select()
-                .where(Asset.TYPE_NAME.eq(Connection.TYPE_NAME))
-                .where(Asset.NAME.eq(connectionName))
-                .pageSize(1)
-                .toRequest();
-
-        IndexSearchResponse response = request.search();
-
-        if (response.getAssets().isEmpty()) {
-            return null;
+    private static void createLineageForRows(List<String[]> rows, List<Long> lines, List<Connection> chain, List<String> hopNames,
+                                             LineageIndex lineageIndex, AssetBatchWriter writer, Map<String, List<Long>> processRows,
+                                             LineageVerifier verifier) throws AtlanException {
+        if (rows.isEmpty()) {
+            return;
         }
 
-        return (Connection) response.getAssets().get(0);
-    }
-
-    /**
-     * Finds an asset within a specific connection by its name.
-     *
-     * @param connectionQualifiedName The qualified name of the connection to search within.
-     * @param assetName The name of the asset to find.
-     * @return The Asset object if found, null otherwise.
-     * @throws AtlanException If there's an error communicating with Atlan.
-     */
-    private static Asset findAssetInConnectionByName(String connectionQualifiedName, String assetName) throws AtlanException {
-        IndexSearchRequest request = Atlan.getDefaultClient()
-                .assets
-                .select()
-                .where(Asset.CONNECTION_QUALIFIED_NAME.eq(connectionQualifiedName))
-                .where(Asset.NAME.eq(assetName))
-                .pageSize(1)
-                .toRequest();
-
-        IndexSearchResponse response = request.search();
-
-        if (response.getAssets().isEmpty()) {
-            return null;
+        // Resolve every distinct name of the chunk up front, with batched searches per connection
+        List<Map<String, Asset>> resolved = new ArrayList<>(chain.size());
+        for (int column = 0; column < chain.size(); column++) {
+            Set<String> names = new HashSet<>();
+            for (String[] assets : rows) {
+                if (assets.length > column) {
+                    names.add(assets[column]);
+                }
+            }
+            resolved.add(names.isEmpty() ? Map.of() : AtlanLookups.findAssetsInConnectionByNames(chain.get(column).getQualifiedName(), names));
         }
 
-        return response.getAssets().get(0);
-    }
+        // New edges of each hop, by target
+        List<Map<String, HopTarget>> hops = new ArrayList<>(chain.size() - 1);
+        for (int hop = 0; hop < chain.size() - 1; hop++) {
+            hops.add(new LinkedHashMap<>());
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            String[] names = rows.get(i);
+            long rowNumber = lines.get(i);
+            logger.error("~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~");
+
+            Asset[] assets = new Asset[names.length];
+            boolean found = true;
+            for (int column = 0; column < names.length; column++) {
+                assets[column] = resolved.get(column).get(names[column]);
+                logAsset(assets[column]);
+                found &= assets[column] != null;
+            }
+            if (!found) {
+                logger.info("One or more assets not found for row {}.", rowNumber);
+                continue;
+            }
 
-    /**
-     * Create lineage only if not exists
-     * @param params
-     * @throws AtlanException
-     */
-    private static void createLineageIfNotExists(Map<String, Object> params) throws AtlanException {
-        Asset sourceAsset = (Asset) params.get("sourceAsset");
-        Asset targetAsset = (Asset) params.get("targetAsset");
-        String processName = (String) params.get("processName");
+            for (int hop = 0; hop < assets.length - 1; hop++) {
+                Asset sourceAsset = assets[hop];
+                Asset targetAsset = assets[hop + 1];
+                // claimed right away, so a later row with the same edge does not queue it again; it is only
+                // recorded as existing once its process is saved
+                if (lineageIndex.claim(sourceAsset.getGuid(), targetAsset.getGuid())) {
+                    HopTarget target = hops.get(hop).computeIfAbsent(targetAsset.getGuid(), k -> new HopTarget(targetAsset));
+                    target.inputs.putIfAbsent(sourceAsset.getGuid(), sourceAsset);
+                    target.rows.add(rowNumber);
+                } else if (lineageIndex.exists(sourceAsset.getGuid(), targetAsset.getGuid())) {
+                    logger.info("Lineage already exists from {} to {}. Skipping creation.", sourceAsset.getQualifiedName(), targetAsset.getQualifiedName());
+                    verifier.submit(sourceAsset.getGuid(), targetAsset.getGuid());
+                } else {
+                    logger.debug("Lineage from {} to {} already queued by an earlier row", sourceAsset.getQualifiedName(), targetAsset.getQualifiedName());
+                }
+            }
+        }
 
-        if (!lineageExists(sourceAsset.getGuid(), targetAsset.getGuid(), AtlanLineageDirection.DOWNSTREAM)) {
-            logger.debug("lineage not exists.. creating lineage.. "+ processName );
-            createLineageProcess(params);
-        } else {
-            logger.info("Lineage already exists from {} to {}. Skipping creation.", sourceAsset.getQualifiedName(), targetAsset.getQualifiedName());
+        for (int hop = 0; hop < hops.size(); hop++) {
+            queueHopProcesses(hops.get(hop), chain.get(hop), hopNames.get(hop), writer, processRows);
         }
     }
 
     /**
-     * Check if the lineage exists
-     * @param sourceGuid
-     * @param targetGuid
-     * @param direction
-     * @return
-     * @throws AtlanException
+     * Build and queue the processes of one hop, one per distinct set of inputs
+     * @param targets new edges of the hop, by target
+     * @param sourceConnection connection of the inputs
+     * @param processName name of the processes of the hop
+     * @param writer batches the new processes
+     * @param processRows source row(s) of each queued process, by process qualified name
      */
-    private static boolean lineageExists(String sourceGuid, String targetGuid, AtlanLineageDirection direction) throws AtlanException {
-        AtomicBoolean exists = new AtomicBoolean(false);
-
-        // First, fetch the source asset to get its qualified name
-        Asset sourceAsset = Asset.get(Atlan.getDefaultClient(),sourceGuid, false);
-        String sourceQualifiedName = sourceAsset != null ? sourceAsset.getQualifiedName() : "Unknown";
-
-        FluentLineage.builder(Atlan.getDefaultClient(), sourceGuid)
-                .direction(direction)
-                .stream()
-                .filter(a -> !(a instanceof LineageProcess))
-                .limit(100)
-                .forEach(result -> {
-                    if (result.getGuid().equals(targetGuid)) {
-                        exists.set(true);
-                        //logger.info("Existing lineage found from {} to {}", sourceGuid, targetGuid);
-                        logger.info("Source Asset - Qualified Name: {}, GUID: {}", sourceQualifiedName, sourceGuid);
-                        logger.info("Target Asset - Qualified Name: {}, GUID: {}", result.getQualifiedName(), result.getGuid());
-                    }
-                });
-
-        return exists.get();
+    private static void queueHopProcesses(Map<String, HopTarget> targets, Connection sourceConnection, String processName,
+                                          AssetBatchWriter writer, Map<String, List<Long>> processRows) {
+        if (targets.isEmpty()) {
+            return;
+        }
+        // Targets fed by the same inputs share one process
+        Map<Set<String>, List<HopTarget>> byInputs = new LinkedHashMap<>();
+        for (HopTarget target : targets.values()) {
+            byInputs.computeIfAbsent(target.inputs.keySet(), k -> new ArrayList<>()).add(target);
+        }
+        for (List<HopTarget> group : byInputs.values()) {
+            List<Asset> outputs = new ArrayList<>(group.size());
+            Set<Long> rows = new TreeSet<>();
+            for (HopTarget target : group) {
+                outputs.add(target.asset);
+                rows.addAll(target.rows);
+            }
+            Map<String, Object> params = new HashMap<>();
+            params.put("sourceConnection", sourceConnection);
+            params.put("sourceAssets", new ArrayList<>(group.get(0).inputs.values()));
+            params.put("targetAssets", outputs);
+            params.put("processName", processName);
+            LineageProcess process = buildLineageProcess(params);
+            logger.debug("lineage not exists.. creating lineage.. {} with {} input(s) and {} output(s)", processName,
+                    group.get(0).inputs.size(), outputs.size());
+            processRows.computeIfAbsent(process.getQualifiedName(), k -> new CopyOnWriteArrayList<>()).addAll(rows);
+            writer.add(process);
+        }
+        logger.info("Consolidated {} new edge target(s) of {} into {} process(es)", targets.size(), processName, byInputs.size());
     }
 
     /**
-     * method is used to create the lineage process
+     * method is used to build the lineage process, ready to be saved
      * @param params
-     * @throws AtlanException
+     * @return the lineage process
      */
-    private static void createLineageProcess(Map<String, Object> params) throws AtlanException {
+    @SuppressWarnings("unchecked")
+    private static LineageProcess buildLineageProcess(Map<String, Object> params) {
         Connection sourceConnection = (Connection) params.get("sourceConnection");
-        Asset sourceAsset = (Asset) params.get("sourceAsset");
-        Asset targetAsset = (Asset) params.get("targetAsset");
+        List<Asset> sourceAssets = (List<Asset>) params.get("sourceAssets");
+        List<Asset> targetAssets = (List<Asset>) params.get("targetAssets");
         String processName = (String) params.get("processName");
 
+        Asset sourceAsset = sourceAssets.get(0);
         String connectionQualifiedName = sourceAsset.getConnectionQualifiedName();
         if(null == connectionQualifiedName) {
             connectionQualifiedName = sourceConnection.getQualifiedName();
@@ -219,72 +310,75 @@ public class AtlanLineageCreator {
             logger.debug("connection qualified name is not present in Asset .. trying with the source connection "+ connectionQualifiedName);
         }
 
-        LineageProcess process = LineageProcess.creator(
+        return LineageProcess.creator(
                         processName,
                         connectionQualifiedName,
                         null,
-                        List.of(
-                                sourceAsset instanceof Table ? Table.refByGuid(sourceAsset.getGuid()) : S3Object.refByGuid(sourceAsset.getGuid())
-                        ),
-                        List.of(
-                                targetAsset instanceof Table ? Table.refByGuid(targetAsset.getGuid()) : S3Object.refByGuid(targetAsset.getGuid())
-                        ),
+                        sourceAssets.stream().map(AtlanLineageCreator::toReference).collect(Collectors.toList()),
+                        targetAssets.stream().map(AtlanLineageCreator::toReference).collect(Collectors.toList()),
                         null)
                 .ownerUser(OWNER)
                 .build();
-
-        AssetMutationResponse response = process.save();
-
-        logger.info("Lineage process created successfully: " + processName);
-        logger.info("Created assets: " + response.getCreatedAssets().size());
-        logger.info("Updated assets: " + response.getUpdatedAssets().size());
     }
 
+    /**
+     * @param asset
+     * @return a GUID-only reference to the asset, usable as a process input or output
+     */
+    private static ICatalog toReference(Asset asset) {
+        if (!(asset instanceof ICatalog)) {
+            throw new IllegalArgumentException("Asset cannot take part in lineage: " + asset.getTypeName() + " " + asset.getQualifiedName());
+        }
+        try {
+            return (ICatalog) asset.trimToReference();
+        } catch (InvalidRequestException e) {
+            throw new IllegalArgumentException("Asset cannot be referenced: " + asset.getTypeName() + " " + asset.getQualifiedName(), e);
+        }
+    }
 
     /**
-     * Verifies the lineage between two assets.
-     *
-     * @param sourceGuid The GUID of the source asset.
-     * @param targetGuid The GUID of the target asset.
-     * @param direction The direction of the lineage.
-     * @throws AtlanException If there's an error verifying the lineage.
+     * Parse the chain of connections
+     * @param chain comma separated {@code connectorType:connectionName} pairs
+     * @return connector type and connection name of each member of the chain
      */
-    private static void verifyLineage(String sourceGuid, String targetGuid, AtlanLineageDirection direction) throws AtlanException {
-        // First, fetch the source asset to get its qualified name
-        Asset sourceAsset = Asset.get(Atlan.getDefaultClient(),sourceGuid, false);
-        String sourceQualifiedName = sourceAsset != null ? sourceAsset.getQualifiedName() : "Unknown";
+    private static List<String[]> parseChain(String chain) {
+        List<String[]> members = new ArrayList<>();
+        for (String member : chain.split(",")) {
+            String trimmed = member.trim();
+            int separator = trimmed.indexOf(':');
+            if (separator <= 0 || separator == trimmed.length() - 1) {
+                throw new IllegalArgumentException("Expected connectorType:connectionName in ATLAN_LINEAGE_CONNECTIONS, got: " + trimmed);
+            }
+            members.add(new String[] {trimmed.substring(0, separator), trimmed.substring(separator + 1)});
+        }
+        return members;
+    }
 
-        FluentLineage.builder(Atlan.getDefaultClient(), sourceGuid)
-                .direction(direction)
-                .stream()
-                .filter(a -> !(a instanceof LineageProcess))
-                .limit(100)
-                .forEach(result -> {
-                    if (result.getGuid().equals(targetGuid)) {
-                        logger.info("Lineage verified successfully");
-                        logger.info("Source Asset - Qualified Name: {}, GUID: {}", sourceQualifiedName, sourceGuid);
-                        logger.info("Target Asset - Qualified Name: {}, GUID: {}", result.getQualifiedName(), result.getGuid());
-                    }
-                });
+    /**
+     * @param connectorType
+     * @return the connector type as used in process names, for example "Postgres" or "S3"
+     */
+    private static String displayName(String connectorType) {
+        String value = connectorType.trim();
+        return value.length() <= 3 ? value.toUpperCase() : Character.toUpperCase(value.charAt(0)) + value.substring(1);
     }
 
     /**
-     * Read from CSV File
-     * @param csvFile
-     * @return
-     * @throws IOException
+     * Opens the lineage CSV file as a character stream, so it never has to be held in memory.
+     * @param lineagePath path of a file on disk, or name of a file in the resources folder
+     * @return Reader over the CSV content
+     * @throws IOException if the file cannot be found
      */
-    private static List<String[]> readLineageFromCSV(String csvFile) throws IOException {
-        List<String[]> rows = new ArrayList<>();
-        ClassLoader classLoader = AtlanLineageCreator.class.getClassLoader();
-        try (InputStream is = classLoader.getResourceAsStream(csvFile);
-             BufferedReader br = new BufferedReader(new InputStreamReader(is))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                rows.add(line.split(","));
-            }
+    private static Reader openLineage(String lineagePath) throws IOException {
+        Path path = Paths.get(lineagePath);
+        if (Files.isRegularFile(path)) {
+            return Files.newBufferedReader(path, StandardCharsets.UTF_8);
+        }
+        InputStream inputStream = AtlanLineageCreator.class.getClassLoader().getResourceAsStream(lineagePath);
+        if (inputStream == null) {
+            throw new IOException("Lineage file not found: " + lineagePath);
         }
-        return rows;
+        return new InputStreamReader(inputStream, StandardCharsets.UTF_8);
     }
 
     /**
@@ -299,4 +393,17 @@ public class AtlanLineageCreator {
             logger.info("Asset not found.");
         }
     }
+
+    /**
+     * A target of one hop, with the new inputs feeding it and the rows they came from.
+     */
+    private static final class HopTarget {
+        private final Asset asset;
+        private final Map<String, Asset> inputs = new TreeMap<>();
+        private final List<Long> rows = new ArrayList<>(1);
+
+        private HopTarget(Asset asset) {
+            this.asset = asset;
+        }
+    }
 }
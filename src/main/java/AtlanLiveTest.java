@@ -5,6 +5,11 @@ import com.atlan.model.assets.Asset;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 public class AtlanLiveTest {
     static {
         Atlan.setBaseUrl(System.getenv("ATLAN_BASE_URL"));
@@ -14,11 +19,25 @@ public class AtlanLiveTest {
     private static final Logger logger = LoggerFactory.getLogger(AtlanLiveTest.class);
 
     public static void main(String[] args) {
+        AtlanMetrics.start("live-test");
         logger.info("Start Live test application !!! ");
         try {
-            Asset x = Asset.get(Atlan.getDefaultClient(),"4eeab745-c8d0-4910-ae00-480bda083daa",false);
+            String guid = "4eeab745-c8d0-4910-ae00-480bda083daa";
+            // answered offline when the asset is in the local catalog snapshot
+            Path snapshotFile = Paths.get(AtlanCatalogSnapshot.SNAPSHOT_FILE);
+            if (Files.exists(snapshotFile)) {
+                try (CatalogSnapshot snapshot = CatalogSnapshot.open(snapshotFile)) {
+                    CatalogSnapshot.Entry entry = snapshot.findByGuid(guid);
+                    if (entry != null) {
+                        logger.info(entry.getQualifiedName());
+                        return;
+                    }
+                }
+            }
+            Asset x = AtlanCalls.execute(AtlanCalls.CallType.GET,
+                    () -> Asset.get(Atlan.getDefaultClient(),guid,false));
             logger.info(x.getQualifiedName());
-        } catch (AtlanException e) {
+        } catch (AtlanException | IOException e) {
             e.printStackTrace();
         }
 
@@ -0,0 +1,158 @@
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import com.atlan.exception.AtlanException;
+import com.atlan.model.assets.Asset;
+import com.atlan.model.assets.Connection;
+import com.atlan.model.enums.AtlanConnectorType;
+import com.atlan.model.search.CompoundQuery;
+import com.atlan.model.search.IndexSearchRequest;
+import com.atlan.model.search.IndexSearchResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lookups shared by the tools. Connection resolutions go through the {@link ResolutionCache}, and
+ * identical lookups made concurrently by several workers are collapsed into one search.
+ */
+public class AtlanLookups {
+
+    private static final Logger logger = LoggerFactory.getLogger(AtlanLookups.class);
+
+    // Names per multi-value search, and page size of those searches
+    public static final int NAME_BATCH_SIZE = AtlanSettings.getInt("ATLAN_NAME_BATCH_SIZE", 200);
+    public static final int NAME_PAGE_SIZE = AtlanSettings.getInt("ATLAN_NAME_PAGE_SIZE", 500);
+
+    private static final SingleFlight<String, Connection> connectionLookups = new SingleFlight<>();
+    private static final SingleFlight<String, Asset> assetLookups = new SingleFlight<>();
+
+    private AtlanLookups() {
+    }
+
+    /**
+     * Finds a connection by its name.
+     *
+     * @param connectionName The name of the connection to find.
+     * @param connectorType The type of connector the connection is for.
+     * @return The Connection object if found, null otherwise.
+     * @throws AtlanException If there's an error communicating with Atlan.
+     */
+    public static Connection findConnectionByName(String connectionName, AtlanConnectorType connectorType) throws AtlanException {
+        ResolutionCache.Entry cached = ResolutionCache.shared().get(Connection.TYPE_NAME, connectorType.getValue(), connectionName);
+        if (cached != null) {
+            logger.debug("Resolved connection {} from cache: {}", connectionName, cached.getQualifiedName());
+            return toConnection(cached);
+        }
+
+        return connectionLookups.execute(connectorType.getValue() + "/" + connectionName, () -> {
+            // connection qualified names are default/<connector type>/<epoch>
+            IndexSearchRequest request = AtlanSearch.select(Projection.IDENTITY)
+                    .where(CompoundQuery.assetType(Connection.TYPE_NAME))
+                    .where(Asset.NAME.eq(connectionName))
+                    .where(Asset.QUALIFIED_NAME.startsWith("default/" + connectorType.getValue() + "/"))
+                    .pageSize(1)
+                    .sort(Asset.CREATE_TIME.order(SortOrder.Asc))
+                    .toRequest();
+
+            IndexSearchResponse response = AtlanCalls.execute(AtlanCalls.CallType.SEARCH, request::search);
+
+            if (response == null || response.getAssets() == null || response.getAssets().isEmpty()
+                    || !(response.getAssets().get(0) instanceof Connection)) {
+                return null;
+            }
+            Connection connection = (Connection) response.getAssets().get(0);
+            cacheConnection(connectionName, connectorType, connection);
+            return connection;
+        });
+    }
+
+    /**
+     * Remember a connection that was just resolved or created
+     * @param connectionName
+     * @param connectorType
+     * @param connection
+     */
+    public static void cacheConnection(String connectionName, AtlanConnectorType connectorType, Connection connection) {
+        ResolutionCache.shared().put(Connection.TYPE_NAME, connectorType.getValue(), connectionName, connection);
+    }
+
+    /**
+     * Forget a cached connection, e.g. once it turned out not to exist any more
+     * @param connectionName
+     * @param connectorType
+     */
+    public static void invalidateConnection(String connectionName, AtlanConnectorType connectorType) {
+        ResolutionCache.shared().invalidate(Connection.TYPE_NAME, connectorType.getValue(), connectionName);
+    }
+
+    /**
+     * Finds an asset within a specific connection by its name.
+     *
+     * @param connectionQualifiedName The qualified name of the connection to search within.
+     * @param assetName The name of the asset to find.
+     * @return The Asset object if found, null otherwise.
+     * @throws AtlanException If there's an error communicating with Atlan.
+     */
+    public static Asset findAssetInConnectionByName(String connectionQualifiedName, String assetName) throws AtlanException {
+        return assetLookups.execute(connectionQualifiedName + "/" + assetName, () -> {
+            IndexSearchRequest request = AtlanSearch.select(Projection.IDENTITY)
+                    .where(Asset.CONNECTION_QUALIFIED_NAME.eq(connectionQualifiedName))
+                    .where(Asset.NAME.eq(assetName))
+                    .pageSize(1)
+                    .toRequest();
+
+            IndexSearchResponse response = AtlanCalls.execute(AtlanCalls.CallType.SEARCH, request::search);
+
+            if (response.getAssets() == null || response.getAssets().isEmpty()) {
+                return null;
+            }
+
+            return response.getAssets().get(0);
+        });
+    }
+
+    /**
+     * Finds many assets within a specific connection by name, using multi-value searches of
+     * {@link #NAME_BATCH_SIZE} names each instead of one search per name.
+     *
+     * @param connectionQualifiedName The qualified name of the connection to search within.
+     * @param assetNames The names of the assets to find.
+     * @return The assets found, by name. Names that were not found are absent.
+     * @throws AtlanException If there's an error communicating with Atlan.
+     */
+    public static Map<String, Asset> findAssetsInConnectionByNames(String connectionQualifiedName, Collection<String> assetNames) throws AtlanException {
+        Map<String, Asset> found = new HashMap<>();
+        List<String> names = new ArrayList<>(new LinkedHashSet<>(assetNames));
+        int requests = 0;
+        for (int start = 0; start < names.size(); start += NAME_BATCH_SIZE) {
+            List<String> chunk = names.subList(start, Math.min(names.size(), start + NAME_BATCH_SIZE));
+            IndexSearchRequest request = AtlanSearch.select(Projection.IDENTITY)
+                    .where(Asset.CONNECTION_QUALIFIED_NAME.eq(connectionQualifiedName))
+                    .where(Asset.NAME.in(chunk))
+                    .pageSize(NAME_PAGE_SIZE)
+                    .sort(Asset.GUID.order(SortOrder.Asc))
+                    .toRequest();
+            requests += AtlanSearch.forEachPage(request, page -> {
+                for (Asset asset : page) {
+                    // like the single lookup, the first match for a name wins
+                    found.putIfAbsent(asset.getName(), asset);
+                }
+            });
+        }
+        logger.info("Resolved {} of {} name(s) in {} with {} search page(s)", found.size(), names.size(), connectionQualifiedName, requests);
+        return found;
+    }
+
+    private static Connection toConnection(ResolutionCache.Entry entry) {
+        return Connection._internal()
+                .guid(entry.getGuid())
+                .qualifiedName(entry.getQualifiedName())
+                .name(entry.getName())
+                .build();
+    }
+}
@@ -0,0 +1,399 @@
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide metrics of the tools: counters, timers, histograms and gauges, each a family of series told apart
+ * by their labels, created on first use. Every series is registered as an MBean under the {@value #JMX_DOMAIN}
+ * JMX domain while the tool runs, and the whole registry is written as a Prometheus text file when the run ends
+ * (see {@link #start(String)}).
+ */
+public class AtlanMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(AtlanMetrics.class);
+
+    // Register every series as a JMX MBean
+    public static final boolean METRICS_JMX = AtlanSettings.getBoolean("ATLAN_METRICS_JMX", true);
+    // Write the registry as a Prometheus text file at the end of the run, to ATLAN_METRICS_FILE if set
+    public static final boolean METRICS_DUMP = AtlanSettings.getBoolean("ATLAN_METRICS_DUMP", true);
+    public static final String METRICS_FILE = AtlanSettings.get("ATLAN_METRICS_FILE", "");
+
+    public static final String JMX_DOMAIN = "atlan.tools";
+
+    // upper bounds of the buckets of latency histograms, in seconds, and of batch size histograms
+    public static final double[] LATENCY_BUCKETS = {0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60};
+    public static final double[] SIZE_BUCKETS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 5000};
+
+    private static final Map<String, Family> families = new ConcurrentHashMap<>();
+    private static final long startNanos = System.nanoTime();
+    private static volatile String tool;
+
+    private AtlanMetrics() {
+    }
+
+    /**
+     * Start measuring a run of a tool: adds the run duration and heap gauges, and writes the metrics file
+     * when the JVM exits, however the run ends
+     * @param toolName name of the tool, added as the {@code tool} label of every series in the file
+     */
+    public static synchronized void start(String toolName) {
+        if (tool != null) {
+            return;
+        }
+        tool = toolName;
+        gauge("atlan_run_seconds", "Time since the run started", () -> (System.nanoTime() - startNanos) / 1e9);
+        gauge("jvm_heap_used_bytes", "Heap in use", () -> ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+        gauge("jvm_heap_committed_bytes", "Heap committed by the JVM", () -> ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getCommitted());
+        gauge("jvm_heap_max_bytes", "Largest heap the JVM may use", () -> ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getMax());
+        gauge("jvm_heap_peak_bytes", "Highest heap use since the JVM started, summed over the heap pools", AtlanMetrics::peakHeap);
+        if (METRICS_DUMP) {
+            Path file = Paths.get(METRICS_FILE.isEmpty()
+                    ? Paths.get(AtlanSettings.get("ATLAN_STATE_DIR", "state"), "metrics-" + toolName + ".prom").toString()
+                    : METRICS_FILE);
+            logger.info("Metrics will be written to {} at the end of the run", file);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    write(file);
+                } catch (IOException e) {
+                    // logging may already be shut down
+                    System.err.println("Unable to write metrics to " + file + ": " + e);
+                }
+            }, "metrics-dump"));
+        }
+    }
+
+    /**
+     * @param name metric name, e.g. atlan_call_throttles_total
+     * @param help description of the metric
+     * @param labels label names and values, alternating
+     * @return the counter of these labels
+     */
+    public static Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, "counter").series(labels, Counter::new, CounterMBean.class);
+    }
+
+    /**
+     * @param name metric name, e.g. atlan_batch_size
+     * @param help description of the metric
+     * @param buckets upper bounds of the buckets, ascending
+     * @param labels label names and values, alternating
+     * @return the histogram of these labels
+     */
+    public static Histogram histogram(String name, String help, double[] buckets, String... labels) {
+        return (Histogram) family(name, help, "histogram").series(labels, () -> new Histogram(buckets), HistogramMBean.class);
+    }
+
+    /**
+     * @param name metric name, in seconds, e.g. atlan_call_seconds
+     * @param help description of the metric
+     * @param labels label names and values, alternating
+     * @return the timer of these labels, a histogram of durations over {@link #LATENCY_BUCKETS}
+     */
+    public static Histogram timer(String name, String help, String... labels) {
+        return histogram(name, help, LATENCY_BUCKETS, labels);
+    }
+
+    /**
+     * Register a gauge, or point an existing one at a new value
+     * @param name metric name
+     * @param help description of the metric
+     * @param value read whenever the gauge is reported
+     * @param labels label names and values, alternating
+     */
+    public static void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        ((Gauge) family(name, help, "gauge").series(labels, Gauge::new, GaugeMBean.class)).value = value;
+    }
+
+    /**
+     * Write every series in the Prometheus text format, atomically: a collector never sees a partial file
+     * @param file
+     * @throws IOException
+     */
+    public static void write(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            write(out);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Write every series in the Prometheus text format
+     * @param out
+     * @throws IOException
+     */
+    public static void write(Writer out) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (Family family : new TreeMap<>(families).values()) {
+            sb.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            sb.append("# TYPE ").append(family.name).append(' ').append(family.type).append('\n');
+            for (Map.Entry<String, Series> entry : new TreeMap<>(family.series).entrySet()) {
+                entry.getValue().write(sb, family.name, labels(entry.getValue().labels));
+            }
+        }
+        out.write(sb.toString());
+    }
+
+    private static Family family(String name, String help, String type) {
+        Family family = families.computeIfAbsent(name, k -> new Family(name, help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " is a " + family.type + ", not a " + type);
+        }
+        return family;
+    }
+
+    /**
+     * @return the labels of a series in the Prometheus format, with the tool first, without braces
+     */
+    private static String labels(String[] labels) {
+        StringBuilder sb = new StringBuilder();
+        if (tool != null) {
+            sb.append("tool=\"").append(escape(tool)).append('"');
+        }
+        for (int i = 0; i + 1 < labels.length; i += 2) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+        }
+        return sb.toString();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String number(double value) {
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    private static double peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static final class Family {
+        private final String name;
+        private final String help;
+        private final String type;
+        private final Map<String, Series> series = new ConcurrentHashMap<>();
+
+        private Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+
+        private <M> Series series(String[] labels, Supplier<Series> factory, Class<M> mbeanInterface) {
+            if (labels.length % 2 != 0) {
+                throw new IllegalArgumentException("Labels of " + name + " must be name / value pairs");
+            }
+            return series.computeIfAbsent(String.join("\u0000", labels), k -> {
+                Series created = factory.get();
+                created.labels = labels.clone();
+                if (METRICS_JMX) {
+                    register(created, mbeanInterface);
+                }
+                return created;
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        private <M> void register(Series created, Class<M> mbeanInterface) {
+            StringBuilder objectName = new StringBuilder(JMX_DOMAIN).append(":name=").append(name);
+            for (int i = 0; i + 1 < created.labels.length; i += 2) {
+                String value = created.labels[i + 1];
+                objectName.append(',').append(created.labels[i]).append('=')
+                        .append(value.matches("[A-Za-z0-9_./-]*") && !value.isEmpty() ? value : ObjectName.quote(value));
+            }
+            try {
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                ObjectName mbeanName = new ObjectName(objectName.toString());
+                if (!server.isRegistered(mbeanName)) {
+                    server.registerMBean(new StandardMBean((M) created, mbeanInterface), mbeanName);
+                }
+            } catch (JMException e) {
+                logger.debug("Unable to register {} with JMX: {}", objectName, e.getMessage());
+            }
+        }
+    }
+
+    private abstract static class Series {
+        private String[] labels;
+
+        abstract void write(StringBuilder sb, String name, String labels);
+    }
+
+    public interface CounterMBean {
+        long getCount();
+    }
+
+    /**
+     * A count that only goes up.
+     */
+    public static final class Counter extends Series implements CounterMBean {
+        private final LongAdder count = new LongAdder();
+
+        public void increment() {
+            count.increment();
+        }
+
+        public void add(long amount) {
+            count.add(amount);
+        }
+
+        @Override
+        public long getCount() {
+            return count.sum();
+        }
+
+        @Override
+        void write(StringBuilder sb, String name, String labels) {
+            sb.append(name).append(labels.isEmpty() ? "" : "{" + labels + "}").append(' ').append(getCount()).append('\n');
+        }
+    }
+
+    public interface HistogramMBean {
+        long getCount();
+
+        double getSum();
+
+        double getMean();
+
+        /**
+         * @return upper bound of the bucket holding the 95th percentile
+         */
+        double get95thPercentile();
+    }
+
+    /**
+     * Distribution of observed values over fixed buckets; as a timer, of durations in seconds.
+     */
+    public static final class Histogram extends Series implements HistogramMBean {
+        private final double[] bounds;
+        private final LongAdder[] buckets;
+        private final LongAdder count = new LongAdder();
+        private final DoubleAdder sum = new DoubleAdder();
+
+        private Histogram(double[] bounds) {
+            this.bounds = bounds.clone();
+            this.buckets = new LongAdder[bounds.length + 1];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        public void observe(double value) {
+            int bucket = 0;
+            while (bucket < bounds.length && value > bounds[bucket]) {
+                bucket++;
+            }
+            buckets[bucket].increment();
+            count.increment();
+            sum.add(value);
+        }
+
+        /**
+         * Record a duration
+         * @param startNanos {@link System#nanoTime()} when the timed work started
+         */
+        public void observeSince(long startNanos) {
+            observe((System.nanoTime() - startNanos) / 1e9);
+        }
+
+        @Override
+        public long getCount() {
+            return count.sum();
+        }
+
+        @Override
+        public double getSum() {
+            return sum.sum();
+        }
+
+        @Override
+        public double getMean() {
+            long n = getCount();
+            return n == 0 ? 0 : getSum() / n;
+        }
+
+        @Override
+        public double get95thPercentile() {
+            long target = (long) Math.ceil(getCount() * 0.95);
+            long seen = 0;
+            for (int i = 0; i < bounds.length; i++) {
+                seen += buckets[i].sum();
+                if (seen >= target && target > 0) {
+                    return bounds[i];
+                }
+            }
+            return target > 0 ? Double.POSITIVE_INFINITY : 0;
+        }
+
+        @Override
+        void write(StringBuilder sb, String name, String labels) {
+            String prefix = labels.isEmpty() ? "" : labels + ",";
+            long cumulative = 0;
+            for (int i = 0; i <= bounds.length; i++) {
+                cumulative += buckets[i].sum();
+                sb.append(name).append("_bucket{").append(prefix).append("le=\"")
+                        .append(number(i < bounds.length ? bounds[i] : Double.POSITIVE_INFINITY)).append("\"} ").append(cumulative).append('\n');
+            }
+            String braces = labels.isEmpty() ? "" : "{" + labels + "}";
+            sb.append(name).append("_sum").append(braces).append(' ').append(number(getSum())).append('\n');
+            sb.append(name).append("_count").append(braces).append(' ').append(cumulative).append('\n');
+        }
+    }
+
+    public interface GaugeMBean {
+        double getValue();
+    }
+
+    /**
+     * A value read when it is reported.
+     */
+    public static final class Gauge extends Series implements GaugeMBean {
+        private volatile DoubleSupplier value = () -> 0;
+
+        @Override
+        public double getValue() {
+            return value.getAsDouble();
+        }
+
+        @Override
+        void write(StringBuilder sb, String name, String labels) {
+            sb.append(name).append(labels.isEmpty() ? "" : "{" + labels + "}").append(' ').append(number(getValue())).append('\n');
+        }
+    }
+}
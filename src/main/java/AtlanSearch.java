@@ -0,0 +1,231 @@
+import com.atlan.Atlan;
+import com.atlan.exception.AtlanException;
+import com.atlan.model.assets.Asset;
+import com.atlan.model.search.FluentSearch;
+import com.atlan.model.search.IndexSearchRequest;
+import com.atlan.model.search.IndexSearchResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Paged search helpers shared by the tools. Every page is fetched through {@link AtlanCalls}.
+ * Pages are fetched by offset, which the index only serves up to {@link #RESULT_WINDOW} results deep, so large
+ * result sets are split into disjoint {@link Slicer slices} by GUID prefix: a slice with more results than the
+ * window is split again by the next GUID digit before it is paged. Slices can be paged through concurrently,
+ * with a bounded number of pages held in memory. A search that still cannot be paged to the end fails rather
+ * than returning a truncated result.
+ */
+public class AtlanSearch {
+
+    private static final Logger logger = LoggerFactory.getLogger(AtlanSearch.class);
+
+    // Deepest result (offset + page size) the index serves; Elasticsearch's index.max_result_window
+    public static final int RESULT_WINDOW = AtlanSettings.getInt("ATLAN_SEARCH_RESULT_WINDOW", 10_000);
+
+    // GUIDs are never split further than their first group of 8 hex digits
+    private static final int MAX_PREFIX_LENGTH = 8;
+
+    private AtlanSearch() {
+    }
+
+    /**
+     * Start a search on the default client, returning only the attributes of a projection profile
+     * @param projection attributes to return on each result
+     * @return the search, to be refined with conditions, paging and sorting
+     */
+    public static FluentSearch.FluentSearchBuilder<?, ?> select(Projection projection) {
+        return select(projection, false);
+    }
+
+    /**
+     * Start a search on the default client, returning only the attributes of a projection profile
+     * @param projection attributes to return on each result
+     * @param includeArchived whether archived (soft-deleted) assets are returned too
+     * @return the search, to be refined with conditions, paging and sorting
+     */
+    public static FluentSearch.FluentSearchBuilder<?, ?> select(Projection projection, boolean includeArchived) {
+        return projection.apply(Atlan.getDefaultClient().assets.select(includeArchived));
+    }
+
+    /**
+     * Receives one page of results at a time.
+     */
+    public interface PageConsumer {
+        void accept(List<Asset> page) throws AtlanException;
+    }
+
+    /**
+     * Builds the slice of a search holding the assets whose GUID starts with a prefix.
+     */
+    public interface Slicer {
+        /**
+         * @param guidPrefix lower-case hex prefix, or empty for the whole search
+         * @return the slice, including its page size and a stable sort
+         */
+        IndexSearchRequest slice(String guidPrefix);
+    }
+
+    /**
+     * Slice a search by GUID prefix
+     * @param search starts a new search, with its conditions, page size and sort, every time it is called
+     * @return slicer that adds the GUID prefix condition to a new search
+     */
+    public static Slicer byGuid(Supplier<FluentSearch.FluentSearchBuilder<?, ?>> search) {
+        return guidPrefix -> {
+            FluentSearch.FluentSearchBuilder<?, ?> builder = search.get();
+            if (!guidPrefix.isEmpty()) {
+                builder.where(Asset.GUID.startsWith(guidPrefix));
+            }
+            return builder.toRequest();
+        };
+    }
+
+    /**
+     * Page through every result of a search known to stay within {@link #RESULT_WINDOW}, such as a lookup of a
+     * bounded set of names; use a {@link Slicer} for anything that may grow beyond it
+     * @param request the search, including its page size and a stable sort
+     * @param consumer called once per non-empty page
+     * @return number of pages fetched
+     * @throws AtlanException
+     * @throws IllegalStateException if the search has more results than offset paging can reach
+     */
+    public static int forEachPage(IndexSearchRequest request, PageConsumer consumer) throws AtlanException {
+        IndexSearchResponse response = AtlanCalls.execute(AtlanCalls.CallType.SEARCH, request::search);
+        if (response != null && response.getApproximateCount() > RESULT_WINDOW) {
+            throw windowExceeded(response.getApproximateCount(), "");
+        }
+        return forEachPage(response, "", consumer);
+    }
+
+    /**
+     * Page through every result of a search, one slice after the other
+     * @param search the search, sliced by GUID prefix as deep as needed to stay within {@link #RESULT_WINDOW}
+     * @param consumer called once per non-empty page
+     * @return number of pages fetched
+     * @throws AtlanException
+     */
+    public static int forEachPage(Slicer search, PageConsumer consumer) throws AtlanException {
+        return forEachSlicePage(search, "", consumer);
+    }
+
+    /**
+     * Page through every result of a search, several slices at a time.
+     * Fetched pages wait in a bounded queue for the consumer, so slow consumption blocks fetching
+     * instead of accumulating pages in memory.
+     * @param search the search, sliced by GUID prefix as deep as needed to stay within {@link #RESULT_WINDOW}
+     * @param slices requested number of slices to start from (see {@link #guidPrefixes(int)})
+     * @param workers slices paged through at the same time
+     * @param maxPages pages fetched but not yet consumed before fetching blocks
+     * @param consumer called once per non-empty page, from one thread at a time
+     * @return number of pages fetched
+     * @throws AtlanException the first error of a search or of the consumer
+     * @throws InterruptedException
+     */
+    public static int forEachPage(Slicer search, int slices, int workers, int maxPages, PageConsumer consumer)
+            throws AtlanException, InterruptedException {
+        List<String> prefixes = guidPrefixes(slices);
+        AtomicInteger pages = new AtomicInteger();
+        try (Pipeline pipeline = new Pipeline("search", 0)) {
+            Pipeline.Stage<List<Asset>> consume = pipeline.stage("pages", 1, maxPages, consumer::accept);
+            Pipeline.Stage<String> fetch = pipeline.stage("slices", Math.min(workers, prefixes.size()), prefixes.size(),
+                    prefix -> pages.addAndGet(forEachSlicePage(search, prefix, page -> {
+                        try {
+                            consume.put(page);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new IllegalStateException("Interrupted while queueing a search page", e);
+                        }
+                    })));
+            for (String prefix : prefixes) {
+                fetch.put(prefix);
+            }
+            Exception fetchFailure = null;
+            try {
+                fetch.finish();
+            } catch (Exception e) {
+                fetchFailure = e;
+            }
+            // a failed consumer also fails the fetch, so report the consumer's own error first
+            consume.finish();
+            if (fetchFailure != null) {
+                throw fetchFailure;
+            }
+        } catch (AtlanException | InterruptedException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return pages.get();
+    }
+
+    /**
+     * Page through one slice, or through its sub-slices if it has more results than offset paging can reach.
+     * The first page of a slice that is split is fetched only to count it.
+     */
+    private static int forEachSlicePage(Slicer search, String prefix, PageConsumer consumer) throws AtlanException {
+        IndexSearchRequest request = search.slice(prefix);
+        IndexSearchResponse response = AtlanCalls.execute(AtlanCalls.CallType.SEARCH, request::search);
+        if (response != null && response.getApproximateCount() > RESULT_WINDOW && prefix.length() < MAX_PREFIX_LENGTH) {
+            logger.debug("Splitting search slice '{}' of {} results", prefix, response.getApproximateCount());
+            int pages = 0;
+            for (int digit = 0; digit < 16; digit++) {
+                pages += forEachSlicePage(search, prefix + Integer.toHexString(digit), consumer);
+            }
+            return pages;
+        }
+        return forEachPage(response, prefix, consumer);
+    }
+
+    /**
+     * Page on from a first response, failing before a page would start beyond {@link #RESULT_WINDOW}
+     */
+    private static int forEachPage(IndexSearchResponse response, String prefix, PageConsumer consumer) throws AtlanException {
+        int pages = 0;
+        long fetched = 0;
+        int pageSize = 0;
+        while (response != null && response.getAssets() != null && !response.getAssets().isEmpty()) {
+            pages++;
+            List<Asset> page = response.getAssets();
+            fetched += page.size();
+            pageSize = Math.max(pageSize, page.size());
+            consumer.accept(page);
+            if (fetched + pageSize > RESULT_WINDOW && response.getApproximateCount() > fetched) {
+                throw windowExceeded(response.getApproximateCount(), prefix);
+            }
+            IndexSearchResponse current = response;
+            response = AtlanCalls.execute(AtlanCalls.CallType.SEARCH, current::getNextPage);
+        }
+        return pages;
+    }
+
+    private static IllegalStateException windowExceeded(long count, String prefix) {
+        return new IllegalStateException("Search" + (prefix.isEmpty() ? "" : " slice '" + prefix + "'") + " has " + count
+                + " results, more than the " + RESULT_WINDOW + " that offset paging can reach; not returning a truncated result");
+    }
+
+    /**
+     * Prefixes that split GUIDs (lower-case hex) into disjoint, roughly even slices
+     * @param slices requested number of slices
+     * @return a single empty prefix (no slicing) for 1 or fewer, 16 one-digit prefixes up to 16, otherwise 256 two-digit prefixes
+     */
+    public static List<String> guidPrefixes(int slices) {
+        List<String> prefixes = new ArrayList<>();
+        if (slices <= 1) {
+            prefixes.add("");
+        } else if (slices <= 16) {
+            for (int i = 0; i < 16; i++) {
+                prefixes.add(Integer.toHexString(i));
+            }
+        } else {
+            for (int i = 0; i < 256; i++) {
+                prefixes.add(String.format("%02x", i));
+            }
+        }
+        return prefixes;
+    }
+}
@@ -0,0 +1,40 @@
+/**
+ * Tunables shared by the tools. A JVM system property wins over an environment variable of the same name,
+ * so a harness can override settings in-process.
+ */
+public class AtlanSettings {
+
+    private AtlanSettings() {
+    }
+
+    /**
+     * Get a string setting
+     * @param name property / environment variable name, e.g. ATLAN_BATCH_SIZE
+     * @param defaultValue value used when the setting is absent
+     * @return the configured value or the default
+     */
+    public static String get(String name, String defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null || value.isBlank()) {
+            value = System.getenv(name);
+        }
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    public static int getInt(String name, int defaultValue) {
+        String value = get(name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Setting " + name + " must be an integer, got: " + value, e);
+        }
+    }
+
+    public static boolean getBoolean(String name, boolean defaultValue) {
+        String value = get(name, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+}
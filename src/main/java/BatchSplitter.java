@@ -0,0 +1,70 @@
+import com.atlan.exception.AtlanException;
+import com.atlan.model.core.AssetMutationResponse;
+
+import java.util.List;
+
+/**
+ * Sends bulk mutation requests (saves, deletes) through {@link AtlanCalls}. A request rejected because of its
+ * content is split in half and each half is sent on its own, so a single bad member cannot sink the rest of the
+ * batch; a request that failed for any other reason fails all of its members at once.
+ */
+final class BatchSplitter {
+
+    /**
+     * One bulk request to Atlan.
+     * @param <T> type of the members of a batch
+     */
+    interface Request<T> {
+        AssetMutationResponse send(List<T> members) throws AtlanException;
+    }
+
+    /**
+     * Callback for the outcome of each request that could not be split further.
+     * @param <T> type of the members of a batch
+     */
+    interface Outcome<T> {
+        /**
+         * @param members members of the request
+         * @param response what Atlan returned, possibly null
+         */
+        void onResponse(List<T> members, AssetMutationResponse response);
+
+        /**
+         * @param members members of the request
+         * @param error an {@link AtlanException}, or a {@link AtlanCalls.CircuitOpenException} if it was never sent
+         */
+        void onFailure(List<T> members, Exception error);
+    }
+
+    private BatchSplitter() {
+    }
+
+    /**
+     * Send a batch, splitting it as long as Atlan rejects its content
+     * @param type kind of call
+     * @param members the batch
+     * @param request sends one request
+     * @param outcome receives the outcome of every request that was not split
+     */
+    static <T> void send(AtlanCalls.CallType type, List<T> members, Request<T> request, Outcome<T> outcome) {
+        AssetMutationResponse response;
+        try {
+            response = AtlanCalls.execute(type, () -> request.send(members));
+        } catch (AtlanCalls.CircuitOpenException e) {
+            // never sent: splitting the batch would only be refused again
+            outcome.onFailure(members, e);
+            return;
+        } catch (AtlanException e) {
+            if (members.size() == 1 || AtlanCalls.isRetryable(e)) {
+                // nothing to isolate: either a single member, or the server (not the content) is the problem
+                outcome.onFailure(members, e);
+                return;
+            }
+            int half = members.size() / 2;
+            send(type, members.subList(0, half), request, outcome);
+            send(type, members.subList(half, members.size()), request, outcome);
+            return;
+        }
+        outcome.onResponse(members, response);
+    }
+}
@@ -0,0 +1,353 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Read-only, memory-mapped snapshot of the identity of a set of assets (guid, type, name, qualified name,
+ * connection), answering lookups by GUID and by name without touching the network.
+ * <p>
+ * Opening a snapshot maps the file and reads its header only; the operating system pages records in as
+ * lookups touch them, so startup cost does not grow with the size of the catalog. Layout:
+ * <pre>
+ * header      magic, version, last update time, time of the last full export, record count, hash table capacity,
+ *             qualified name of the connection exported (unsigned short byte length, UTF-8 bytes)
+ * offsets     int per record: position of the record in the file
+ * guid table  capacity x (long hash of the GUID, int record + 1), open addressing, 0 = empty slot
+ * name table  capacity x (long hash of the name, int record + 1); duplicate names sit on the same probe chain
+ * records     5 strings per record, each an unsigned short byte length followed by UTF-8 bytes
+ * </pre>
+ * Version 1 snapshots (without full export time and connection) can still be read.
+ */
+public class CatalogSnapshot implements AutoCloseable {
+
+    private static final int MAGIC = 0x4154534E; // "ATSN"
+    private static final int VERSION = 2;
+    private static final int V1_HEADER_BYTES = 24;
+    // without the connection's qualified name
+    private static final int HEADER_BYTES = 34;
+    private static final int SLOT_BYTES = 12;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final long lastUpdateTime;
+    private final long fullExportTime;
+    private final String connectionQualifiedName;
+    private final int count;
+    private final int capacity;
+    private final int offsetTable;
+    private final int guidTable;
+    private final int nameTable;
+
+    private CatalogSnapshot(Path file, FileChannel channel, MappedByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+        int version = buffer.getInt(4);
+        if (buffer.getInt(0) != MAGIC || (version != 1 && version != VERSION)) {
+            throw new IOException("Not a catalog snapshot: " + file);
+        }
+        this.lastUpdateTime = buffer.getLong(8);
+        int headerBytes;
+        if (version == 1) {
+            this.fullExportTime = 0;
+            this.connectionQualifiedName = null;
+            this.count = buffer.getInt(16);
+            this.capacity = buffer.getInt(20);
+            headerBytes = V1_HEADER_BYTES;
+        } else {
+            this.fullExportTime = buffer.getLong(16);
+            this.count = buffer.getInt(24);
+            this.capacity = buffer.getInt(28);
+            byte[] connection = new byte[buffer.getShort(32) & 0xFFFF];
+            buffer.duplicate().position(HEADER_BYTES).get(connection);
+            this.connectionQualifiedName = new String(connection, StandardCharsets.UTF_8);
+            headerBytes = HEADER_BYTES + connection.length;
+        }
+        this.offsetTable = headerBytes;
+        this.guidTable = headerBytes + count * 4;
+        this.nameTable = guidTable + capacity * SLOT_BYTES;
+    }
+
+    /**
+     * Map a snapshot file
+     * @param file
+     * @return the snapshot
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static CatalogSnapshot open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new CatalogSnapshot(file, channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Write a snapshot. The file is replaced atomically, so readers of the previous snapshot are never
+     * left with a partial file.
+     * @param file
+     * @param connectionQualifiedName connection the assets were exported from
+     * @param entries the assets, each GUID at most once
+     * @param lastUpdateTime latest update time among the assets, used to refresh the snapshot incrementally
+     * @param fullExportTime when the assets were last exported in full (epoch millis), rather than refreshed
+     * @throws IOException
+     */
+    public static void write(Path file, String connectionQualifiedName, Collection<Entry> entries, long lastUpdateTime,
+                             long fullExportTime) throws IOException {
+        byte[] connection = connectionQualifiedName.getBytes(StandardCharsets.UTF_8);
+        if (connection.length > 0xFFFF) {
+            throw new IOException("Connection qualified name longer than 65535 bytes: " + connectionQualifiedName);
+        }
+        int count = entries.size();
+        int capacity = 16;
+        while (capacity < count * 2L && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        long[] guidHashes = new long[capacity];
+        int[] guidRecords = new int[capacity];
+        long[] nameHashes = new long[capacity];
+        int[] nameRecords = new int[capacity];
+        int[] offsets = new int[count];
+        byte[][][] encoded = new byte[count][][];
+
+        long position = HEADER_BYTES + connection.length + count * 4L + 2L * capacity * SLOT_BYTES;
+        int record = 0;
+        for (Entry entry : entries) {
+            encoded[record] = entry.encode();
+            if (position > Integer.MAX_VALUE) {
+                throw new IOException("Catalog snapshot exceeds 2 GB, split it by connection: " + file);
+            }
+            offsets[record] = (int) position;
+            for (byte[] value : encoded[record]) {
+                position += 2 + value.length;
+            }
+            insert(guidHashes, guidRecords, CompactKeySet.hash(entry.getGuid()), record);
+            insert(nameHashes, nameRecords, CompactKeySet.hash(entry.getName()), record);
+            record++;
+        }
+        if (position > Integer.MAX_VALUE) {
+            throw new IOException("Catalog snapshot exceeds 2 GB, split it by connection: " + file);
+        }
+
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(lastUpdateTime);
+            out.writeLong(fullExportTime);
+            out.writeInt(count);
+            out.writeInt(capacity);
+            out.writeShort(connection.length);
+            out.write(connection);
+            for (int offset : offsets) {
+                out.writeInt(offset);
+            }
+            writeTable(out, guidHashes, guidRecords);
+            writeTable(out, nameHashes, nameRecords);
+            for (byte[][] values : encoded) {
+                for (byte[] value : values) {
+                    out.writeShort(value.length);
+                    out.write(value);
+                }
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @param guid
+     * @return the asset with this GUID, or null if it is not in the snapshot
+     */
+    public Entry findByGuid(String guid) {
+        long hash = CompactKeySet.hash(guid);
+        int mask = capacity - 1;
+        for (int slot = (int) hash & mask; ; slot = (slot + 1) & mask) {
+            int position = guidTable + slot * SLOT_BYTES;
+            int record = buffer.getInt(position + 8) - 1;
+            if (record < 0) {
+                return null;
+            }
+            if (buffer.getLong(position) == hash) {
+                Entry entry = read(record);
+                if (guid.equals(entry.getGuid())) {
+                    return entry;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param name
+     * @return every asset with exactly this name, in any connection of the snapshot
+     */
+    public List<Entry> findByName(String name) {
+        List<Entry> found = new ArrayList<>(1);
+        long hash = CompactKeySet.hash(name);
+        int mask = capacity - 1;
+        for (int slot = (int) hash & mask; ; slot = (slot + 1) & mask) {
+            int position = nameTable + slot * SLOT_BYTES;
+            int record = buffer.getInt(position + 8) - 1;
+            if (record < 0) {
+                return found;
+            }
+            if (buffer.getLong(position) == hash) {
+                Entry entry = read(record);
+                if (name.equals(entry.getName())) {
+                    found.add(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Visit every asset of the snapshot, in the order they were written
+     * @param consumer
+     */
+    public void forEach(Consumer<Entry> consumer) {
+        for (int record = 0; record < count; record++) {
+            consumer.accept(read(record));
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return latest update time (epoch millis) of the assets at the time of the snapshot
+     */
+    public long getLastUpdateTime() {
+        return lastUpdateTime;
+    }
+
+    /**
+     * @return when the snapshot was last exported in full (epoch millis), 0 if unknown
+     */
+    public long getFullExportTime() {
+        return fullExportTime;
+    }
+
+    /**
+     * @return qualified name of the connection the snapshot was exported from, null if unknown
+     */
+    public String getConnectionQualifiedName() {
+        return connectionQualifiedName;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // the mapping itself is released once the buffer is garbage collected
+        channel.close();
+    }
+
+    private Entry read(int record) {
+        // a private view, so concurrent lookups do not share a read position
+        ByteBuffer view = buffer.duplicate();
+        view.position(buffer.getInt(offsetTable + record * 4));
+        String[] values = new String[5];
+        for (int i = 0; i < values.length; i++) {
+            byte[] bytes = new byte[view.getShort() & 0xFFFF];
+            view.get(bytes);
+            values[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return new Entry(values[0], values[1], values[2], values[3], values[4]);
+    }
+
+    private static void insert(long[] hashes, int[] records, long hash, int record) {
+        int mask = hashes.length - 1;
+        int slot = (int) hash & mask;
+        while (records[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        hashes[slot] = hash;
+        records[slot] = record + 1;
+    }
+
+    private static void writeTable(DataOutputStream out, long[] hashes, int[] records) throws IOException {
+        for (int slot = 0; slot < hashes.length; slot++) {
+            out.writeLong(hashes[slot]);
+            out.writeInt(records[slot]);
+        }
+    }
+
+    /**
+     * Identity of one asset in a snapshot.
+     */
+    public static final class Entry {
+        private final String guid;
+        private final String typeName;
+        private final String name;
+        private final String qualifiedName;
+        private final String connectionQualifiedName;
+
+        public Entry(String guid, String typeName, String name, String qualifiedName, String connectionQualifiedName) {
+            this.guid = guid;
+            this.typeName = typeName;
+            this.name = name == null ? "" : name;
+            this.qualifiedName = qualifiedName == null ? "" : qualifiedName;
+            this.connectionQualifiedName = connectionQualifiedName == null ? "" : connectionQualifiedName;
+        }
+
+        public String getGuid() {
+            return guid;
+        }
+
+        public String getTypeName() {
+            return typeName;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getQualifiedName() {
+            return qualifiedName;
+        }
+
+        public String getConnectionQualifiedName() {
+            return connectionQualifiedName;
+        }
+
+        private byte[][] encode() throws IOException {
+            byte[][] values = {
+                    guid.getBytes(StandardCharsets.UTF_8),
+                    typeName.getBytes(StandardCharsets.UTF_8),
+                    name.getBytes(StandardCharsets.UTF_8),
+                    qualifiedName.getBytes(StandardCharsets.UTF_8),
+                    connectionQualifiedName.getBytes(StandardCharsets.UTF_8)
+            };
+            for (byte[] value : values) {
+                if (value.length > 0xFFFF) {
+                    throw new IOException("Value longer than 65535 bytes in asset " + guid);
+                }
+            }
+            return values;
+        }
+
+        @Override
+        public String toString() {
+            return typeName + " " + qualifiedName + " (" + guid + ")";
+        }
+    }
+}
@@ -0,0 +1,120 @@
+import java.util.Arrays;
+
+/**
+ * Memory-compact set of string keys. Only a 64-bit hash of each key is kept, in an open-addressing
+ * {@code long[]} table, so a million keys cost roughly 16 MB instead of the hundreds of MB a
+ * {@code HashSet<String>} would take.
+ * <p>
+ * Membership is probabilistic in theory: two different keys with the same 64-bit hash are treated as one.
+ * At 100M keys the chance of any such collision is still below one in a thousand.
+ */
+public class CompactKeySet {
+
+    private static final long EMPTY = 0L;
+    private static final double MAX_LOAD = 0.6;
+
+    private long[] table;
+    private int size;
+
+    public CompactKeySet() {
+        this(1024);
+    }
+
+    /**
+     * @param expectedSize number of keys expected, used to size the table up front
+     */
+    public CompactKeySet(int expectedSize) {
+        long needed = (long) Math.ceil(expectedSize / MAX_LOAD);
+        int capacity = 16;
+        while (capacity < needed && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        table = new long[capacity];
+    }
+
+    /**
+     * @param key
+     * @return true if the key was not already present
+     */
+    public boolean add(String key) {
+        return addHash(hash(key));
+    }
+
+    public boolean contains(String key) {
+        return containsHash(hash(key));
+    }
+
+    /**
+     * Add a precomputed {@link #hash(String)}
+     * @param h
+     * @return true if the hash was not already present
+     */
+    public boolean addHash(long h) {
+        if (size + 1 > table.length * MAX_LOAD) {
+            resize();
+        }
+        int mask = table.length - 1;
+        int slot = (int) h & mask;
+        while (table[slot] != EMPTY) {
+            if (table[slot] == h) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = h;
+        size++;
+        return true;
+    }
+
+    public boolean containsHash(long h) {
+        int mask = table.length - 1;
+        int slot = (int) h & mask;
+        while (table[slot] != EMPTY) {
+            if (table[slot] == h) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(table, EMPTY);
+        size = 0;
+    }
+
+    private void resize() {
+        long[] old = table;
+        table = new long[old.length << 1];
+        size = 0;
+        for (long h : old) {
+            if (h != EMPTY) {
+                addHash(h);
+            }
+        }
+    }
+
+    /**
+     * 64-bit hash of a key: FNV-1a over the UTF-16 code units, finished with the MurmurHash3 mixer
+     * so the low bits used for slot selection are well distributed. Never returns 0.
+     * @param key
+     * @return hash of the key
+     */
+    public static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == EMPTY ? 1L : h;
+    }
+}
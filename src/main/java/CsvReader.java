@@ -0,0 +1,298 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming RFC 4180 CSV reader. Reads one record at a time through a fixed character buffer, so memory
+ * stays flat regardless of file size.
+ * <ul>
+ *     <li>fields may be quoted; quoted fields can hold commas, line breaks and doubled quotes ({@code ""})</li>
+ *     <li>records end with LF, CRLF or CR; blank lines and a leading byte order mark are skipped</li>
+ *     <li>a malformed record (unterminated quote, text after a closing quote, over-long record) does not stop
+ *     the reader: it is reported through {@link #getError()} and reading resumes at the next line; for a quote
+ *     that runs over line breaks and then never closes, closes too late or is followed by stray text, only the
+ *     line it opened on is rejected, and the lines it ran over are read again as records of their own</li>
+ * </ul>
+ * Used as a cursor: call {@link #next()}, then read the current record with {@link #getFields()}.
+ */
+public class CsvReader implements AutoCloseable {
+
+    private static final int EOF = -1;
+    private static final int NONE = -2;
+
+    private final Reader reader;
+    private final int maxRecordChars;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    private int pushedBack = NONE;
+    private StringBuilder replay = new StringBuilder();
+    private int replayPosition;
+    private boolean started;
+
+    private final List<String> fields = new ArrayList<>();
+    private final StringBuilder field = new StringBuilder();
+    private final StringBuilder raw = new StringBuilder();
+    private long line = 1;
+    private long recordLine;
+    private long records;
+    private String error;
+
+    /**
+     * @param reader source of the CSV text, read sequentially
+     * @param maxRecordChars longest record accepted, which also bounds how far a stray quote is read ahead
+     */
+    public CsvReader(Reader reader, int maxRecordChars) {
+        this.reader = reader;
+        this.maxRecordChars = maxRecordChars;
+    }
+
+    /**
+     * Move to the next record
+     * @return false once the input is exhausted
+     * @throws IOException if the input cannot be read
+     */
+    public boolean next() throws IOException {
+        fields.clear();
+        raw.setLength(0);
+        error = null;
+
+        int c = read();
+        if (!started) {
+            started = true;
+            if (c == '\uFEFF') {
+                c = read();
+            }
+        }
+        // skip blank lines
+        while (c == '\n' || c == '\r') {
+            endOfLine(c);
+            c = read();
+        }
+        if (c == EOF) {
+            return false;
+        }
+        records++;
+        recordLine = line;
+        readRecord(c);
+        return true;
+    }
+
+    /**
+     * @return fields of the current record (empty if it is malformed)
+     */
+    public String[] getFields() {
+        return fields.toArray(new String[0]);
+    }
+
+    /**
+     * @return why the current record could not be parsed, or null if it is well-formed
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return the current record as it appeared in the input, without its line break
+     */
+    public String getRawRecord() {
+        return raw.toString();
+    }
+
+    /**
+     * @return line (1-based) on which the current record starts
+     */
+    public long getLineNumber() {
+        return recordLine;
+    }
+
+    /**
+     * @return number of records read so far, including malformed ones
+     */
+    public long getRecordCount() {
+        return records;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void readRecord(int c) throws IOException {
+        while (true) {
+            field.setLength(0);
+            if (c == '"') {
+                c = readQuoted();
+                if (error != null) {
+                    return;
+                }
+                if (c != ',' && c != '\n' && c != '\r' && c != EOF) {
+                    fail("Unexpected character after closing quote", c);
+                    return;
+                }
+            } else {
+                while (c != ',' && c != '\n' && c != '\r' && c != EOF) {
+                    if (!append(c)) {
+                        return;
+                    }
+                    c = read();
+                }
+            }
+            fields.add(field.toString());
+            if (c != ',') {
+                endOfLine(c);
+                return;
+            }
+            raw.append(',');
+            c = read();
+        }
+    }
+
+    /**
+     * Read a quoted field, the opening quote having been consumed
+     * @return the character following the closing quote
+     */
+    private int readQuoted() throws IOException {
+        raw.append('"');
+        // where the line the quote opened on ends, in case the quote turns out to be a stray one
+        int firstBreak = -1;
+        long lineAfterBreak = 0;
+        while (true) {
+            int c = read();
+            if (c == EOF) {
+                rejectQuoteLine("Unterminated quoted field", firstBreak, lineAfterBreak);
+                return c;
+            }
+            if (c == '"') {
+                raw.append('"');
+                int following = read();
+                if (following != '"') {
+                    if (firstBreak >= 0 && following != ',' && following != '\n' && following != '\r' && following != EOF) {
+                        // most likely a stray quote that another one closed lines later
+                        raw.append((char) following);
+                        rejectQuoteLine("Unexpected character after closing quote", firstBreak, lineAfterBreak);
+                        return EOF;
+                    }
+                    return following;
+                }
+                raw.append('"');
+            } else if (c == '\r' || c == '\n') {
+                if (c == '\r') {
+                    int following = read();
+                    if (following != '\n') {
+                        unread(following);
+                    }
+                }
+                line++;
+                if (firstBreak < 0) {
+                    firstBreak = raw.length();
+                    lineAfterBreak = line;
+                }
+                raw.append('\n');
+                c = '\n';
+            } else {
+                raw.append((char) c);
+            }
+            if (raw.length() >= maxRecordChars) {
+                if (firstBreak < 0) {
+                    fail("Record longer than " + maxRecordChars + " characters", read());
+                } else {
+                    rejectQuoteLine("Record longer than " + maxRecordChars + " characters", firstBreak, lineAfterBreak);
+                }
+                return EOF;
+            }
+            field.append((char) c);
+        }
+    }
+
+    private boolean append(int c) throws IOException {
+        if (raw.length() >= maxRecordChars) {
+            fail("Record longer than " + maxRecordChars + " characters", c);
+            return false;
+        }
+        raw.append((char) c);
+        field.append((char) c);
+        return true;
+    }
+
+    /**
+     * Flag the current record as malformed and skip the rest of its line
+     */
+    private void fail(String message, int c) throws IOException {
+        error = message;
+        fields.clear();
+        while (c != '\n' && c != '\r' && c != EOF) {
+            if (raw.length() < maxRecordChars) {
+                raw.append((char) c);
+            }
+            c = read();
+        }
+        endOfLine(c);
+    }
+
+    /**
+     * Flag the current record as malformed because of a quote that did not close properly. Only the line the quote
+     * opened on is rejected: what was read past its end is read again, starting on the next line.
+     * @param firstBreak position in the raw record of the first line break inside the quote, -1 if none
+     * @param lineAfterBreak line number following that line break
+     */
+    private void rejectQuoteLine(String message, int firstBreak, long lineAfterBreak) {
+        error = message;
+        fields.clear();
+        if (firstBreak < 0) {
+            return;
+        }
+        StringBuilder pending = new StringBuilder(raw.substring(firstBreak + 1));
+        if (pushedBack != NONE && pushedBack != EOF) {
+            pending.append((char) pushedBack);
+        }
+        pushedBack = NONE;
+        pending.append(replay, replayPosition, replay.length());
+        replay = pending;
+        replayPosition = 0;
+        raw.setLength(firstBreak);
+        line = lineAfterBreak;
+    }
+
+    private void endOfLine(int c) throws IOException {
+        if (c == '\r') {
+            int following = read();
+            if (following != '\n') {
+                unread(following);
+            }
+        }
+        if (c != EOF) {
+            line++;
+        }
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != NONE) {
+            int c = pushedBack;
+            pushedBack = NONE;
+            return c;
+        }
+        if (replayPosition < replay.length()) {
+            char c = replay.charAt(replayPosition++);
+            if (replayPosition == replay.length()) {
+                replay.setLength(0);
+                replayPosition = 0;
+            }
+            return c;
+        }
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return EOF;
+            }
+        }
+        return buffer[position++];
+    }
+
+    private void unread(int c) {
+        pushedBack = c;
+    }
+}
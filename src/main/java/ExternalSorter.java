@@ -0,0 +1,286 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts records (fixed-size arrays of strings, ordered by their first field) in bounded memory.
+ * Records are buffered until the memory budget is reached, then sorted and spilled to a run file on local disk;
+ * reading the result merges the runs, so memory use depends on the budget and not on the number of records.
+ * <p>
+ * Not thread-safe: records are added from one thread, then read through a single {@link Cursor}.
+ */
+public class ExternalSorter implements Closeable {
+
+    // runs merged at once; more runs are first merged into longer ones, so open files stay bounded
+    private static final int MAX_FAN_IN = 64;
+    private static final int IO_BUFFER_BYTES = 1 << 16;
+    // rough heap cost of a record and of each of its strings, beyond the characters themselves
+    private static final int RECORD_OVERHEAD_BYTES = 32;
+    private static final int FIELD_OVERHEAD_BYTES = 40;
+
+    private static final Comparator<String[]> BY_KEY = Comparator.comparing(record -> record[0]);
+
+    private final Path tempDir;
+    private final int fieldCount;
+    private final long memoryBytes;
+    private final List<String[]> buffer = new ArrayList<>();
+    private final List<Path> runs = new ArrayList<>();
+    private long bufferedBytes;
+    private long count;
+    private boolean sorted;
+
+    /**
+     * @param tempDir directory for run files, created if needed
+     * @param fieldCount fields per record; the first is the sort key and must not be null
+     * @param memoryBytes approximate heap the buffered records may take before they are spilled
+     */
+    public ExternalSorter(Path tempDir, int fieldCount, long memoryBytes) {
+        this.tempDir = tempDir;
+        this.fieldCount = fieldCount;
+        this.memoryBytes = Math.max(1 << 20, memoryBytes);
+    }
+
+    /**
+     * Add a record
+     * @param fields the record, its sort key first; other fields may be null
+     * @throws IOException if a run cannot be spilled
+     */
+    public void add(String... fields) throws IOException {
+        if (sorted) {
+            throw new IllegalStateException("Records cannot be added once the sorter is read");
+        }
+        if (fields.length != fieldCount || fields[0] == null) {
+            throw new IllegalArgumentException("Expected " + fieldCount + " fields with a non-null key");
+        }
+        buffer.add(fields);
+        bufferedBytes += RECORD_OVERHEAD_BYTES;
+        for (String field : fields) {
+            bufferedBytes += FIELD_OVERHEAD_BYTES + (field == null ? 0 : 2L * field.length());
+        }
+        count++;
+        if (bufferedBytes >= memoryBytes) {
+            spill();
+        }
+    }
+
+    /**
+     * Finish adding records and read them back in order of their keys; records with equal keys come out
+     * next to each other, in no particular order
+     * @return cursor over every record added
+     * @throws IOException
+     */
+    public Cursor sorted() throws IOException {
+        if (sorted) {
+            throw new IllegalStateException("The sorter can only be read once");
+        }
+        sorted = true;
+        buffer.sort(BY_KEY);
+        if (runs.isEmpty()) {
+            return new MemoryCursor(new ArrayList<>(buffer));
+        }
+        if (!buffer.isEmpty()) {
+            spill();
+        }
+        while (runs.size() > MAX_FAN_IN) {
+            List<Path> group = new ArrayList<>(runs.subList(0, MAX_FAN_IN));
+            runs.subList(0, MAX_FAN_IN).clear();
+            Path merged = Files.createTempFile(tempDir, "run-", ".bin");
+            try (MergeCursor cursor = new MergeCursor(group);
+                 DataOutputStream out = output(merged)) {
+                while (cursor.next()) {
+                    write(out, cursor.get());
+                }
+            }
+            for (Path run : group) {
+                Files.deleteIfExists(run);
+            }
+            runs.add(merged);
+        }
+        return new MergeCursor(runs);
+    }
+
+    /**
+     * @return number of records added
+     */
+    public long size() {
+        return count;
+    }
+
+    /**
+     * @return number of runs spilled to disk so far
+     */
+    public int getRunCount() {
+        return runs.size();
+    }
+
+    /**
+     * Delete the run files
+     */
+    @Override
+    public void close() throws IOException {
+        buffer.clear();
+        for (Path run : runs) {
+            Files.deleteIfExists(run);
+        }
+        runs.clear();
+    }
+
+    private void spill() throws IOException {
+        buffer.sort(BY_KEY);
+        Files.createDirectories(tempDir);
+        Path run = Files.createTempFile(tempDir, "run-", ".bin");
+        try (DataOutputStream out = output(run)) {
+            for (String[] record : buffer) {
+                write(out, record);
+            }
+        }
+        runs.add(run);
+        buffer.clear();
+        bufferedBytes = 0;
+    }
+
+    private static DataOutputStream output(Path file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), IO_BUFFER_BYTES));
+    }
+
+    private static void write(DataOutputStream out, String[] record) throws IOException {
+        for (String field : record) {
+            if (field == null) {
+                out.writeInt(-1);
+            } else {
+                byte[] bytes = field.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Reads sorted records one at a time.
+     */
+    public interface Cursor extends Closeable {
+        /**
+         * @return true if a record is available through {@link #get()}, false once all have been read
+         */
+        boolean next() throws IOException;
+
+        /**
+         * @return the current record
+         */
+        String[] get();
+    }
+
+    private static final class MemoryCursor implements Cursor {
+        private final List<String[]> records;
+        private int position = -1;
+
+        private MemoryCursor(List<String[]> records) {
+            this.records = records;
+        }
+
+        @Override
+        public boolean next() {
+            return ++position < records.size();
+        }
+
+        @Override
+        public String[] get() {
+            return records.get(position);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * k-way merge of run files, through a heap holding the current record of each run.
+     */
+    private final class MergeCursor implements Cursor {
+        private final List<RunReader> readers = new ArrayList<>();
+        private final PriorityQueue<RunReader> heap = new PriorityQueue<>((a, b) -> BY_KEY.compare(a.current, b.current));
+        private RunReader last;
+        private String[] current;
+
+        private MergeCursor(List<Path> files) throws IOException {
+            try {
+                for (Path file : files) {
+                    RunReader reader = new RunReader(file);
+                    readers.add(reader);
+                    if (reader.advance()) {
+                        heap.add(reader);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            // the run the previous record came from goes back into the heap with its next record
+            if (last != null && last.advance()) {
+                heap.add(last);
+            }
+            last = heap.poll();
+            current = last == null ? null : last.current;
+            return last != null;
+        }
+
+        @Override
+        public String[] get() {
+            return current;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (RunReader reader : readers) {
+                reader.in.close();
+            }
+        }
+    }
+
+    private final class RunReader {
+        private final DataInputStream in;
+        private String[] current;
+
+        private RunReader(Path file) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), IO_BUFFER_BYTES));
+        }
+
+        private boolean advance() throws IOException {
+            String[] record = new String[fieldCount];
+            for (int i = 0; i < fieldCount; i++) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    if (i == 0) {
+                        current = null;
+                        return false;
+                    }
+                    throw e;
+                }
+                if (length >= 0) {
+                    byte[] bytes = new byte[length];
+                    in.readFully(bytes);
+                    record[i] = new String(bytes, StandardCharsets.UTF_8);
+                }
+            }
+            current = record;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import com.atlan.exception.AtlanException;
+import com.atlan.model.assets.Asset;
+import com.atlan.model.assets.ICatalog;
+import com.atlan.model.assets.LineageProcess;
+import com.atlan.model.search.CompoundQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory index of the lineage edges (input asset to output asset, by GUID) of every process in a set of
+ * connections. Loaded once with paged searches, then answers edge-existence checks locally and is kept
+ * up to date as new processes are created.
+ * <p>
+ * An edge about to be saved is {@link #claim claimed}, so it is not queued twice, but only becomes part of the
+ * index once its process is {@link #add saved}; if the save fails the claim is {@link #release released}.
+ */
+public class LineageIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(LineageIndex.class);
+
+    private final Map<String, Set<String>> downstream = new HashMap<>();
+    // edges of processes queued but not saved yet
+    private final Map<String, Set<String>> claimed = new HashMap<>();
+    private long edges;
+    private long processes;
+
+    /**
+     * Load the edges of every lineage process in the given connections
+     * @param connectionQualifiedNames connections whose processes are loaded
+     * @param pageSize page size of the searches
+     * @return the loaded index
+     * @throws AtlanException
+     */
+    public static LineageIndex load(Collection<String> connectionQualifiedNames, int pageSize) throws AtlanException {
+        LineageIndex index = new LineageIndex();
+        if (connectionQualifiedNames.isEmpty()) {
+            return index;
+        }
+        AtlanSearch.Slicer search = AtlanSearch.byGuid(() -> AtlanSearch.select(Projection.LINEAGE_REFS)
+                .where(CompoundQuery.assetType(LineageProcess.TYPE_NAME))
+                .where(Asset.CONNECTION_QUALIFIED_NAME.in(connectionQualifiedNames))
+                .pageSize(pageSize)
+                .sort(Asset.GUID.order(SortOrder.Asc)));
+        int pages = AtlanSearch.forEachPage(search, page -> {
+            for (Asset asset : page) {
+                if (asset instanceof LineageProcess) {
+                    index.add((LineageProcess) asset);
+                }
+            }
+        });
+        logger.info("Loaded {} lineage edge(s) of {} process(es) in {} page(s)", index.getEdgeCount(), index.getProcessCount(), pages);
+        return index;
+    }
+
+    /**
+     * Record every input-to-output edge of a process that exists in Atlan, releasing their claims
+     * @param process
+     */
+    public synchronized void add(LineageProcess process) {
+        processes++;
+        if (process.getInputs() == null || process.getOutputs() == null) {
+            return;
+        }
+        for (ICatalog input : process.getInputs()) {
+            for (ICatalog output : process.getOutputs()) {
+                if (input.getGuid() != null && output.getGuid() != null) {
+                    unclaim(input.getGuid(), output.getGuid());
+                    addEdge(input.getGuid(), output.getGuid());
+                }
+            }
+        }
+    }
+
+    /**
+     * Claim an edge that is about to be saved
+     * @param sourceGuid
+     * @param targetGuid
+     * @return true if the edge neither exists nor is already claimed
+     */
+    public synchronized boolean claim(String sourceGuid, String targetGuid) {
+        if (exists(sourceGuid, targetGuid)) {
+            return false;
+        }
+        return claimed.computeIfAbsent(sourceGuid, k -> new HashSet<>(2)).add(targetGuid);
+    }
+
+    /**
+     * Release the claims on the edges of a process that could not be saved, so they are queued again if
+     * another row has them
+     * @param process
+     */
+    public synchronized void release(LineageProcess process) {
+        if (process.getInputs() == null || process.getOutputs() == null) {
+            return;
+        }
+        for (ICatalog input : process.getInputs()) {
+            for (ICatalog output : process.getOutputs()) {
+                unclaim(input.getGuid(), output.getGuid());
+            }
+        }
+    }
+
+    /**
+     * @param sourceGuid
+     * @param targetGuid
+     * @return true if the edge was not already known
+     */
+    public synchronized boolean addEdge(String sourceGuid, String targetGuid) {
+        boolean added = downstream.computeIfAbsent(sourceGuid, k -> new HashSet<>(2)).add(targetGuid);
+        if (added) {
+            edges++;
+        }
+        return added;
+    }
+
+    /**
+     * @param sourceGuid
+     * @param targetGuid
+     * @return true if a process with the source as input and the target as output exists
+     */
+    public synchronized boolean exists(String sourceGuid, String targetGuid) {
+        Set<String> targets = downstream.get(sourceGuid);
+        return targets != null && targets.contains(targetGuid);
+    }
+
+    private void unclaim(String sourceGuid, String targetGuid) {
+        Set<String> targets = claimed.get(sourceGuid);
+        if (targets != null && targets.remove(targetGuid) && targets.isEmpty()) {
+            claimed.remove(sourceGuid);
+        }
+    }
+
+    public synchronized long getEdgeCount() {
+        return edges;
+    }
+
+    public synchronized long getProcessCount() {
+        return processes;
+    }
+}
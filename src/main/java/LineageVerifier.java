@@ -0,0 +1,211 @@
+import com.atlan.Atlan;
+import com.atlan.exception.AtlanException;
+import com.atlan.model.assets.LineageProcess;
+import com.atlan.model.enums.AtlanLineageDirection;
+import com.atlan.model.lineage.FluentLineage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Verifies lineage edges in the background, off the write path. Lineage is only visible once Atlan has indexed
+ * the new processes, so each edge is polled with a growing delay until it shows up or its attempts run out.
+ * <p>
+ * Edges are sampled at a configurable rate: the decision is a hash of the edge, so the same edges are picked on
+ * every run. Sampled edges submitted while too many are pending are dropped rather than blocking the caller, and
+ * counted apart from the edges left out by sampling.
+ */
+public class LineageVerifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(LineageVerifier.class);
+
+    // Downstream assets inspected per check, as in a single lineage page
+    private static final int LINEAGE_LIMIT = 100;
+    private static final int MISSING_REPORTED = 20;
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final double sampleRate;
+    private final int maxAttempts;
+    private final long intervalMillis;
+    private final int maxPending;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong verified = new AtomicLong();
+    private final AtomicLong missing = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final List<String> missingEdges = Collections.synchronizedList(new ArrayList<>());
+    private int pending;
+
+    /**
+     * @param workers threads checking edges
+     * @param sampleRate fraction of the submitted edges that are checked, from 0 (none) to 1 (all)
+     * @param maxAttempts checks per edge before it is reported missing
+     * @param intervalMillis delay before the first check, doubled after each miss
+     * @param maxPending edges waiting to be checked before new ones are dropped
+     */
+    public LineageVerifier(int workers, double sampleRate, int maxAttempts, long intervalMillis, int maxPending) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(Math.max(1, workers), r -> {
+            Thread thread = new Thread(r, "lineage-verifier-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sampleRate = sampleRate;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.intervalMillis = intervalMillis;
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Queue an edge for verification, if it is sampled. Never blocks.
+     * @param sourceGuid GUID of the upstream asset
+     * @param targetGuid GUID of the downstream asset
+     */
+    public void submit(String sourceGuid, String targetGuid) {
+        if (!isSampled(sourceGuid, targetGuid)) {
+            skipped.incrementAndGet();
+            return;
+        }
+        synchronized (this) {
+            if (pending >= maxPending) {
+                if (dropped.incrementAndGet() == 1) {
+                    logger.warn("{} lineage edge(s) already waiting for verification, dropping new ones until some complete",
+                            maxPending);
+                }
+                return;
+            }
+            pending++;
+        }
+        submitted.incrementAndGet();
+        schedule(new Check(sourceGuid, targetGuid), intervalMillis);
+    }
+
+    /**
+     * Wait until every submitted edge has been verified or reported missing, then log the summary
+     * @throws InterruptedException
+     */
+    public void awaitAndReport() throws InterruptedException {
+        synchronized (this) {
+            while (pending > 0) {
+                wait();
+            }
+        }
+        executor.shutdown();
+        logger.info(report());
+        if (!missingEdges.isEmpty()) {
+            logger.warn("Missing lineage edge(s) (source -> target), first {}: {}", MISSING_REPORTED, missingEdges);
+        }
+    }
+
+    /**
+     * @return counts of the verification so far
+     */
+    public String report() {
+        return "Lineage verification: " + verified.get() + " verified, " + missing.get() + " missing, "
+                + failed.get() + " failed, " + skipped.get() + " not sampled, " + dropped.get()
+                + " dropped over the pending limit, of " + (submitted.get() + skipped.get() + dropped.get()) + " edge(s)";
+    }
+
+    public long getVerifiedCount() {
+        return verified.get();
+    }
+
+    public long getMissingCount() {
+        return missing.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private boolean isSampled(String sourceGuid, String targetGuid) {
+        if (sampleRate >= 1) {
+            return true;
+        } else if (sampleRate <= 0) {
+            return false;
+        }
+        long hash = CompactKeySet.hash(sourceGuid + "|" + targetGuid) & Long.MAX_VALUE;
+        return hash % 10_000 < sampleRate * 10_000;
+    }
+
+    private void schedule(Check check, long delayMillis) {
+        try {
+            executor.schedule(check, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            failed.incrementAndGet();
+            done();
+        }
+    }
+
+    private synchronized void done() {
+        pending--;
+        if (pending == 0) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * @return true if the target is among the downstream assets of the source
+     */
+    private static boolean isDownstream(String sourceGuid, String targetGuid) throws AtlanException {
+        return AtlanCalls.execute(AtlanCalls.CallType.LINEAGE, () -> FluentLineage.builder(Atlan.getDefaultClient(), sourceGuid)
+                .direction(AtlanLineageDirection.DOWNSTREAM)
+                .stream()
+                .filter(a -> !(a instanceof LineageProcess))
+                .limit(LINEAGE_LIMIT)
+                .anyMatch(a -> targetGuid.equals(a.getGuid())));
+    }
+
+    /**
+     * One pending edge, rescheduled with a doubled delay after each miss.
+     */
+    private final class Check implements Runnable {
+        private final String sourceGuid;
+        private final String targetGuid;
+        private int attempt;
+        private long delayMillis = intervalMillis;
+
+        private Check(String sourceGuid, String targetGuid) {
+            this.sourceGuid = sourceGuid;
+            this.targetGuid = targetGuid;
+        }
+
+        @Override
+        public void run() {
+            attempt++;
+            try {
+                if (isDownstream(sourceGuid, targetGuid)) {
+                    logger.debug("Lineage verified from {} to {} after {} check(s)", sourceGuid, targetGuid, attempt);
+                    verified.incrementAndGet();
+                    done();
+                    return;
+                }
+            } catch (AtlanException | RuntimeException e) {
+                logger.debug("Unable to verify lineage from {} to {}: {}", sourceGuid, targetGuid, e.getMessage());
+                failed.incrementAndGet();
+                done();
+                return;
+            }
+            if (attempt < maxAttempts) {
+                delayMillis *= 2;
+                schedule(this, delayMillis);
+                return;
+            }
+            missing.incrementAndGet();
+            if (missingEdges.size() < MISSING_REPORTED) {
+                missingEdges.add(sourceGuid + " -> " + targetGuid);
+            }
+            done();
+        }
+    }
+}
@@ -0,0 +1,292 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * In-memory index of asset names for interactive discovery: prefix, substring and edit-distance queries,
+ * all case-insensitive, answered without calling Atlan.
+ * <ul>
+ *     <li>distinct names are kept sorted, so a prefix is a binary-searched range (a flattened trie)</li>
+ *     <li>every name is also indexed by its trigrams: a substring query only verifies names holding all of the
+ *     query's trigrams, and an edit-distance query only those sharing enough of them to be within the distance</li>
+ * </ul>
+ * The index is immutable once built, so it can be queried from any number of threads.
+ */
+public class NameIndex {
+
+    private static final int[] NO_POSTINGS = new int[0];
+    // candidates few enough to check with String.contains rather than by intersecting more posting lists
+    private static final int VERIFY_DIRECTLY = 64;
+
+    // distinct lower-cased names, sorted, and the assets carrying each of them
+    private final String[] names;
+    private final CatalogSnapshot.Entry[][] assets;
+    private final Map<Long, int[]> trigrams;
+    private final int assetCount;
+
+    private NameIndex(String[] names, CatalogSnapshot.Entry[][] assets, Map<Long, int[]> trigrams, int assetCount) {
+        this.names = names;
+        this.assets = assets;
+        this.trigrams = trigrams;
+        this.assetCount = assetCount;
+    }
+
+    /**
+     * Index the names of a set of assets
+     * @param entries the assets, typically from a {@link CatalogSnapshot} or a paged export of a connection
+     * @return the index
+     */
+    public static NameIndex build(Collection<CatalogSnapshot.Entry> entries) {
+        TreeMap<String, List<CatalogSnapshot.Entry>> byName = new TreeMap<>();
+        for (CatalogSnapshot.Entry entry : entries) {
+            byName.computeIfAbsent(normalize(entry.getName()), k -> new ArrayList<>(1)).add(entry);
+        }
+        String[] names = new String[byName.size()];
+        CatalogSnapshot.Entry[][] assets = new CatalogSnapshot.Entry[byName.size()][];
+        Map<Long, IntList> postings = new HashMap<>();
+        int id = 0;
+        for (Map.Entry<String, List<CatalogSnapshot.Entry>> named : byName.entrySet()) {
+            String name = named.getKey();
+            names[id] = name;
+            assets[id] = named.getValue().toArray(new CatalogSnapshot.Entry[0]);
+            for (int i = 0; i + 3 <= name.length(); i++) {
+                // names are visited in order, so each posting list comes out sorted and only needs de-duplicating
+                postings.computeIfAbsent(trigram(name, i), k -> new IntList()).addIfLast(id);
+            }
+            id++;
+        }
+        Map<Long, int[]> trigrams = new HashMap<>(postings.size() * 2);
+        postings.forEach((trigram, list) -> trigrams.put(trigram, list.toArray()));
+        return new NameIndex(names, assets, trigrams, entries.size());
+    }
+
+    /**
+     * @param prefix
+     * @param limit maximum number of assets returned
+     * @return assets whose name starts with the prefix, in name order
+     */
+    public List<CatalogSnapshot.Entry> prefix(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        List<CatalogSnapshot.Entry> found = new ArrayList<>();
+        int start = Arrays.binarySearch(names, normalized);
+        for (int id = start < 0 ? -start - 1 : start; id < names.length && names[id].startsWith(normalized); id++) {
+            if (!collect(found, id, limit)) {
+                break;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @param text
+     * @param limit maximum number of assets returned
+     * @return assets whose name contains the text, in name order
+     */
+    public List<CatalogSnapshot.Entry> substring(String text, int limit) {
+        String normalized = normalize(text);
+        List<CatalogSnapshot.Entry> found = new ArrayList<>();
+        if (normalized.length() < 3) {
+            // too short to have a trigram: verify every name
+            for (int id = 0; id < names.length; id++) {
+                if (names[id].contains(normalized) && !collect(found, id, limit)) {
+                    break;
+                }
+            }
+            return found;
+        }
+        // intersect the rarest trigrams first, and stop once few enough candidates are left to verify directly
+        int[][] postings = postings(normalized);
+        int[] candidates = postings[0];
+        for (int i = 1; i < postings.length && candidates.length > VERIFY_DIRECTLY; i++) {
+            candidates = intersect(candidates, postings[i]);
+        }
+        for (int id : candidates) {
+            if (names[id].contains(normalized) && !collect(found, id, limit)) {
+                break;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @param name
+     * @param maxDistance maximum number of single-character insertions, deletions or substitutions
+     * @param limit maximum number of assets returned
+     * @return assets whose name is within the edit distance, closest first
+     */
+    public List<Match> fuzzy(String name, int maxDistance, int limit) {
+        String normalized = normalize(name);
+        List<Match> matches = new ArrayList<>();
+        // an edit changes at most 3 trigrams of the query, so a name within k edits still contains at least one
+        // of any 3k + 1 of them: only the names holding one of the 3k + 1 rarest need to be compared
+        int[][] postings = normalized.length() - 2 > 3 * maxDistance ? postings(normalized) : null;
+        if (postings == null) {
+            for (int id = 0; id < names.length; id++) {
+                addIfClose(matches, id, normalized, maxDistance);
+            }
+        } else {
+            BitSet compared = new BitSet(names.length);
+            for (int i = 0; i <= 3 * maxDistance; i++) {
+                for (int id : postings[i]) {
+                    if (!compared.get(id)) {
+                        compared.set(id);
+                        addIfClose(matches, id, normalized, maxDistance);
+                    }
+                }
+            }
+        }
+        matches.sort(Comparator.comparingInt(Match::getDistance).thenComparing(m -> m.getAsset().getName()));
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    /**
+     * @return number of assets indexed
+     */
+    public int size() {
+        return assetCount;
+    }
+
+    /**
+     * @return number of distinct (case-insensitive) names indexed
+     */
+    public int getNameCount() {
+        return names.length;
+    }
+
+    private boolean collect(List<CatalogSnapshot.Entry> found, int id, int limit) {
+        for (CatalogSnapshot.Entry asset : assets[id]) {
+            if (found.size() >= limit) {
+                return false;
+            }
+            found.add(asset);
+        }
+        return found.size() < limit;
+    }
+
+    private void addIfClose(List<Match> matches, int id, String query, int maxDistance) {
+        if (Math.abs(names[id].length() - query.length()) > maxDistance) {
+            return;
+        }
+        int distance = distance(names[id], query, maxDistance);
+        if (distance <= maxDistance) {
+            for (CatalogSnapshot.Entry asset : assets[id]) {
+                matches.add(new Match(asset, distance));
+            }
+        }
+    }
+
+    /**
+     * Levenshtein distance, abandoned as soon as it exceeds the maximum
+     * @return the distance, or maxDistance + 1 if it is larger than maxDistance
+     */
+    static int distance(String a, String b, int maxDistance) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int best = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                best = Math.min(best, current[j]);
+            }
+            if (best > maxDistance) {
+                return maxDistance + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], maxDistance + 1);
+    }
+
+    /**
+     * @return the posting list of each trigram position of the text, rarest first
+     */
+    private int[][] postings(String text) {
+        int[][] postings = new int[text.length() - 2][];
+        for (int i = 0; i < postings.length; i++) {
+            postings[i] = trigrams.getOrDefault(trigram(text, i), NO_POSTINGS);
+        }
+        Arrays.sort(postings, Comparator.comparingInt(p -> p.length));
+        return postings;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int n = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static long trigram(String s, int start) {
+        return ((long) s.charAt(start) << 32) | ((long) s.charAt(start + 1) << 16) | s.charAt(start + 2);
+    }
+
+    private static String normalize(String name) {
+        return name == null ? "" : name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * An asset found by an edit-distance query.
+     */
+    public static final class Match {
+        private final CatalogSnapshot.Entry asset;
+        private final int distance;
+
+        private Match(CatalogSnapshot.Entry asset, int distance) {
+            this.asset = asset;
+            this.distance = distance;
+        }
+
+        public CatalogSnapshot.Entry getAsset() {
+            return asset;
+        }
+
+        public int getDistance() {
+            return distance;
+        }
+    }
+
+    /**
+     * Growable list of ints, so posting lists are built without boxing.
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        private void addIfLast(int value) {
+            if (size > 0 && values[size - 1] == value) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
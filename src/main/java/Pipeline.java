@@ -0,0 +1,277 @@
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.DoubleSupplier;
+
+/**
+ * A set of stages connected by bounded queues. Each stage runs its own worker threads; a full queue blocks
+ * the stage feeding it, so memory stays bounded when a downstream stage (typically the Atlan API) slows down.
+ * Throughput and queue depth of every stage are logged periodically, and kept as metrics ({@link AtlanMetrics}).
+ */
+public class Pipeline implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(Pipeline.class);
+
+    private static final Object END = new Object();
+
+    /**
+     * Work done by a stage for each item.
+     * @param <T> item type
+     */
+    public interface Handler<T> {
+        void handle(T item) throws Exception;
+
+        /**
+         * Called once, after every item has been handled and all workers of the stage have stopped
+         */
+        default void complete() throws Exception {
+        }
+    }
+
+    private final String name;
+    private final List<Stage<?>> stages = new ArrayList<>();
+    private final ScheduledExecutorService reporter;
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * @param name name used in log lines and thread names
+     * @param reportIntervalSeconds how often stage statistics are logged, 0 to disable
+     */
+    public Pipeline(String name, int reportIntervalSeconds) {
+        this.name = name;
+        if (reportIntervalSeconds > 0) {
+            reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, name + "-report");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reporter.scheduleAtFixedRate(() -> logger.info(report()), reportIntervalSeconds, reportIntervalSeconds, TimeUnit.SECONDS);
+        } else {
+            reporter = null;
+        }
+    }
+
+    /**
+     * Create and start a stage
+     * @param stageName
+     * @param workers number of threads handling items of this stage
+     * @param capacity number of items the stage's input queue holds before blocking its producers
+     * @param handler
+     * @return the started stage
+     */
+    public <T> Stage<T> stage(String stageName, int workers, int capacity, Handler<T> handler) {
+        Stage<T> stage = new Stage<>(name, stageName, Math.max(1, workers), Math.max(1, capacity), handler);
+        stages.add(stage);
+        return stage;
+    }
+
+    /**
+     * @return one line per stage with items handled, throughput and queue depth
+     */
+    public String report() {
+        double seconds = Math.max(1e-3, (System.nanoTime() - startNanos) / 1e9);
+        StringBuilder sb = new StringBuilder("Pipeline ").append(name).append(" after ")
+                .append(String.format("%.1f", seconds)).append("s");
+        for (Stage<?> stage : stages) {
+            sb.append(System.lineSeparator())
+                    .append(String.format("  %-28s handled=%-10d %10.1f/s  queue=%d/%d  workers=%d",
+                            stage.getName(), stage.getHandledCount(), stage.getHandledCount() / seconds,
+                            stage.getQueueDepth(), stage.getCapacity(), stage.getWorkerCount()));
+        }
+        return sb.toString();
+    }
+
+    public List<Stage<?>> getStages() {
+        return stages;
+    }
+
+    @Override
+    public void close() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+        }
+        for (Stage<?> stage : stages) {
+            stage.abort();
+            stage.releaseMetrics();
+        }
+    }
+
+    /**
+     * One stage: a bounded input queue drained by a fixed set of workers.
+     * @param <T> item type
+     */
+    public static class Stage<T> {
+        private final String pipelineName;
+        private final String stageName;
+        private final String name;
+        private final int capacity;
+        private final Handler<T> handler;
+        private final BlockingQueue<Object> queue;
+        private final List<Thread> workers = new ArrayList<>();
+        private final CountDownLatch stopped;
+        private final AtomicInteger running;
+        private final AtomicLong handled = new AtomicLong();
+        private final AtomicReference<Exception> failure = new AtomicReference<>();
+        private final AtlanMetrics.Histogram itemDuration;
+        private final long startNanos = System.nanoTime();
+        private volatile long stopNanos;
+
+        private Stage(String pipelineName, String stageName, int workerCount, int capacity, Handler<T> handler) {
+            this.pipelineName = pipelineName;
+            this.stageName = stageName;
+            this.name = pipelineName + "-" + stageName;
+            this.capacity = capacity;
+            this.handler = handler;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.stopped = new CountDownLatch(workerCount);
+            this.running = new AtomicInteger(workerCount);
+            this.itemDuration = AtlanMetrics.timer("atlan_pipeline_item_seconds", "Time a pipeline stage takes to handle one item",
+                    "pipeline", pipelineName, "stage", stageName);
+            publishThroughput(this::getThroughput);
+            for (int i = 0; i < workerCount; i++) {
+                Thread thread = new Thread(this::work, name + "-" + i);
+                thread.setDaemon(true);
+                workers.add(thread);
+                thread.start();
+            }
+        }
+
+        /**
+         * Hand an item to the stage, blocking while its queue is full
+         * @param item
+         * @throws InterruptedException
+         * @throws IllegalStateException if the stage has failed
+         */
+        public void put(T item) throws InterruptedException {
+            while (!queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                checkFailure();
+            }
+            checkFailure();
+        }
+
+        /**
+         * Signal that no more items will be put, and wait for the stage to drain
+         * @throws Exception the first failure of a handler, if any
+         */
+        public void finish() throws Exception {
+            queue.put(END);
+            stopped.await();
+            Exception e = failure.get();
+            if (e != null) {
+                throw e;
+            }
+        }
+
+        private void work() {
+            try {
+                while (true) {
+                    Object item = queue.take();
+                    if (item == END) {
+                        // let the other workers see the end marker too
+                        queue.put(END);
+                        break;
+                    }
+                    if (failure.get() != null) {
+                        // keep draining so producers never block on a failed stage
+                        continue;
+                    }
+                    try {
+                        @SuppressWarnings("unchecked")
+                        T typed = (T) item;
+                        long started = System.nanoTime();
+                        handler.handle(typed);
+                        itemDuration.observeSince(started);
+                        handled.incrementAndGet();
+                    } catch (Exception e) {
+                        if (failure.compareAndSet(null, e)) {
+                            logger.error("Stage " + name + " failed", e);
+                        }
+                    }
+                }
+                if (running.decrementAndGet() == 0 && failure.get() == null) {
+                    try {
+                        handler.complete();
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            } catch (InterruptedException e) {
+                failure.compareAndSet(null, e);
+                Thread.currentThread().interrupt();
+            } finally {
+                stopped.countDown();
+                if (stopped.getCount() == 0) {
+                    stopNanos = System.nanoTime();
+                }
+            }
+        }
+
+        private void checkFailure() {
+            Exception e = failure.get();
+            if (e != null) {
+                throw new IllegalStateException("Stage " + name + " failed", e);
+            }
+        }
+
+        /**
+         * Replace the live throughput gauge by its final value, so the metrics registry does not keep the stage
+         * (and whatever its handler holds) reachable once the pipeline is closed
+         */
+        private void releaseMetrics() {
+            double throughput = getThroughput();
+            publishThroughput(() -> throughput);
+        }
+
+        private void publishThroughput(DoubleSupplier throughput) {
+            // of the latest run of a stage, when a pipeline of the same name runs more than once
+            AtlanMetrics.gauge("atlan_pipeline_items_per_second", "Items handled per second by a pipeline stage, while it ran",
+                    throughput, "pipeline", pipelineName, "stage", stageName);
+        }
+
+        private void abort() {
+            if (stopped.getCount() > 0) {
+                workers.forEach(Thread::interrupt);
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getHandledCount() {
+            return handled.get();
+        }
+
+        /**
+         * @return items handled per second, from the start of the stage until its workers stopped (or now)
+         */
+        public double getThroughput() {
+            long end = stopNanos == 0 ? System.nanoTime() : stopNanos;
+            return handled.get() / Math.max(1e-3, (end - startNanos) / 1e9);
+        }
+
+        public int getQueueDepth() {
+            int depth = queue.size();
+            return queue.contains(END) ? depth - 1 : depth;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public int getWorkerCount() {
+            return workers.size();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+import com.atlan.model.assets.Asset;
+import com.atlan.model.assets.LineageProcess;
+import com.atlan.model.fields.AtlanField;
+import com.atlan.model.search.FluentSearch;
+
+import java.util.List;
+
+/**
+ * Named sets of attributes returned by searches. GUID and type name come back on every result; a profile
+ * limits the rest of the payload to what the caller reads, which keeps responses and their deserialization small.
+ */
+public enum Projection {
+
+    /**
+     * Enough to identify an asset and reference it: name, qualified name and connection.
+     */
+    IDENTITY(List.of(Asset.NAME, Asset.QUALIFIED_NAME, Asset.CONNECTION_QUALIFIED_NAME)),
+
+    /**
+     * Identity plus the inputs and outputs of lineage processes, as references.
+     */
+    LINEAGE_REFS(List.of(Asset.NAME, Asset.QUALIFIED_NAME, Asset.CONNECTION_QUALIFIED_NAME,
+            LineageProcess.INPUTS, LineageProcess.OUTPUTS)),
+
+    /**
+     * The default attributes of each asset type, unrestricted.
+     */
+    FULL(List.of());
+
+    private final List<AtlanField> fields;
+
+    Projection(List<AtlanField> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * Restrict the results of a search to this profile
+     * @param builder the search
+     * @return the same search
+     */
+    public FluentSearch.FluentSearchBuilder<?, ?> apply(FluentSearch.FluentSearchBuilder<?, ?> builder) {
+        for (AtlanField field : fields) {
+            builder.includeOnResults(field);
+        }
+        return builder;
+    }
+
+    public List<AtlanField> getFields() {
+        return fields;
+    }
+}
@@ -0,0 +1,72 @@
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * CSV file collecting the input records a tool could not use, with the line they came from and the reason,
+ * so a run carries on past bad input and the rejects can be fixed and replayed afterwards.
+ * The file is only created once the first record is rejected.
+ */
+public class RejectFile implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RejectFile.class);
+
+    private final Path file;
+    private BufferedWriter writer;
+    private long count;
+
+    public RejectFile(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Record a rejected input record
+     * @param lineNumber line of the input on which the record starts
+     * @param reason why it was rejected
+     * @param record the record as it appeared in the input
+     * @throws IOException if the reject file cannot be written
+     */
+    public synchronized void reject(long lineNumber, String reason, String record) throws IOException {
+        if (writer == null) {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+            writer.write("line,reason,record");
+            writer.newLine();
+        }
+        count++;
+        logger.warn("Rejected line {}: {}", lineNumber, reason);
+        writer.write(lineNumber + "," + quote(reason) + "," + quote(record));
+        writer.newLine();
+    }
+
+    /**
+     * @return number of records rejected so far
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            logger.info("{} rejected record(s) written to {}", count, file);
+        }
+    }
+
+    static String quote(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -0,0 +1,238 @@
+import com.atlan.model.assets.Asset;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of name lookups that almost never change (connections, buckets): type + scope + name resolves to
+ * guid / qualifiedName. Entries expire after a TTL and are optionally persisted to a warm file, so repeated
+ * runs of any of the tools skip these searches entirely.
+ */
+public class ResolutionCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResolutionCache.class);
+
+    // How long a resolved name is trusted, and where resolutions are kept between runs ("" to keep them in memory only)
+    public static final long TTL_SECONDS = AtlanSettings.getInt("ATLAN_RESOLUTION_TTL_SECONDS", 24 * 3600);
+    public static final String CACHE_FILE = AtlanSettings.get("ATLAN_RESOLUTION_CACHE_FILE",
+            Paths.get(AtlanSettings.get("ATLAN_STATE_DIR", "state"), "resolution-cache.tsv").toString());
+
+    private static final ResolutionCache SHARED = new ResolutionCache(TTL_SECONDS * 1000L,
+            CACHE_FILE.isBlank() ? null : Paths.get(CACHE_FILE));
+
+    private final long ttlMillis;
+    private final Path file;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public ResolutionCache(long ttlMillis, Path file) {
+        this.ttlMillis = ttlMillis;
+        this.file = file;
+        if (file != null) {
+            load();
+        }
+    }
+
+    /**
+     * @return the cache shared by all tools in this JVM
+     */
+    public static ResolutionCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param typeName type of the asset, e.g. Connection
+     * @param scope what the name is unique within, e.g. the connector type or a connection qualifiedName
+     * @param name name of the asset
+     * @return the cached resolution, or null if absent or expired
+     */
+    public Entry get(String typeName, String scope, String name) {
+        String key = key(typeName, scope, name);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (isExpired(entry)) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Remember how a name resolved, writing the warm file through. Only assets confirmed by Atlan are remembered:
+     * one without a GUID, or with the placeholder (negative) GUID of an asset that has not been saved, is not.
+     * @param typeName
+     * @param scope
+     * @param name
+     * @param asset the resolved asset
+     * @return the new entry, or null if the asset is not confirmed
+     */
+    public Entry put(String typeName, String scope, String name, Asset asset) {
+        if (asset == null || asset.getGuid() == null || asset.getGuid().startsWith("-") || asset.getQualifiedName() == null) {
+            logger.debug("Not caching unconfirmed {} {}", typeName, name);
+            return null;
+        }
+        Entry entry = new Entry(typeName, scope, name, asset.getGuid(), asset.getQualifiedName(),
+                asset.getConnectionQualifiedName(), System.currentTimeMillis());
+        entries.put(key(typeName, scope, name), entry);
+        if (file != null) {
+            save();
+        }
+        return entry;
+    }
+
+    /**
+     * Forget how a name resolved, e.g. once the asset turned out not to exist
+     * @param typeName
+     * @param scope
+     * @param name
+     */
+    public void invalidate(String typeName, String scope, String name) {
+        if (entries.remove(key(typeName, scope, name)) != null) {
+            logger.info("Invalidated cached resolution of {} {}", typeName, name);
+            if (file != null) {
+                save();
+            }
+        }
+    }
+
+    /**
+     * Forget every resolution to one of the given assets, e.g. once they are deleted
+     * @param guids
+     */
+    public void invalidateGuids(Collection<String> guids) {
+        if (entries.isEmpty() || guids.isEmpty()) {
+            return;
+        }
+        Set<String> deleted = guids instanceof Set ? (Set<String>) guids : new HashSet<>(guids);
+        boolean removed = false;
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            if (deleted.contains(entry.getValue().guid) && entries.remove(entry.getKey(), entry.getValue())) {
+                logger.info("Invalidated cached resolution of deleted {} {}", entry.getValue().typeName, entry.getValue().name);
+                removed = true;
+            }
+        }
+        if (removed && file != null) {
+            save();
+        }
+    }
+
+    private boolean isExpired(Entry entry) {
+        return System.currentTimeMillis() - entry.resolvedAt > ttlMillis;
+    }
+
+    private static String key(String typeName, String scope, String name) {
+        return typeName + '\t' + scope + '\t' + name;
+    }
+
+    private void load() {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length != 7) {
+                    continue;
+                }
+                Entry entry = new Entry(fields[0], fields[1], fields[2], fields[3], fields[4],
+                        fields[5].isEmpty() ? null : fields[5], Long.parseLong(fields[6]));
+                if (!isExpired(entry)) {
+                    entries.put(key(entry.typeName, entry.scope, entry.name), entry);
+                }
+            }
+            logger.debug("Loaded " + entries.size() + " cached resolution(s) from " + file);
+        } catch (IOException | NumberFormatException e) {
+            logger.warn("Ignoring unreadable resolution cache " + file + ": " + e.getMessage());
+        }
+    }
+
+    private synchronized void save() {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                for (Entry entry : entries.values()) {
+                    if (isExpired(entry) || !entry.isPersistable()) {
+                        continue;
+                    }
+                    writer.write(String.join("\t", entry.typeName, entry.scope, entry.name, entry.guid,
+                            entry.qualifiedName, entry.connectionQualifiedName == null ? "" : entry.connectionQualifiedName,
+                            Long.toString(entry.resolvedAt)));
+                    writer.newLine();
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Unable to write resolution cache " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * A resolved name.
+     */
+    public static final class Entry {
+        private final String typeName;
+        private final String scope;
+        private final String name;
+        private final String guid;
+        private final String qualifiedName;
+        private final String connectionQualifiedName;
+        private final long resolvedAt;
+
+        private Entry(String typeName, String scope, String name, String guid, String qualifiedName,
+                      String connectionQualifiedName, long resolvedAt) {
+            this.typeName = typeName;
+            this.scope = scope;
+            this.name = name;
+            this.guid = guid;
+            this.qualifiedName = qualifiedName;
+            this.connectionQualifiedName = connectionQualifiedName;
+            this.resolvedAt = resolvedAt;
+        }
+
+        private boolean isPersistable() {
+            for (String field : new String[] {typeName, scope, name, guid, qualifiedName, connectionQualifiedName}) {
+                if (field != null && (field.indexOf('\t') >= 0 || field.indexOf('\n') >= 0 || field.indexOf('\r') >= 0)) {
+                    return false;
+                }
+            }
+            return guid != null && qualifiedName != null;
+        }
+
+        public String getTypeName() {
+            return typeName;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getGuid() {
+            return guid;
+        }
+
+        public String getQualifiedName() {
+            return qualifiedName;
+        }
+
+        public String getConnectionQualifiedName() {
+            return connectionQualifiedName;
+        }
+    }
+}
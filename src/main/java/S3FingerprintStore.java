@@ -0,0 +1,187 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * On-disk store of one fingerprint (ETag / LastModified / Size) per S3 key, used to push only the keys
+ * that are new or changed since the previous run. Keys and fingerprints are both kept as 64-bit hashes
+ * in a primitive open-addressing table, so the store costs 16 bytes per key in memory and on disk.
+ * <p>
+ * Keys seen in the current run's listing are {@link #markListed marked}; {@link #pruneUnlisted()} then drops
+ * the fingerprints of keys that are no longer listed, so the store does not grow with every key ever seen.
+ */
+public class S3FingerprintStore {
+
+    /** Returned by {@link #get(String)} for keys that have never been recorded. */
+    public static final long ABSENT = 0L;
+
+    private static final int MAGIC = 0x53334650; // "S3FP"
+    private static final int VERSION = 1;
+    private static final double MAX_LOAD = 0.6;
+
+    private final Path file;
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private final CompactKeySet listed = new CompactKeySet();
+
+    private S3FingerprintStore(Path file, int capacity) {
+        this.file = file;
+        this.keys = new long[capacity];
+        this.values = new long[capacity];
+    }
+
+    /**
+     * Open the store for a bucket, loading the fingerprints of the previous run if there was one
+     * @param stateDir directory holding the stores
+     * @param bucketQualifiedName bucket the fingerprints belong to
+     * @return the store
+     * @throws IOException if an existing store cannot be read
+     */
+    public static S3FingerprintStore open(Path stateDir, String bucketQualifiedName) throws IOException {
+        Path file = stateDir.resolve("fingerprints-" + bucketQualifiedName.replaceAll("[^A-Za-z0-9._-]", "_") + ".bin");
+        if (!Files.exists(file)) {
+            return new S3FingerprintStore(file, 1024);
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a fingerprint store: " + file);
+            }
+            int count = in.readInt();
+            S3FingerprintStore store = new S3FingerprintStore(file, capacityFor(count));
+            for (int i = 0; i < count; i++) {
+                store.putHash(in.readLong(), in.readLong());
+            }
+            return store;
+        }
+    }
+
+    /**
+     * Fingerprint of a listing entry
+     * @param entry
+     * @return fingerprint, never {@link #ABSENT}
+     */
+    public static long fingerprint(S3ListingReader.Entry entry) {
+        return CompactKeySet.hash(entry.getETag() + "|" + entry.getLastModified() + "|" + entry.getSize());
+    }
+
+    /**
+     * @param key S3 key
+     * @return fingerprint recorded for the key, or {@link #ABSENT}
+     */
+    public synchronized long get(String key) {
+        long h = CompactKeySet.hash(key);
+        int mask = keys.length - 1;
+        int slot = (int) h & mask;
+        while (keys[slot] != 0L) {
+            if (keys[slot] == h) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return ABSENT;
+    }
+
+    public synchronized void put(String key, long fingerprint) {
+        putHash(CompactKeySet.hash(key), fingerprint);
+    }
+
+    /**
+     * Record that a key is in the listing of the current run
+     * @param key S3 key
+     */
+    public synchronized void markListed(String key) {
+        listed.add(key);
+    }
+
+    /**
+     * Drop the fingerprints of every key not {@link #markListed marked} in this run: objects deleted from S3, whose
+     * catalog entries are reconciled away. Only call once every listing of the bucket has been read.
+     * @return number of fingerprints dropped
+     */
+    public synchronized int pruneUnlisted() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        int before = size;
+        keys = new long[oldKeys.length];
+        values = new long[oldKeys.length];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0L && listed.containsHash(oldKeys[i])) {
+                putHash(oldKeys[i], oldValues[i]);
+            }
+        }
+        return before - size;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Write the store to disk. The file is replaced atomically, so an interrupted run keeps the previous state.
+     * @throws IOException
+     */
+    public synchronized void save() throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(size);
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0L) {
+                    out.writeLong(keys[i]);
+                    out.writeLong(values[i]);
+                }
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    private void putHash(long h, long fingerprint) {
+        if (size + 1 > keys.length * MAX_LOAD) {
+            resize();
+        }
+        int mask = keys.length - 1;
+        int slot = (int) h & mask;
+        while (keys[slot] != 0L && keys[slot] != h) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == 0L) {
+            keys[slot] = h;
+            size++;
+        }
+        values[slot] = fingerprint;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[oldKeys.length << 1];
+        values = new long[oldKeys.length << 1];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0L) {
+                putHash(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private static int capacityFor(int count) {
+        int capacity = 16;
+        while (capacity < count / MAX_LOAD && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,223 @@
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming (StAX) reader for S3 ListBucketResult documents.
+ * Emits one {@link Entry} per {@code <Contents>} element so memory stays flat regardless of listing size.
+ */
+public class S3ListingReader implements AutoCloseable {
+
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    private final XMLStreamReader reader;
+    private String bucketName;
+    private Entry pending;
+    private int depth;
+    private boolean finished;
+
+    public S3ListingReader(InputStream inputStream) throws XMLStreamException {
+        this.reader = FACTORY.createXMLStreamReader(inputStream, "UTF-8");
+    }
+
+    /**
+     * Get the bucket name. S3 writes {@code <Name>} ahead of the first {@code <Contents>},
+     * so this only advances the reader as far as the listing header.
+     * @return bucket name, or null if the listing has none
+     * @throws XMLStreamException if the XML is malformed
+     */
+    public String getBucketName() throws XMLStreamException {
+        if (bucketName == null && pending == null) {
+            pending = advance();
+        }
+        return bucketName;
+    }
+
+    /**
+     * Read the next object entry from the listing.
+     * @return the next entry, or null once the listing is exhausted
+     * @throws XMLStreamException if the XML is malformed
+     */
+    public Entry next() throws XMLStreamException {
+        if (pending != null) {
+            Entry entry = pending;
+            pending = null;
+            return entry;
+        }
+        return advance();
+    }
+
+    @Override
+    public void close() throws XMLStreamException {
+        reader.close();
+    }
+
+    /**
+     * Opens a listing by name.
+     */
+    public interface Opener {
+        InputStream open(String listingName) throws IOException;
+    }
+
+    /**
+     * Group listings by the bucket they list, reading only as far as each listing's header.
+     * A bucket may be split over several listings, which then have to be ingested (and reconciled) together.
+     * @param listingNames the listings, in order
+     * @param opener opens each listing
+     * @return listing names by bucket name, buckets in order of first appearance, listings in their given order
+     * @throws IOException if a listing cannot be read or has no bucket name
+     * @throws XMLStreamException if a listing header is malformed
+     */
+    public static Map<String, List<String>> groupByBucket(List<String> listingNames, Opener opener)
+            throws IOException, XMLStreamException {
+        Map<String, List<String>> byBucket = new LinkedHashMap<>();
+        for (String listingName : listingNames) {
+            String bucketName;
+            try (InputStream inputStream = opener.open(listingName);
+                 S3ListingReader listing = new S3ListingReader(inputStream)) {
+                bucketName = listing.getBucketName();
+            }
+            if (bucketName == null) {
+                throw new IOException("No bucket name found in listing: " + listingName);
+            }
+            byBucket.computeIfAbsent(bucketName, k -> new ArrayList<>()).add(listingName);
+        }
+        return byBucket;
+    }
+
+    /**
+     * Move the cursor to the next {@code <Contents>} element, picking up the bucket name on the way.
+     */
+    private Entry advance() throws XMLStreamException {
+        while (!finished && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                String element = reader.getLocalName();
+                // direct children of <ListBucketResult> sit at depth 1
+                if (depth == 1 && "Contents".equals(element)) {
+                    return readContents();
+                } else if (depth == 1 && "Name".equals(element)) {
+                    bucketName = reader.getElementText().trim();
+                } else {
+                    depth++;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+        finished = true;
+        return null;
+    }
+
+    /**
+     * Read a single {@code <Contents>} element, leaving the cursor on its end tag.
+     */
+    private Entry readContents() throws XMLStreamException {
+        String key = null;
+        String lastModified = null;
+        String eTag = null;
+        String storageClass = null;
+        long size = -1;
+        int level = 1;
+        while (level > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if (level == 1) {
+                    switch (reader.getLocalName()) {
+                        case "Key":
+                            // taken verbatim: S3 keys may start or end with whitespace
+                            key = reader.getElementText();
+                            continue;
+                        case "LastModified":
+                            lastModified = reader.getElementText().trim();
+                            continue;
+                        case "ETag":
+                            eTag = reader.getElementText().trim();
+                            continue;
+                        case "Size":
+                            size = parseSize(reader.getElementText().trim());
+                            continue;
+                        case "StorageClass":
+                            storageClass = reader.getElementText().trim();
+                            continue;
+                        default:
+                            break;
+                    }
+                }
+                level++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                level--;
+            }
+        }
+        if (key == null) {
+            throw new XMLStreamException("Contents element without a Key", reader.getLocation());
+        }
+        return new Entry(key, lastModified, eTag, size, storageClass);
+    }
+
+    private static long parseSize(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        // listings come from outside, never resolve DTDs or external entities
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    /**
+     * One {@code <Contents>} record of the listing.
+     */
+    public static final class Entry {
+        private final String key;
+        private final String lastModified;
+        private final String eTag;
+        private final long size;
+        private final String storageClass;
+
+        public Entry(String key, String lastModified, String eTag, long size, String storageClass) {
+            this.key = key;
+            this.lastModified = lastModified;
+            this.eTag = eTag;
+            this.size = size;
+            this.storageClass = storageClass;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        /**
+         * @return object size in bytes, or -1 if the listing did not carry one
+         */
+        public long getSize() {
+            return size;
+        }
+
+        public String getStorageClass() {
+            return storageClass;
+        }
+    }
+}
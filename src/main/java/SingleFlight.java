@@ -0,0 +1,87 @@
+import com.atlan.exception.AtlanException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collapses concurrent identical lookups into a single call: the first caller for a key runs the lookup,
+ * callers arriving while it is in flight wait for and share its result (or its error).
+ * Nothing is cached once the call completes.
+ * @param <K> key identifying a lookup
+ * @param <V> result of the lookup
+ */
+public class SingleFlight<K, V> {
+
+    /**
+     * The lookup to run once per key.
+     */
+    public interface Loader<V> {
+        V load() throws AtlanException;
+    }
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Run the lookup for a key, or join the one already in flight
+     * @param key
+     * @param loader
+     * @return the result of the lookup
+     * @throws AtlanException the error of the lookup, for every caller that shared it
+     */
+    public V execute(K key, Loader<V> loader) throws AtlanException {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return await(existing);
+        }
+        calls.incrementAndGet();
+        try {
+            V value = loader.load();
+            mine.complete(value);
+            return value;
+        } catch (AtlanException | RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * @return number of lookups actually run
+     */
+    public long getCallCount() {
+        return calls.get();
+    }
+
+    /**
+     * @return number of callers that shared a lookup already in flight
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    private static <V> V await(CompletableFuture<V> future) throws AtlanException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof AtlanException) {
+                throw (AtlanException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a shared lookup", e);
+        }
+    }
+}
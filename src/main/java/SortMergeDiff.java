@@ -0,0 +1,82 @@
+import java.io.IOException;
+
+/**
+ * Merge-joins two streams of records sorted by key (see {@link ExternalSorter}): a source of truth, such as
+ * a bucket listing, and the catalog's copy of it. Each key ends up in exactly one of three outcomes, and
+ * neither stream is ever held in memory. Further catalog records of a key that is in the source are
+ * reported as duplicates, never as stale.
+ */
+public class SortMergeDiff {
+
+    private SortMergeDiff() {
+    }
+
+    /**
+     * Receives the outcome of every key.
+     */
+    public interface Listener {
+        /**
+         * @param source record only in the source: to be created in the catalog
+         */
+        void onCreate(String[] source) throws Exception;
+
+        /**
+         * @param source record in both streams
+         * @param catalog the catalog's record for the same key
+         */
+        void onUnchanged(String[] source, String[] catalog) throws Exception;
+
+        /**
+         * @param catalog record only in the catalog: no longer in the source
+         */
+        void onStale(String[] catalog) throws Exception;
+
+        /**
+         * @param source record in both streams, already reported through {@link #onUnchanged}
+         * @param catalog another catalog record for the same key
+         */
+        default void onDuplicate(String[] source, String[] catalog) throws Exception {
+        }
+    }
+
+    /**
+     * Join two sorted streams. A key repeated in the source is only reported once; a key in the source that is
+     * repeated in the catalog is reported unchanged once, then duplicate for each further catalog record.
+     * @param source sorted source records
+     * @param catalog sorted catalog records
+     * @param listener
+     * @throws Exception the first failure of the listener or of reading a stream
+     */
+    public static void diff(ExternalSorter.Cursor source, ExternalSorter.Cursor catalog, Listener listener) throws Exception {
+        String previous = null;
+        boolean hasSource = nextDistinct(source, null);
+        boolean hasCatalog = catalog.next();
+        while (hasSource || hasCatalog) {
+            int order = !hasSource ? 1 : !hasCatalog ? -1 : source.get()[0].compareTo(catalog.get()[0]);
+            if (order < 0) {
+                listener.onCreate(source.get());
+            } else if (order > 0) {
+                listener.onStale(catalog.get());
+                hasCatalog = catalog.next();
+                continue;
+            } else {
+                listener.onUnchanged(source.get(), catalog.get());
+                String key = source.get()[0];
+                while ((hasCatalog = catalog.next()) && key.equals(catalog.get()[0])) {
+                    listener.onDuplicate(source.get(), catalog.get());
+                }
+            }
+            previous = source.get()[0];
+            hasSource = nextDistinct(source, previous);
+        }
+    }
+
+    private static boolean nextDistinct(ExternalSorter.Cursor cursor, String previous) throws IOException {
+        while (cursor.next()) {
+            if (!cursor.get()[0].equals(previous)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
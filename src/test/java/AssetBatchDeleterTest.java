@@ -0,0 +1,84 @@
+import com.atlan.exception.ErrorCode;
+import com.atlan.exception.NotFoundException;
+import com.atlan.model.assets.Asset;
+import com.atlan.model.core.AssetMutationResponse;
+import com.atlan.model.enums.AtlanDeleteType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AssetBatchDeleterTest {
+
+    private final List<Integer> requests = new ArrayList<>();
+
+    @Test
+    void splitsRejectedBatchToIsolateTheBadGuid() {
+        AssetBatchDeleter deleter = new AssetBatchDeleter(guids -> {
+            requests.add(guids.size());
+            if (guids.contains("bad")) {
+                throw new NotFoundException(ErrorCode.NOT_FOUND_PASSTHROUGH, "Asset not found");
+            }
+            return deleted(guids);
+        }, AtlanDeleteType.SOFT, 10);
+
+        deleter.delete(List.of("a", "bad", "c", "d"));
+
+        assertEquals(List.of(4, 2, 1, 1, 2), requests);
+        assertEquals(3, deleter.getDeletedCount());
+        assertEquals(1, deleter.getFailedCount());
+        assertEquals(0, deleter.getMissingCount());
+        assertEquals(5, deleter.getRequestCount());
+    }
+
+    @Test
+    void countsAlreadyDeletedAssetsAsMissingAndIgnoresCascadedOnes() {
+        AssetBatchDeleter deleter = new AssetBatchDeleter(guids -> {
+            requests.add(guids.size());
+            // "gone" was deleted before, and deleting "parent" cascaded to "child"
+            List<String> removed = guids.stream().filter(g -> !g.equals("gone")).collect(Collectors.toList());
+            removed.add("child");
+            return deleted(removed);
+        }, AtlanDeleteType.HARD, 10);
+
+        deleter.delete(List.of("parent", "gone", "other"));
+
+        assertEquals(List.of(3), requests);
+        assertEquals(2, deleter.getDeletedCount());
+        assertEquals(1, deleter.getMissingCount());
+        assertEquals(0, deleter.getFailedCount());
+    }
+
+    @Test
+    void deletesEveryGuidInBatches() throws Exception {
+        AssetBatchDeleter deleter = new AssetBatchDeleter(guids -> {
+            synchronized (requests) {
+                requests.add(guids.size());
+            }
+            return deleted(guids);
+        }, AtlanDeleteType.SOFT, 2);
+
+        deleter.deleteAll("test", List.of("a", "b", "c", "d", "e"), 2, 0);
+
+        assertEquals(5, deleter.getDeletedCount());
+        assertEquals(3, deleter.getRequestCount());
+        assertEquals(List.of(1, 2, 2), requests.stream().sorted().collect(Collectors.toList()));
+    }
+
+    private static AssetMutationResponse deleted(List<String> guids) {
+        List<Asset> assets = new ArrayList<>();
+        for (String guid : guids) {
+            Asset asset = mock(Asset.class);
+            when(asset.getGuid()).thenReturn(guid);
+            assets.add(asset);
+        }
+        AssetMutationResponse response = mock(AssetMutationResponse.class);
+        when(response.getDeletedAssets()).thenReturn(assets);
+        return response;
+    }
+}
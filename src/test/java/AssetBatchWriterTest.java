@@ -0,0 +1,158 @@
+import com.atlan.exception.ErrorCode;
+import com.atlan.exception.NotFoundException;
+import com.atlan.model.assets.Asset;
+import com.atlan.model.core.AssetMutationResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AssetBatchWriterTest {
+
+    private final Outcomes outcomes = new Outcomes();
+    private final List<Integer> requests = new ArrayList<>();
+
+    @Test
+    void savesFullBatchesInOneRequestEach() throws Exception {
+        AssetBatchWriter writer = new AssetBatchWriter(batch -> {
+            requests.add(batch.size());
+            return created(batch);
+        }, 2, 0, outcomes);
+
+        writer.add(asset("a"));
+        writer.add(asset("b"));
+        writer.add(asset("c"));
+        assertEquals(List.of(2), requests);
+        writer.flush();
+
+        assertEquals(List.of(2, 1), requests);
+        assertEquals(List.of("a", "b", "c"), outcomes.saved);
+        assertEquals(3, writer.getSavedCount());
+        assertEquals(2, writer.getRequestCount());
+    }
+
+    @Test
+    void splitsRejectedBatchToIsolateTheBadAsset() throws Exception {
+        AssetBatchWriter writer = new AssetBatchWriter(batch -> {
+            requests.add(batch.size());
+            if (qualifiedNames(batch).contains("bad")) {
+                throw new NotFoundException(ErrorCode.NOT_FOUND_PASSTHROUGH, "Referenced asset not found");
+            }
+            return created(batch);
+        }, 10, 0, outcomes);
+
+        writer.save(List.of(asset("a"), asset("bad"), asset("c"), asset("d")));
+
+        assertEquals(List.of(4, 2, 1, 1, 2), requests);
+        assertEquals(List.of("a", "c", "d"), outcomes.saved);
+        assertEquals(List.of("bad"), outcomes.failed);
+        assertTrue(outcomes.errors.get(0) instanceof NotFoundException);
+        assertEquals(1, writer.getFailedCount());
+    }
+
+    @Test
+    void neverResendsAnAssetAtlanRejected() throws Exception {
+        AssetBatchWriter writer = new AssetBatchWriter(batch -> {
+            requests.add(batch.size());
+            if (qualifiedNames(batch).contains("bad")) {
+                throw new NotFoundException(ErrorCode.NOT_FOUND_PASSTHROUGH, "Referenced asset not found");
+            }
+            return created(batch);
+        }, 10, 3, outcomes);
+
+        writer.save(List.of(asset("a"), asset("bad"), asset("c"), asset("d")));
+
+        assertEquals(List.of(4, 2, 1, 1, 2), requests);
+        assertEquals(List.of("a", "c", "d"), outcomes.saved);
+        assertEquals(List.of("bad"), outcomes.failed);
+        assertEquals(5, writer.getRequestCount());
+    }
+
+    @Test
+    void failsTheWholeBatchWhileTheCircuitIsOpen() throws Exception {
+        AssetBatchWriter writer = new AssetBatchWriter(batch -> {
+            requests.add(batch.size());
+            throw new AtlanCalls.CircuitOpenException("Circuit for MUTATE calls to Atlan is open");
+        }, 10, 3, outcomes);
+
+        writer.save(List.of(asset("a"), asset("b")));
+
+        assertEquals(List.of(2), requests);
+        assertEquals(List.of("a", "b"), outcomes.failed);
+        assertTrue(outcomes.errors.get(0) instanceof AtlanCalls.CircuitOpenException);
+    }
+
+    @Test
+    void retriesOnlyMembersMissingFromTheResponse() throws Exception {
+        AssetBatchWriter writer = new AssetBatchWriter(batch -> {
+            requests.add(batch.size());
+            // the first request silently drops "b", and "never" is always dropped
+            return created(batch.stream()
+                    .filter(a -> !a.getQualifiedName().equals("never") && (requests.size() > 1 || !a.getQualifiedName().equals("b")))
+                    .collect(Collectors.toList()));
+        }, 10, 1, outcomes);
+
+        writer.save(List.of(asset("a"), asset("b"), asset("never")));
+
+        assertEquals(List.of(3, 2), requests);
+        assertEquals(List.of("a", "b"), outcomes.saved);
+        assertEquals(List.of("never"), outcomes.failed);
+        assertNull(outcomes.errors.get(0));
+    }
+
+    @Test
+    void treatsAssignedButUnchangedAssetsAsSaved() throws Exception {
+        AssetBatchWriter writer = new AssetBatchWriter(batch -> {
+            AssetMutationResponse response = mock(AssetMutationResponse.class);
+            when(response.getGuidAssignments()).thenReturn(batch.stream().collect(Collectors.toMap(Asset::getGuid, a -> "guid")));
+            return response;
+        }, 10, 0, outcomes);
+
+        writer.save(List.of(asset("a")));
+
+        assertEquals(List.of("a"), outcomes.saved);
+        assertEquals(List.of(), outcomes.failed);
+    }
+
+    private static Asset asset(String qualifiedName) {
+        Asset asset = mock(Asset.class);
+        when(asset.getTypeName()).thenReturn("Process");
+        when(asset.getQualifiedName()).thenReturn(qualifiedName);
+        when(asset.getGuid()).thenReturn("-" + qualifiedName);
+        return asset;
+    }
+
+    private static AssetMutationResponse created(List<Asset> assets) {
+        AssetMutationResponse response = mock(AssetMutationResponse.class);
+        when(response.getCreatedAssets()).thenReturn(new ArrayList<>(assets));
+        return response;
+    }
+
+    private static List<String> qualifiedNames(List<Asset> assets) {
+        return assets.stream().map(Asset::getQualifiedName).collect(Collectors.toList());
+    }
+
+    private static final class Outcomes implements AssetBatchWriter.Listener {
+        private final List<String> saved = new ArrayList<>();
+        private final List<String> failed = new ArrayList<>();
+        private final List<Exception> errors = new ArrayList<>();
+
+        @Override
+        public void onSaved(Asset requested, Asset result) {
+            saved.add(requested.getQualifiedName());
+        }
+
+        @Override
+        public void onFailed(Asset requested, Exception error) {
+            failed.add(requested.getQualifiedName());
+            errors.add(error);
+        }
+    }
+}
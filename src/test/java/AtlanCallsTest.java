@@ -0,0 +1,147 @@
+import com.atlan.exception.ApiConnectionException;
+import com.atlan.exception.ErrorCode;
+import com.atlan.exception.NotFoundException;
+import com.atlan.exception.RateLimitException;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class AtlanCallsTest {
+
+    private static final long SECOND = 1_000_000_000L;
+    private static final long OPEN_MILLIS = 30_000;
+
+    private final AtomicLong now = new AtomicLong(1_000 * SECOND);
+
+    @Test
+    void halvesTheRateAtMostOncePerSecond() {
+        AtlanCalls.TokenBucket bucket = new AtlanCalls.TokenBucket(10, 60, now::get);
+
+        bucket.onThrottle(0);
+        bucket.onThrottle(0);
+        bucket.onThrottle(0);
+        assertEquals(5.0, bucket.getRate(), 1e-9);
+
+        now.addAndGet(SECOND / 2);
+        bucket.onThrottle(0);
+        assertEquals(5.0, bucket.getRate(), 1e-9);
+
+        now.addAndGet(SECOND / 2);
+        bucket.onThrottle(0);
+        assertEquals(2.5, bucket.getRate(), 1e-9);
+    }
+
+    @Test
+    void recoversOverTimeRatherThanPerCall() {
+        AtlanCalls.TokenBucket bucket = new AtlanCalls.TokenBucket(10.5, 10, now::get);
+        bucket.onThrottle(0);
+        assertEquals(5.25, bucket.getRate(), 1e-9);
+
+        // many successes within the same instant earn nothing
+        for (int i = 0; i < 100; i++) {
+            bucket.onSuccess();
+        }
+        assertEquals(5.25, bucket.getRate(), 1e-9);
+
+        // (10.5 - 0.5) / 10 s = 1 call/s per second of successes, at most a second credited per call
+        now.addAndGet(2 * SECOND);
+        bucket.onSuccess();
+        assertEquals(6.25, bucket.getRate(), 1e-9);
+        now.addAndGet(SECOND);
+        bucket.onSuccess();
+        assertEquals(7.25, bucket.getRate(), 1e-9);
+    }
+
+    @Test
+    void waitsOutRetryAfter() {
+        AtlanCalls.TokenBucket bucket = new AtlanCalls.TokenBucket(10, 60, now::get);
+        bucket.onThrottle(2_000);
+
+        assertTrue(bucket.reserve() >= 2 * SECOND);
+        now.addAndGet(3 * SECOND);
+        assertEquals(0, bucket.reserve());
+    }
+
+    @Test
+    void repeatedThrottlesNeverOpenTheCircuit() {
+        AtlanCalls.CircuitBreaker circuit = circuit();
+        for (int i = 0; i < 100; i++) {
+            assertFalse(circuit.before());
+            circuit.recordError(mock(RateLimitException.class), false);
+        }
+        assertFalse(circuit.before());
+    }
+
+    @Test
+    void clientErrorsNeverOpenTheCircuit() {
+        AtlanCalls.CircuitBreaker circuit = circuit();
+        for (int i = 0; i < 20; i++) {
+            circuit.recordError(new NotFoundException(ErrorCode.NOT_FOUND_PASSTHROUGH, "gone"), false);
+        }
+        assertFalse(circuit.before());
+    }
+
+    @Test
+    void onlyTheProbeClosesOrReopensTheCircuit() {
+        AtlanCalls.CircuitBreaker circuit = openCircuit();
+
+        // calls that were in flight when it opened do not count
+        circuit.record(true, false);
+        assertThrows(AtlanCalls.CircuitOpenException.class, circuit::before);
+
+        now.addAndGet(OPEN_MILLIS * 1_000_000L);
+        assertTrue(circuit.before());
+        assertThrows(AtlanCalls.CircuitOpenException.class, circuit::before, "one probe at a time");
+
+        circuit.recordError(mock(ApiConnectionException.class), true);
+        assertThrows(AtlanCalls.CircuitOpenException.class, circuit::before);
+
+        now.addAndGet(OPEN_MILLIS * 1_000_000L);
+        assertTrue(circuit.before());
+        circuit.record(true, true);
+        assertFalse(circuit.before());
+    }
+
+    @Test
+    void throttledProbeClosesTheCircuit() {
+        AtlanCalls.CircuitBreaker circuit = openCircuit();
+        now.addAndGet(OPEN_MILLIS * 1_000_000L);
+        assertTrue(circuit.before());
+
+        circuit.recordError(mock(RateLimitException.class), true);
+        assertFalse(circuit.before());
+    }
+
+    @Test
+    void abandonedProbeReopensTheCircuit() {
+        AtlanCalls.CircuitBreaker circuit = openCircuit();
+        now.addAndGet(OPEN_MILLIS * 1_000_000L);
+        assertTrue(circuit.before());
+
+        circuit.abandon(true);
+        assertThrows(AtlanCalls.CircuitOpenException.class, circuit::before);
+        now.addAndGet(OPEN_MILLIS * 1_000_000L - 1);
+        assertThrows(AtlanCalls.CircuitOpenException.class, circuit::before);
+        now.addAndGet(1);
+        assertTrue(circuit.before());
+    }
+
+    private AtlanCalls.CircuitBreaker circuit() {
+        return new AtlanCalls.CircuitBreaker(AtlanCalls.RateClass.MUTATE, 10, 50, OPEN_MILLIS, now::get);
+    }
+
+    private AtlanCalls.CircuitBreaker openCircuit() {
+        AtlanCalls.CircuitBreaker circuit = circuit();
+        for (int i = 0; i < 10; i++) {
+            circuit.recordError(mock(ApiConnectionException.class), false);
+        }
+        assertThrows(AtlanCalls.CircuitOpenException.class, circuit::before);
+        return circuit;
+    }
+}
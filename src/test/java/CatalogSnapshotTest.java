@@ -0,0 +1,140 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogSnapshotTest {
+
+    private static final String CONNECTION = "default/snowflake/1700000000";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsBackWhatWasWritten() throws IOException {
+        Path file = dir.resolve("catalog.snapshot");
+        List<CatalogSnapshot.Entry> entries = entries(1000);
+        CatalogSnapshot.write(file, CONNECTION, entries, 1234L, 5678L);
+
+        try (CatalogSnapshot snapshot = CatalogSnapshot.open(file)) {
+            assertEquals(1000, snapshot.size());
+            assertEquals(1234L, snapshot.getLastUpdateTime());
+            List<String> guids = new ArrayList<>();
+            snapshot.forEach(entry -> guids.add(entry.getGuid()));
+            assertEquals(entries.stream().map(CatalogSnapshot.Entry::getGuid).collect(Collectors.toList()), guids);
+        }
+    }
+
+    @Test
+    void findsAssetsByGuid() throws IOException {
+        Path file = dir.resolve("catalog.snapshot");
+        CatalogSnapshot.write(file, CONNECTION, entries(1000), 0, 0);
+
+        try (CatalogSnapshot snapshot = CatalogSnapshot.open(file)) {
+            for (int i = 0; i < 1000; i++) {
+                CatalogSnapshot.Entry entry = snapshot.findByGuid("guid-" + i);
+                assertEquals("table_" + i, entry.getName());
+                assertEquals("Table", entry.getTypeName());
+                assertEquals(CONNECTION + "/db/schema/table_" + i, entry.getQualifiedName());
+                assertEquals(CONNECTION, entry.getConnectionQualifiedName());
+            }
+            assertNull(snapshot.findByGuid("guid-1000"));
+            assertNull(snapshot.findByGuid(""));
+        }
+    }
+
+    @Test
+    void findsEveryAssetSharingAName() throws IOException {
+        Path file = dir.resolve("catalog.snapshot");
+        List<CatalogSnapshot.Entry> entries = entries(100);
+        entries.add(new CatalogSnapshot.Entry("view-orders", "View", "orders", CONNECTION + "/db/schema/orders", CONNECTION));
+        entries.add(new CatalogSnapshot.Entry("table-orders", "Table", "orders", CONNECTION + "/db/other/orders", CONNECTION));
+        CatalogSnapshot.write(file, CONNECTION, entries, 0, 0);
+
+        try (CatalogSnapshot snapshot = CatalogSnapshot.open(file)) {
+            List<String> guids = snapshot.findByName("orders").stream()
+                    .map(CatalogSnapshot.Entry::getGuid).sorted().collect(Collectors.toList());
+            assertEquals(List.of("table-orders", "view-orders"), guids);
+            assertEquals(1, snapshot.findByName("table_7").size());
+            assertTrue(snapshot.findByName("customers").isEmpty());
+        }
+    }
+
+    @Test
+    void keepsTheProvenanceOfTheExport() throws IOException {
+        Path file = dir.resolve("catalog.snapshot");
+        CatalogSnapshot.write(file, CONNECTION, entries(3), 1234L, 1_700_000_000_000L);
+
+        try (CatalogSnapshot snapshot = CatalogSnapshot.open(file)) {
+            assertEquals(CONNECTION, snapshot.getConnectionQualifiedName());
+            assertEquals(1_700_000_000_000L, snapshot.getFullExportTime());
+            assertEquals(1234L, snapshot.getLastUpdateTime());
+            assertEquals(file, snapshot.getFile());
+        }
+    }
+
+    @Test
+    void readsVersion1Snapshots() throws IOException {
+        Path file = dir.resolve("catalog.snapshot");
+        CatalogSnapshot.write(file, "", entries(50), 1234L, 5678L);
+        Files.write(file, toVersion1(Files.readAllBytes(file)));
+
+        try (CatalogSnapshot snapshot = CatalogSnapshot.open(file)) {
+            assertEquals(50, snapshot.size());
+            assertEquals(1234L, snapshot.getLastUpdateTime());
+            assertEquals(0L, snapshot.getFullExportTime());
+            assertNull(snapshot.getConnectionQualifiedName());
+            assertEquals("table_42", snapshot.findByGuid("guid-42").getName());
+            assertEquals("guid-7", snapshot.findByName("table_7").get(0).getGuid());
+        }
+    }
+
+    @Test
+    void rejectsFilesThatAreNotSnapshots() throws IOException {
+        Path file = dir.resolve("catalog.snapshot");
+        Files.write(file, new byte[64]);
+
+        assertThrows(IOException.class, () -> CatalogSnapshot.open(file));
+    }
+
+    private static List<CatalogSnapshot.Entry> entries(int count) {
+        List<CatalogSnapshot.Entry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            entries.add(new CatalogSnapshot.Entry("guid-" + i, "Table", "table_" + i, CONNECTION + "/db/schema/table_" + i, CONNECTION));
+        }
+        return entries;
+    }
+
+    /**
+     * Rewrite a version 2 snapshot of an empty connection name the way version 1 laid it out: no full export time
+     * and no connection in the header, so every record sits 10 bytes earlier
+     */
+    private static byte[] toVersion1(byte[] v2) {
+        ByteBuffer in = ByteBuffer.wrap(v2);
+        int count = in.getInt(24);
+        int capacity = in.getInt(28);
+        int shift = 10;
+        ByteBuffer out = ByteBuffer.allocate(v2.length - shift);
+        out.putInt(in.getInt(0));
+        out.putInt(1);
+        out.putLong(in.getLong(8));
+        out.putInt(count);
+        out.putInt(capacity);
+        for (int record = 0; record < count; record++) {
+            out.putInt(in.getInt(34 + record * 4) - shift);
+        }
+        out.put(v2, 34 + count * 4, v2.length - 34 - count * 4);
+        return out.array();
+    }
+}
@@ -0,0 +1,61 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactKeySetTest {
+
+    @Test
+    void addsEachKeyOnce() {
+        CompactKeySet keys = new CompactKeySet();
+        assertTrue(keys.add("data/a.csv"));
+        assertTrue(keys.add("data/b.csv"));
+        assertFalse(keys.add("data/a.csv"));
+
+        assertEquals(2, keys.size());
+        assertTrue(keys.contains("data/a.csv"));
+        assertFalse(keys.contains("data/c.csv"));
+    }
+
+    @Test
+    void keepsKeysWhenGrowingPastExpectedSize() {
+        CompactKeySet keys = new CompactKeySet(4);
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(keys.add("key-" + i));
+        }
+        assertEquals(10_000, keys.size());
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(keys.contains("key-" + i), "missing key-" + i);
+        }
+        assertFalse(keys.contains("key-10000"));
+    }
+
+    @Test
+    void acceptsPrecomputedHashes() {
+        CompactKeySet keys = new CompactKeySet();
+        assertTrue(keys.addHash(CompactKeySet.hash("x")));
+        assertTrue(keys.contains("x"));
+        assertFalse(keys.add("x"));
+    }
+
+    @Test
+    void clearRemovesEveryKey() {
+        CompactKeySet keys = new CompactKeySet();
+        keys.add("a");
+        keys.add("b");
+        keys.clear();
+
+        assertEquals(0, keys.size());
+        assertFalse(keys.contains("a"));
+        assertTrue(keys.add("a"));
+    }
+
+    @Test
+    void hashIsStableAndNeverTheEmptySlot() {
+        assertEquals(CompactKeySet.hash("report.csv"), CompactKeySet.hash("report.csv"));
+        assertNotEquals(CompactKeySet.hash("report.csv"), CompactKeySet.hash("report.csv "));
+        assertNotEquals(0L, CompactKeySet.hash(""));
+    }
+}
@@ -0,0 +1,149 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvReaderTest {
+
+    @Test
+    void readsQuotedFieldsWithCommasAndDoubledQuotes() throws IOException {
+        try (CsvReader reader = reader("a,\"b,c\",\"say \"\"hi\"\"\",\n")) {
+            assertTrue(reader.next());
+            assertNull(reader.getError());
+            assertArrayEquals(new String[]{"a", "b,c", "say \"hi\"", ""}, reader.getFields());
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    void keepsLineBreaksInsideQuotedFields() throws IOException {
+        try (CsvReader reader = reader("\"first\nsecond\",x\r\n\"one\r\ntwo\",y\nlast,z")) {
+            assertTrue(reader.next());
+            assertArrayEquals(new String[]{"first\nsecond", "x"}, reader.getFields());
+            assertEquals(1, reader.getLineNumber());
+
+            assertTrue(reader.next());
+            assertArrayEquals(new String[]{"one\ntwo", "y"}, reader.getFields());
+            assertEquals(3, reader.getLineNumber());
+
+            assertTrue(reader.next());
+            assertArrayEquals(new String[]{"last", "z"}, reader.getFields());
+            assertEquals(5, reader.getLineNumber());
+            assertFalse(reader.next());
+            assertEquals(3, reader.getRecordCount());
+        }
+    }
+
+    @Test
+    void skipsByteOrderMarkAndBlankLines() throws IOException {
+        try (CsvReader reader = reader("\uFEFFa,b\r\n\r\n\n\rc,d\r")) {
+            assertTrue(reader.next());
+            assertArrayEquals(new String[]{"a", "b"}, reader.getFields());
+            assertTrue(reader.next());
+            assertArrayEquals(new String[]{"c", "d"}, reader.getFields());
+            assertEquals(5, reader.getLineNumber());
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    void reportsTextAfterClosingQuoteAndResumesOnNextLine() throws IOException {
+        try (CsvReader reader = reader("\"abc\"x,1\nok,2\n")) {
+            assertTrue(reader.next());
+            assertEquals("Unexpected character after closing quote", reader.getError());
+            assertEquals(0, reader.getFields().length);
+            assertEquals("\"abc\"x,1", reader.getRawRecord());
+
+            assertTrue(reader.next());
+            assertNull(reader.getError());
+            assertArrayEquals(new String[]{"ok", "2"}, reader.getFields());
+            assertEquals(2, reader.getLineNumber());
+        }
+    }
+
+    @Test
+    void rejectsOnlyTheLineOfAnUnterminatedQuote() throws IOException {
+        try (CsvReader reader = reader("a,\"b\nc,d\ne,f\n")) {
+            assertTrue(reader.next());
+            assertEquals("Unterminated quoted field", reader.getError());
+            assertEquals(0, reader.getFields().length);
+            assertEquals("a,\"b", reader.getRawRecord());
+            assertEquals(1, reader.getLineNumber());
+
+            assertTrue(reader.next());
+            assertNull(reader.getError());
+            assertArrayEquals(new String[]{"c", "d"}, reader.getFields());
+            assertEquals(2, reader.getLineNumber());
+
+            assertTrue(reader.next());
+            assertArrayEquals(new String[]{"e", "f"}, reader.getFields());
+            assertEquals(3, reader.getLineNumber());
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    void rejectsOnlyTheLineOfAStrayQuoteClosedLinesLater() throws IOException {
+        try (CsvReader reader = reader("a,\"b\r\nc,\"d\r\ne,f")) {
+            assertTrue(reader.next());
+            assertEquals("Unexpected character after closing quote", reader.getError());
+            assertEquals("a,\"b", reader.getRawRecord());
+
+            assertTrue(reader.next());
+            assertEquals("Unterminated quoted field", reader.getError());
+            assertEquals("c,\"d", reader.getRawRecord());
+            assertEquals(2, reader.getLineNumber());
+
+            assertTrue(reader.next());
+            assertArrayEquals(new String[]{"e", "f"}, reader.getFields());
+            assertEquals(3, reader.getLineNumber());
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    void rejectsOverLongRecordAndKeepsReading() throws IOException {
+        try (CsvReader reader = new CsvReader(new StringReader("abcdefgh,1\n\"ijklmnop\",2\nok\n"), 5)) {
+            assertTrue(reader.next());
+            assertEquals("Record longer than 5 characters", reader.getError());
+
+            assertTrue(reader.next());
+            assertEquals("Record longer than 5 characters", reader.getError());
+
+            assertTrue(reader.next());
+            assertNull(reader.getError());
+            assertArrayEquals(new String[]{"ok"}, reader.getFields());
+            assertEquals(3, reader.getLineNumber());
+        }
+    }
+
+    @Test
+    void rejectsOnlyTheLineOfAnOverLongQuote() throws IOException {
+        try (CsvReader reader = new CsvReader(new StringReader("\"abc\nx,1\ny,2\nz,3\n"), 10)) {
+            assertTrue(reader.next());
+            assertEquals("Record longer than 10 characters", reader.getError());
+            assertEquals("\"abc", reader.getRawRecord());
+
+            assertTrue(reader.next());
+            assertArrayEquals(new String[]{"x", "1"}, reader.getFields());
+            assertEquals(2, reader.getLineNumber());
+            assertTrue(reader.next());
+            assertArrayEquals(new String[]{"y", "2"}, reader.getFields());
+            assertEquals(3, reader.getLineNumber());
+            assertTrue(reader.next());
+            assertArrayEquals(new String[]{"z", "3"}, reader.getFields());
+            assertEquals(4, reader.getLineNumber());
+            assertFalse(reader.next());
+        }
+    }
+
+    private static CsvReader reader(String csv) {
+        return new CsvReader(new StringReader(csv), 1024);
+    }
+}
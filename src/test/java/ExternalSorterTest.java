@@ -0,0 +1,101 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExternalSorterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void sortsInMemoryWithoutSpilling() throws IOException {
+        try (ExternalSorter sorter = new ExternalSorter(dir, 2, 0)) {
+            sorter.add("b", "2");
+            sorter.add("c", null);
+            sorter.add("a", "1");
+
+            try (ExternalSorter.Cursor cursor = sorter.sorted()) {
+                assertEquals(0, sorter.getRunCount());
+                assertTrue(cursor.next());
+                assertArrayEquals(new String[]{"a", "1"}, cursor.get());
+                assertTrue(cursor.next());
+                assertArrayEquals(new String[]{"b", "2"}, cursor.get());
+                assertTrue(cursor.next());
+                assertArrayEquals(new String[]{"c", null}, cursor.get());
+                assertFalse(cursor.next());
+            }
+        }
+    }
+
+    @Test
+    void mergesSpilledRunsInKeyOrder() throws IOException {
+        int count = 60_000;
+        Random random = new Random(42);
+        try (ExternalSorter sorter = new ExternalSorter(dir, 3, 0)) {
+            for (int i = 0; i < count; i++) {
+                // few distinct keys, so equal keys end up spread over several runs
+                String key = String.format("key-%05d", random.nextInt(count / 4));
+                sorter.add(key, "value-" + i, i % 7 == 0 ? null : "\u00e9" + i);
+            }
+            assertTrue(sorter.getRunCount() > 1, "records should have been spilled to several runs");
+
+            List<String> keys = new ArrayList<>(count);
+            try (ExternalSorter.Cursor cursor = sorter.sorted()) {
+                while (cursor.next()) {
+                    String[] record = cursor.get();
+                    int i = Integer.parseInt(record[1].substring("value-".length()));
+                    if (i % 7 == 0) {
+                        assertNull(record[2]);
+                    } else {
+                        assertEquals("\u00e9" + i, record[2]);
+                    }
+                    keys.add(record[0]);
+                }
+            }
+            assertEquals(count, sorter.size());
+            assertEquals(count, keys.size());
+            for (int i = 1; i < keys.size(); i++) {
+                assertTrue(keys.get(i - 1).compareTo(keys.get(i)) <= 0, "out of order at " + i);
+            }
+        }
+    }
+
+    @Test
+    void deletesRunFilesOnClose() throws IOException {
+        ExternalSorter sorter = new ExternalSorter(dir, 1, 0);
+        for (int i = 0; i < 20_000; i++) {
+            sorter.add("key-" + i);
+        }
+        assertTrue(sorter.getRunCount() > 0);
+        sorter.close();
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void rejectsMisshapenRecordsAndAddingAfterReading() throws IOException {
+        try (ExternalSorter sorter = new ExternalSorter(dir, 2, 0)) {
+            assertThrows(IllegalArgumentException.class, () -> sorter.add("only-key"));
+            assertThrows(IllegalArgumentException.class, () -> sorter.add(null, "value"));
+
+            sorter.sorted().close();
+            assertThrows(IllegalStateException.class, () -> sorter.add("key", "value"));
+            assertThrows(IllegalStateException.class, sorter::sorted);
+        }
+    }
+}
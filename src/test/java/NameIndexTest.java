@@ -0,0 +1,98 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NameIndexTest {
+
+    @Test
+    void findsPrefixIgnoringCaseInNameOrder() {
+        NameIndex index = NameIndex.build(List.of(entry("1", "Orders"), entry("2", "customers"),
+                entry("3", "ORDER_ITEMS"), entry("4", "orders"), entry("5", "ord")));
+
+        assertEquals(List.of("5", "3", "1", "4"), guids(index.prefix("Ord", 10)));
+        assertEquals(List.of("5", "3"), guids(index.prefix("ord", 2)));
+        assertEquals(List.of(), guids(index.prefix("x", 10)));
+        assertEquals(5, index.size());
+        assertEquals(4, index.getNameCount());
+    }
+
+    @Test
+    void findsShortAndLongSubstrings() {
+        NameIndex index = NameIndex.build(List.of(entry("1", "daily_sales"), entry("2", "SALES_2024"),
+                entry("3", "wholesale"), entry("4", "customers")));
+
+        assertEquals(List.of("1", "2"), guids(index.substring("sales", 10)));
+        assertEquals(List.of("1", "2", "3"), guids(index.substring("sale", 10)));
+        assertEquals(List.of("4", "1"), guids(index.substring("s", 2)));
+        assertEquals(List.of(), guids(index.substring("salesman", 10)));
+    }
+
+    @Test
+    void substringMatchesBruteForceOverManyNames() {
+        List<CatalogSnapshot.Entry> entries = manyEntries();
+        NameIndex index = NameIndex.build(entries);
+
+        for (String query : List.of("orders_1", "ers_2", "customer", "_9", "ORDERS_19")) {
+            String normalized = query.toLowerCase(Locale.ROOT);
+            List<String> expected = entries.stream()
+                    .filter(e -> e.getName().toLowerCase(Locale.ROOT).contains(normalized))
+                    .sorted((a, b) -> a.getName().toLowerCase(Locale.ROOT).compareTo(b.getName().toLowerCase(Locale.ROOT)))
+                    .map(CatalogSnapshot.Entry::getGuid)
+                    .collect(Collectors.toList());
+            assertEquals(expected, guids(index.substring(query, Integer.MAX_VALUE)), query);
+        }
+    }
+
+    @Test
+    void findsNamesWithinEditDistanceClosestFirst() {
+        NameIndex index = NameIndex.build(List.of(entry("1", "customer"), entry("2", "customers"),
+                entry("3", "costumer"), entry("4", "orders")));
+
+        List<NameIndex.Match> matches = index.fuzzy("Custmer", 2, 10);
+        assertEquals(List.of("1", "3", "2"), matches.stream().map(m -> m.getAsset().getGuid()).collect(Collectors.toList()));
+        assertEquals(List.of(1, 2, 2), matches.stream().map(NameIndex.Match::getDistance).collect(Collectors.toList()));
+        assertEquals(1, index.fuzzy("custmer", 2, 1).size());
+    }
+
+    @Test
+    void fuzzyThroughTrigramsMatchesBruteForce() {
+        List<CatalogSnapshot.Entry> entries = manyEntries();
+        NameIndex index = NameIndex.build(entries);
+
+        String query = "custmer_orders_17";
+        long expected = entries.stream().filter(e -> NameIndex.distance(e.getName(), query, 2) <= 2).count();
+        List<NameIndex.Match> matches = index.fuzzy(query, 2, Integer.MAX_VALUE);
+        assertEquals(expected, matches.size());
+        assertEquals("customer_orders_17", matches.get(0).getAsset().getName());
+    }
+
+    @Test
+    void computesBoundedEditDistance() {
+        assertEquals(0, NameIndex.distance("sales", "sales", 2));
+        assertEquals(1, NameIndex.distance("sales", "sale", 2));
+        assertEquals(2, NameIndex.distance("sales", "tales2", 2));
+        assertEquals(3, NameIndex.distance("sales", "orders", 2));
+    }
+
+    private static List<CatalogSnapshot.Entry> manyEntries() {
+        List<CatalogSnapshot.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            entries.add(entry("c" + i, "customer_orders_" + i));
+            entries.add(entry("s" + i, "Supplier_Orders_" + i));
+        }
+        return entries;
+    }
+
+    private static CatalogSnapshot.Entry entry(String guid, String name) {
+        return new CatalogSnapshot.Entry(guid, "Table", name, "default/postgres/1/db/schema/" + name, "default/postgres/1");
+    }
+
+    private static List<String> guids(List<CatalogSnapshot.Entry> entries) {
+        return entries.stream().map(CatalogSnapshot.Entry::getGuid).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,62 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class S3FingerprintStoreTest {
+
+    private static final String BUCKET = "default/s3/1/arn:aws:s3:::bucket-a";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void keepsFingerprintsAcrossRuns() throws Exception {
+        S3FingerprintStore store = S3FingerprintStore.open(dir, BUCKET);
+        assertEquals(S3FingerprintStore.ABSENT, store.get("a.csv"));
+        store.put("a.csv", 11L);
+        store.put("b.csv", 12L);
+        store.put("a.csv", 13L);
+        store.save();
+
+        S3FingerprintStore reopened = S3FingerprintStore.open(dir, BUCKET);
+        assertEquals(2, reopened.size());
+        assertEquals(13L, reopened.get("a.csv"));
+        assertEquals(12L, reopened.get("b.csv"));
+    }
+
+    @Test
+    void dropsFingerprintsOfKeysNoLongerListed() throws Exception {
+        S3FingerprintStore store = S3FingerprintStore.open(dir, BUCKET);
+        for (int i = 0; i < 1000; i++) {
+            store.put("key-" + i, i + 1);
+        }
+        for (int i = 0; i < 1000; i += 2) {
+            store.markListed("key-" + i);
+        }
+        store.markListed("new-key");
+
+        assertEquals(500, store.pruneUnlisted());
+        store.save();
+
+        S3FingerprintStore reopened = S3FingerprintStore.open(dir, BUCKET);
+        assertEquals(500, reopened.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i % 2 == 0 ? i + 1 : S3FingerprintStore.ABSENT, reopened.get("key-" + i), "key-" + i);
+        }
+    }
+
+    @Test
+    void fingerprintChangesWithTheObject() {
+        long original = S3FingerprintStore.fingerprint(new S3ListingReader.Entry("a.csv", "2024-01-01T00:00:00.000Z", "\"e1\"", 10, "STANDARD"));
+        long rewritten = S3FingerprintStore.fingerprint(new S3ListingReader.Entry("a.csv", "2024-01-02T00:00:00.000Z", "\"e2\"", 10, "STANDARD"));
+        long moved = S3FingerprintStore.fingerprint(new S3ListingReader.Entry("a.csv", "2024-01-01T00:00:00.000Z", "\"e1\"", 10, "GLACIER"));
+
+        assertNotEquals(original, rewritten);
+        assertEquals(original, moved);
+        assertNotEquals(S3FingerprintStore.ABSENT, original);
+    }
+}
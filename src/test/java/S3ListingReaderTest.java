@@ -0,0 +1,78 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class S3ListingReaderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void groupsListingsOfTheSameBucket() throws Exception {
+        String first = write("a-1.xml", listing("bucket-a", "k1", "k2"));
+        String other = write("b.xml", listing("bucket-b", "k3"));
+        String second = write("a-2.xml", listing("bucket-a", "k4"));
+
+        Map<String, List<String>> byBucket = S3ListingReader.groupByBucket(List.of(first, other, second), this::open);
+
+        assertEquals(List.of("bucket-a", "bucket-b"), List.copyOf(byBucket.keySet()));
+        assertEquals(List.of(first, second), byBucket.get("bucket-a"));
+        assertEquals(List.of(other), byBucket.get("bucket-b"));
+    }
+
+    @Test
+    void rejectsListingWithoutBucketName() throws Exception {
+        String named = write("a.xml", listing("bucket-a", "k1"));
+        String unnamed = write("none.xml", "<ListBucketResult><Contents><Key>k2</Key></Contents></ListBucketResult>");
+
+        assertThrows(IOException.class, () -> S3ListingReader.groupByBucket(List.of(named, unnamed), this::open));
+    }
+
+    @Test
+    void keepsWhitespaceOfKeysAndTrimsOtherFields() throws Exception {
+        String xml = "<ListBucketResult>\n  <Name> bucket-a </Name>\n  <Contents>\n    <Key> report .csv\t</Key>\n"
+                + "    <LastModified> 2024-01-02T03:04:05.000Z </LastModified>\n    <ETag> \"abc\" </ETag>\n"
+                + "    <Size> 42 </Size>\n    <StorageClass> STANDARD </StorageClass>\n  </Contents>\n</ListBucketResult>";
+        try (S3ListingReader reader = new S3ListingReader(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)))) {
+            assertEquals("bucket-a", reader.getBucketName());
+            S3ListingReader.Entry entry = reader.next();
+            assertEquals(" report .csv\t", entry.getKey());
+            assertEquals("2024-01-02T03:04:05.000Z", entry.getLastModified());
+            assertEquals("\"abc\"", entry.getETag());
+            assertEquals(42, entry.getSize());
+            assertEquals("STANDARD", entry.getStorageClass());
+            assertNull(reader.next());
+        }
+    }
+
+    private static String listing(String bucketName, String... keys) {
+        StringBuilder xml = new StringBuilder("<ListBucketResult><Name>").append(bucketName).append("</Name>");
+        for (String key : keys) {
+            xml.append("<Contents><Key>").append(key).append("</Key><Size>1</Size></Contents>");
+        }
+        return xml.append("</ListBucketResult>").toString();
+    }
+
+    private String write(String fileName, String content) throws IOException {
+        Path file = dir.resolve(fileName);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file.toString();
+    }
+
+    private InputStream open(String listingName) throws IOException {
+        return Files.newInputStream(Paths.get(listingName));
+    }
+}
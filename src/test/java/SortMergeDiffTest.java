@@ -0,0 +1,102 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SortMergeDiffTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void splitsKeysIntoCreateUnchangedAndStale() throws Exception {
+        Outcomes outcomes = diff(new String[][]{{"b"}, {"a"}, {"d"}},
+                new String[][]{{"c", "guid-c"}, {"b", "guid-b"}});
+
+        assertEquals(List.of("a", "d"), outcomes.created);
+        assertEquals(List.of("b=guid-b"), outcomes.unchanged);
+        assertEquals(List.of("c=guid-c"), outcomes.stale);
+        assertEquals(List.of(), outcomes.duplicates);
+    }
+
+    @Test
+    void reportsKeyRepeatedInTheSourceOnce() throws Exception {
+        Outcomes outcomes = diff(new String[][]{{"a"}, {"a"}, {"b"}, {"b"}},
+                new String[][]{{"b", "guid-b"}});
+
+        assertEquals(List.of("a"), outcomes.created);
+        assertEquals(List.of("b=guid-b"), outcomes.unchanged);
+    }
+
+    @Test
+    void duplicateCatalogRowsOfAListedKeyAreNotStale() throws Exception {
+        Outcomes outcomes = diff(new String[][]{{"a"}, {"b"}},
+                new String[][]{{"b", "guid-b1"}, {"a", "guid-a"}, {"b", "guid-b2"}, {"b", "guid-b3"}, {"c", "guid-c"}});
+
+        assertEquals(List.of(), outcomes.created);
+        assertEquals(2, outcomes.unchanged.size());
+        assertEquals(2, outcomes.duplicates.size());
+        assertEquals(List.of("c=guid-c"), outcomes.stale);
+    }
+
+    @Test
+    void duplicateCatalogRowsOfAnUnlistedKeyAreAllStale() throws Exception {
+        Outcomes outcomes = diff(new String[][]{{"a"}},
+                new String[][]{{"z", "guid-z1"}, {"z", "guid-z2"}});
+
+        assertEquals(List.of("a"), outcomes.created);
+        assertEquals(2, outcomes.stale.size());
+        assertEquals(List.of(), outcomes.duplicates);
+    }
+
+    private Outcomes diff(String[][] source, String[][] catalog) throws Exception {
+        Outcomes outcomes = new Outcomes();
+        try (ExternalSorter sourceSorter = sorter(1, source);
+             ExternalSorter catalogSorter = sorter(2, catalog);
+             ExternalSorter.Cursor sourceCursor = sourceSorter.sorted();
+             ExternalSorter.Cursor catalogCursor = catalogSorter.sorted()) {
+            SortMergeDiff.diff(sourceCursor, catalogCursor, outcomes);
+        }
+        return outcomes;
+    }
+
+    private ExternalSorter sorter(int fieldCount, String[][] records) throws IOException {
+        ExternalSorter sorter = new ExternalSorter(dir, fieldCount, 0);
+        for (String[] record : records) {
+            sorter.add(record);
+        }
+        return sorter;
+    }
+
+    private static final class Outcomes implements SortMergeDiff.Listener {
+        private final List<String> created = new ArrayList<>();
+        private final List<String> unchanged = new ArrayList<>();
+        private final List<String> stale = new ArrayList<>();
+        private final List<String> duplicates = new ArrayList<>();
+
+        @Override
+        public void onCreate(String[] source) {
+            created.add(source[0]);
+        }
+
+        @Override
+        public void onUnchanged(String[] source, String[] catalog) {
+            unchanged.add(catalog[0] + "=" + catalog[1]);
+        }
+
+        @Override
+        public void onStale(String[] catalog) {
+            stale.add(catalog[0] + "=" + catalog[1]);
+        }
+
+        @Override
+        public void onDuplicate(String[] source, String[] catalog) {
+            duplicates.add(catalog[0] + "=" + catalog[1]);
+        }
+    }
+}